@@ -0,0 +1,148 @@
+package com.kinch.consumer.batch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 根据处理耗时自适应调整批次大小
+ *
+ * 核心知识点：
+ * 1. 固定的max.poll.records无法兼顾两种情况：处理快时批次太小，poll次数多、提交多；
+ *    处理慢时批次太大，一批的耗时可能超过max.poll.interval.ms，消费者被踢出消费者组
+ * 2. 用指数加权移动平均（EWMA）估计每条消息的处理耗时，批次大小 = 目标批次耗时 / 单条耗时
+ * 3. 变小立即生效（防止超时），变大每次最多翻倍（避免一次抖动就把批次放得过大）
+ * 4. 同时估计平均消息大小，给出与批次大小相匹配的拉取字节数
+ *
+ * KafkaConsumer创建后不能修改max.poll.records和fetch.max.bytes，
+ * 所以消费者按上限配置，超出当前批次大小的消息由监听器退回，下次poll重新拉取
+ */
+public class AdaptiveBatchSizer {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveBatchSizer.class);
+
+    // EWMA权重：新样本占30%
+    private static final double ALPHA = 0.3;
+
+    private static final int MIN_FETCH_BYTES = 64 * 1024;
+
+    private final long targetLatencyNanos;
+
+    private final int minBatchSize;
+
+    private final int maxBatchSize;
+
+    private int batchSize;
+
+    // 每条消息的平均处理耗时，尚无样本时为0
+    private double avgRecordNanos;
+
+    private double avgRecordBytes;
+
+    private long lastBatchNanos;
+
+    private long batchCount;
+
+    private long recordCount;
+
+    private long limitedBatchCount;
+
+    private long returnedRecordCount;
+
+    private int minChosen = Integer.MAX_VALUE;
+
+    private int maxChosen;
+
+    /**
+     * @param targetLatencyMs  每批消息的目标处理耗时，应远小于max.poll.interval.ms
+     * @param minBatchSize     批次大小下限
+     * @param maxBatchSize     批次大小上限，也是消费者的max.poll.records
+     * @param initialBatchSize 还没有耗时样本时使用的批次大小
+     */
+    public AdaptiveBatchSizer(long targetLatencyMs, int minBatchSize, int maxBatchSize, int initialBatchSize) {
+        if (targetLatencyMs < 1 || minBatchSize < 1 || maxBatchSize < minBatchSize) {
+            throw new IllegalArgumentException("批次大小参数不合法");
+        }
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMs);
+        this.minBatchSize = minBatchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.batchSize = Math.clamp(initialBatchSize, minBatchSize, maxBatchSize);
+    }
+
+    /**
+     * 当前批次大小：本次poll最多处理多少条
+     */
+    public synchronized int batchSize() {
+        return batchSize;
+    }
+
+    /**
+     * 记录一批消息的处理结果，计算下一批的大小
+     *
+     * @param records      本批处理的消息数
+     * @param bytes        本批消息的总字节数（Key + Value）
+     * @param elapsedNanos 本批处理耗时
+     * @param polled       本次poll实际拉取的消息数，大于records表示有消息被退回
+     */
+    public synchronized void record(int records, long bytes, long elapsedNanos, int polled) {
+        if (records <= 0) {
+            return;
+        }
+        batchCount++;
+        recordCount += records;
+        lastBatchNanos = elapsedNanos;
+        if (polled > records) {
+            limitedBatchCount++;
+            returnedRecordCount += polled - records;
+        }
+
+        double perRecord = (double) elapsedNanos / records;
+        double perRecordBytes = (double) bytes / records;
+        if (avgRecordNanos == 0) {
+            avgRecordNanos = perRecord;
+            avgRecordBytes = perRecordBytes;
+        } else {
+            avgRecordNanos = ALPHA * perRecord + (1 - ALPHA) * avgRecordNanos;
+            avgRecordBytes = ALPHA * perRecordBytes + (1 - ALPHA) * avgRecordBytes;
+        }
+
+        long ideal = avgRecordNanos <= 0 ? maxBatchSize : (long) (targetLatencyNanos / avgRecordNanos);
+        int next = (int) Math.clamp(ideal, minBatchSize, Math.min(maxBatchSize, (long) batchSize * 2));
+        if (next != batchSize) {
+            logger.debug("批次大小调整: {} -> {}，单条平均耗时 {} μs", batchSize, next,
+                TimeUnit.NANOSECONDS.toMicros((long) avgRecordNanos));
+            batchSize = next;
+        }
+        minChosen = Math.min(minChosen, batchSize);
+        maxChosen = Math.max(maxChosen, batchSize);
+    }
+
+    /**
+     * 与当前批次大小匹配的拉取字节数：批次大小 × 平均消息大小
+     */
+    public synchronized int fetchBytes() {
+        return Math.clamp((long) (batchSize * avgRecordBytes), MIN_FETCH_BYTES, Integer.MAX_VALUE);
+    }
+
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("batchSize", batchSize);
+        result.put("minBatchSize", minBatchSize);
+        result.put("maxBatchSize", maxBatchSize);
+        result.put("minChosenBatchSize", batchCount == 0 ? batchSize : minChosen);
+        result.put("maxChosenBatchSize", batchCount == 0 ? batchSize : maxChosen);
+        result.put("targetLatencyMs", TimeUnit.NANOSECONDS.toMillis(targetLatencyNanos));
+        result.put("lastBatchLatencyMs", TimeUnit.NANOSECONDS.toMillis(lastBatchNanos));
+        result.put("avgRecordMicros", TimeUnit.NANOSECONDS.toMicros((long) avgRecordNanos));
+        result.put("avgRecordBytes", Math.round(avgRecordBytes));
+        result.put("fetchBytes", fetchBytes());
+        result.put("batchCount", batchCount);
+        result.put("avgBatchSize", batchCount == 0 ? 0 : recordCount / batchCount);
+        result.put("limitedBatchCount", limitedBatchCount);
+        result.put("returnedRecordCount", returnedRecordCount);
+        return result;
+    }
+}
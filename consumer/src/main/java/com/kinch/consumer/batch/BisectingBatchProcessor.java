@@ -0,0 +1,148 @@
+package com.kinch.consumer.batch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 二分隔离批次中的失败消息
+ *
+ * 核心知识点：
+ * 1. 批量处理失败后逐条重试，一条"毒消息"会让500条的批次变成500次单条调用，批量的优势全部丢失
+ * 2. 二分：失败的批次拆成两半分别处理，成功的一半直接完成，失败的一半继续拆分，
+ *    直到定位到单条失败的消息。n条中有k条毒消息时，调用次数约为 2k·log2(n/k)，
+ *    1条毒消息在512条中只需约20次调用
+ * 3. 左半成功时，毒消息一定在右半，右半不再整体尝试，直接继续拆分，每层少一次调用
+ * 4. 子批次按原顺序处理（先左后右），失败消息的下标递增，调用方可以提交失败之前的前缀
+ *
+ * 要求批量处理是"全部成功或全部失败"的（例如批量入库在一个事务中），
+ * 否则失败批次中已经生效的部分在拆分后会再处理一次
+ */
+public class BisectingBatchProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(BisectingBatchProcessor.class);
+
+    private final LongAdder batchCount = new LongAdder();
+
+    private final LongAdder failedBatchCount = new LongAdder();
+
+    private final LongAdder attemptCount = new LongAdder();
+
+    private final LongAdder retryAttemptCount = new LongAdder();
+
+    private final LongAdder isolatedCount = new LongAdder();
+
+    private final LongAdder recordCount = new LongAdder();
+
+    /**
+     * 处理一批消息，失败时二分隔离出处理失败的消息
+     *
+     * @return 隔离出的失败消息（按下标递增）和处理调用次数
+     */
+    public <T> Result<T> process(List<T> batch, BatchHandler<T> handler) {
+        batchCount.increment();
+        recordCount.add(batch.size());
+        Result<T> result = new Result<>();
+        if (batch.isEmpty()) {
+            return result;
+        }
+        if (attempt(batch, 0, batch.size(), handler, result)) {
+            return result;
+        }
+        failedBatchCount.increment();
+        bisect(batch, 0, batch.size(), handler, result);
+
+        isolatedCount.add(result.failures.size());
+        retryAttemptCount.add(result.attempts - 1);
+        logger.info("批次{}条处理失败，{}次调用隔离出{}条失败消息", batch.size(), result.attempts, result.failures.size());
+        return result;
+    }
+
+    /**
+     * 已知[from, to)整体失败，拆分后分别处理
+     */
+    private <T> void bisect(List<T> batch, int from, int to, BatchHandler<T> handler, Result<T> result) {
+        if (to - from == 1) {
+            result.failures.add(new Failure<>(from, batch.get(from), result.lastException));
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        boolean leftOk = attempt(batch, from, mid, handler, result);
+        if (!leftOk) {
+            bisect(batch, from, mid, handler, result);
+        }
+        // 左半成功说明失败在右半；单条消息仍要实际处理一次，才能确认它本身失败
+        if (leftOk && to - mid > 1) {
+            bisect(batch, mid, to, handler, result);
+        } else if (!attempt(batch, mid, to, handler, result)) {
+            bisect(batch, mid, to, handler, result);
+        }
+    }
+
+    private <T> boolean attempt(List<T> batch, int from, int to, BatchHandler<T> handler, Result<T> result) {
+        attemptCount.increment();
+        result.attempts++;
+        try {
+            handler.handle(batch.subList(from, to));
+            return true;
+        } catch (Exception e) {
+            result.lastException = e;
+            return false;
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        long failedBatches = failedBatchCount.sum();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("batchCount", batchCount.sum());
+        result.put("recordCount", recordCount.sum());
+        result.put("failedBatchCount", failedBatches);
+        result.put("attemptCount", attemptCount.sum());
+        result.put("isolatedCount", isolatedCount.sum());
+        result.put("avgRetryAttemptsPerFailedBatch", failedBatches == 0 ? 0 : retryAttemptCount.sum() / failedBatches);
+        return result;
+    }
+
+    /**
+     * 批量处理逻辑，抛出异常表示整批失败
+     */
+    @FunctionalInterface
+    public interface BatchHandler<T> {
+
+        void handle(List<T> batch) throws Exception;
+    }
+
+    /**
+     * 一条隔离出的失败消息
+     *
+     * @param index 在原批次中的下标
+     */
+    public record Failure<T>(int index, T item, Exception exception) {
+    }
+
+    public static class Result<T> {
+
+        private final List<Failure<T>> failures = new ArrayList<>();
+
+        private int attempts;
+
+        private Exception lastException;
+
+        public List<Failure<T>> failures() {
+            return failures;
+        }
+
+        public int attempts() {
+            return attempts;
+        }
+
+        public boolean succeeded() {
+            return failures.isEmpty();
+        }
+    }
+}
@@ -1,18 +1,36 @@
 package com.kinch.consumer.config;
 
+import com.kinch.common.constant.KafkaConstants;
+import com.kinch.common.serializer.BinaryDeserializer;
 import com.kinch.common.serializer.JsonDeserializer;
+import com.kinch.common.util.KafkaUtils;
+import com.kinch.consumer.batch.AdaptiveBatchSizer;
+import com.kinch.consumer.batch.BisectingBatchProcessor;
+import com.kinch.consumer.dlq.DeadLetterPublisher;
+import com.kinch.consumer.offset.CommitCoordinator;
+import com.kinch.consumer.parallel.KeyOrderedDispatcher;
+import jakarta.annotation.PostConstruct;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
 import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.FixedBackOff;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Executors;
 
 /**
  * Kafka消费者配置类
@@ -24,6 +42,16 @@ public class KafkaConsumerConfig {
     @Value("${spring.kafka.bootstrap-servers:localhost:9092}")
     private String bootstrapServers;
     
+    // 事务Producer的实例ID，拼入transactional.id，每个实例必须唯一且重启后不变
+    // 未配置时退回到主机名并打印WARN，只适合本地单实例运行
+    @Value("${kafka.consumer.transaction.instance-id:}")
+    private String transactionInstanceId;
+    
+    @PostConstruct
+    public void resolveTransactionInstanceId() {
+        transactionInstanceId = KafkaUtils.resolveInstanceId(transactionInstanceId, "kafka.consumer.transaction.instance-id");
+    }
+    
     /**
      * 基础消费者工厂 - 用于String类型消息
      */
@@ -77,15 +105,116 @@ public class KafkaConsumerConfig {
         return factory;
     }
     
+    /**
+     * 并行消费监听容器工厂
+     * 核心知识点：
+     * 1. 监听器只负责把消息交给KeyOrderedDispatcher，不调用ack，容器也不提交偏移量
+     * 2. 分发器按分区跟踪乱序完成的偏移量，在消费者线程上提交水位线；
+     *    作为重平衡监听器，在分区被回收前等待在途消息并同步提交
+     * 3. 容器空闲事件在消费者线程上发布，没有新消息时由它提交剩余的进度
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> parallelKafkaListenerContainerFactory(
+            KeyOrderedDispatcher keyOrderedDispatcher) {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = 
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(stringConsumerFactory());
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setConsumerRebalanceListener(keyOrderedDispatcher);
+        factory.getContainerProperties().setIdleEventInterval(5000L);
+        factory.setConcurrency(3);
+        return factory;
+    }
+    
+    /**
+     * 并行消费分发器 - 同一个Key串行、不同Key在虚拟线程上并行，重试用尽的消息发送到死信队列
+     */
+    @Bean(destroyMethod = "close")
+    public KeyOrderedDispatcher keyOrderedDispatcher(
+            @Value("${kafka.consumer.parallel.max-attempts:3}") int maxAttempts,
+            @Value("${kafka.consumer.parallel.max-in-flight:500}") int maxInFlight) {
+        return new KeyOrderedDispatcher(Executors.newVirtualThreadPerTaskExecutor(), maxAttempts, maxInFlight,
+            deadLetterPublisher());
+    }
+    
+    /**
+     * 批量提交监听容器工厂
+     * 核心知识点：
+     * 1. 监听器处理完消息后交给CommitCoordinator，按条数、字节数、时间任一条件异步提交
+     * 2. CommitCoordinator作为重平衡监听器，在分区被回收前同步提交剩余的进度
+     * 3. 空闲事件间隔与提交时间上限一致，流量停止后进度也能按时提交
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> batchCommitKafkaListenerContainerFactory(
+            CommitCoordinator commitCoordinator,
+            @Value("${kafka.consumer.commit.max-interval-ms:1000}") long maxIntervalMs) {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = 
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(stringConsumerFactory());
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setConsumerRebalanceListener(commitCoordinator);
+        factory.getContainerProperties().setIdleEventInterval(maxIntervalMs);
+        factory.setConcurrency(3);
+        return factory;
+    }
+    
+    /**
+     * 批量提交协调器
+     */
+    @Bean
+    public CommitCoordinator commitCoordinator(
+            @Value("${kafka.consumer.commit.max-records:500}") int maxRecords,
+            @Value("${kafka.consumer.commit.max-bytes:1048576}") long maxBytes,
+            @Value("${kafka.consumer.commit.max-interval-ms:1000}") long maxIntervalMs) {
+        return new CommitCoordinator(maxRecords, maxBytes, maxIntervalMs);
+    }
+    
+    /**
+     * 批量消费者工厂
+     * max.poll.records按自适应批次大小的上限配置，实际处理的条数由AdaptiveBatchSizer决定
+     */
+    @Bean
+    public ConsumerFactory<String, String> batchConsumerFactory(
+            @Value("${kafka.consumer.batch.max-size:1000}") int maxBatchSize) {
+        Map<String, Object> props = new HashMap<>(stringConsumerFactory().getConfigurationProperties());
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxBatchSize);
+        return new DefaultKafkaConsumerFactory<>(props);
+    }
+    
+    /**
+     * 自适应批次大小控制器
+     * 目标批次耗时不超过max.poll.interval.ms的1/5，留出重试和提交的余量
+     */
+    @Bean
+    public AdaptiveBatchSizer adaptiveBatchSizer(
+            @Value("${kafka.consumer.batch.target-latency-ms:2000}") long targetLatencyMs,
+            @Value("${kafka.consumer.batch.min-size:10}") int minBatchSize,
+            @Value("${kafka.consumer.batch.max-size:1000}") int maxBatchSize) {
+        long maxPollIntervalMs = ((Number) stringConsumerFactory().getConfigurationProperties()
+            .get(ConsumerConfig.MAX_POLL_INTERVAL_MS_CONFIG)).longValue();
+        return new AdaptiveBatchSizer(Math.min(targetLatencyMs, maxPollIntervalMs / 5),
+            minBatchSize, maxBatchSize, 100);
+    }
+    
+    /**
+     * 批次失败隔离器 - 二分定位批次中处理失败的消息
+     */
+    @Bean
+    public BisectingBatchProcessor bisectingBatchProcessor() {
+        return new BisectingBatchProcessor();
+    }
+    
     /**
      * 批量消费监听容器工厂
      * 核心知识点：批量消费可以提高吞吐量
+     * 部分确认（nack(index)）要求MANUAL_IMMEDIATE，超出批次大小的消息退回后下次poll重新拉取
      */
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, String> batchKafkaListenerContainerFactory() {
+    public ConcurrentKafkaListenerContainerFactory<String, String> batchKafkaListenerContainerFactory(
+            @Qualifier("batchConsumerFactory") ConsumerFactory<String, String> batchConsumerFactory) {
         ConcurrentKafkaListenerContainerFactory<String, String> factory = 
             new ConcurrentKafkaListenerContainerFactory<>();
-        factory.setConsumerFactory(stringConsumerFactory());
+        factory.setConsumerFactory(batchConsumerFactory);
         
         // 开启批量消费
         factory.setBatchListener(true);
@@ -114,20 +243,38 @@ public class KafkaConsumerConfig {
         props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
         
+        // 消费-转换-生产时一次poll的整批消息共用一个事务，批次越大事务开销分摊得越多
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 500);
+        
         return new DefaultKafkaConsumerFactory<>(props);
     }
     
+    /**
+     * 事务消费监听容器工厂
+     * 核心知识点：
+     * 1. 偏移量由监听器通过sendOffsetsToTransaction在生产者事务中提交，容器不提交偏移量
+     * 2. 事务中止后按固定间隔无限重试同一批消息，不交给恢复器跳过，处理失败后也不确认（ackAfterHandle=false）：
+     *    默认错误处理器重试9次后会记录日志并跳过整批，这批输入就既没有输出也不会再被处理
+     * 3. 重试期间发生重平衡时，分区回退到最后一次随事务提交的偏移量，由新的消费者重新拉取
+     */
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, String> transactionalKafkaListenerContainerFactory() {
+    public ConcurrentKafkaListenerContainerFactory<String, String> transactionalKafkaListenerContainerFactory(
+            @Value("${kafka.consumer.transaction.retry-interval-ms:1000}") long retryIntervalMs) {
         ConcurrentKafkaListenerContainerFactory<String, String> factory = 
             new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(transactionalConsumerFactory());
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(
+            new FixedBackOff(retryIntervalMs, FixedBackOff.UNLIMITED_ATTEMPTS));
+        errorHandler.setAckAfterHandle(false);
+        factory.setCommonErrorHandler(errorHandler);
         return factory;
     }
     
     /**
      * JSON消费者工厂
+     * 未指定目标类型，按消息头type-id分派，同一Topic可以混合User和Order消息
      */
     @Bean
     public ConsumerFactory<String, Object> jsonConsumerFactory() {
@@ -150,5 +297,82 @@ public class KafkaConsumerConfig {
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
         return factory;
     }
+    
+    /**
+     * 二进制消费者工厂 - 与生产端的BinarySerializer配对
+     */
+    @Bean
+    public ConsumerFactory<String, Object> binaryConsumerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, BinaryDeserializer.class);
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, "binary-consumer-group");
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        
+        return new DefaultKafkaConsumerFactory<>(props);
+    }
+    
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object> binaryKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory = 
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(binaryConsumerFactory());
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        return factory;
+    }
+    
+    /**
+     * 消费-转换-生产管道使用的事务生产者工厂
+     * 偏移量随事务提交时依靠消费者组元数据（KIP-447）fence僵尸消费者，事务ID不需要按分区分配；
+     * 但transactional.id相同的Producer仍会互相fence：同一实例内的消费线程从工厂缓存中拿到不同的后缀，
+     * 不同实例之间只能靠前缀区分，因此前缀中包含每个实例唯一的instance-id
+     */
+    @Bean
+    public ProducerFactory<String, String> pipelineProducerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.TRANSACTIONAL_ID_CONFIG, KafkaUtils.transactionalIdPrefix("tx-pipeline", transactionInstanceId));
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
+        
+        return new DefaultKafkaProducerFactory<>(props);
+    }
+    
+    @Bean
+    public KafkaTemplate<String, String> pipelineKafkaTemplate() {
+        return new KafkaTemplate<>(pipelineProducerFactory());
+    }
+    
+    /**
+     * 死信队列生产者工厂
+     * 核心知识点：发送死信成功后才提交原消息的偏移量，acks=all + 幂等性保证死信不丢不重
+     */
+    @Bean
+    public ProducerFactory<String, String> dlqProducerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
+        
+        return new DefaultKafkaProducerFactory<>(props);
+    }
+    
+    @Bean
+    public KafkaTemplate<String, String> dlqKafkaTemplate() {
+        return new KafkaTemplate<>(dlqProducerFactory());
+    }
+    
+    /**
+     * 死信队列发送器 - 批量消费和并行消费共用
+     */
+    @Bean
+    public DeadLetterPublisher deadLetterPublisher() {
+        return new DeadLetterPublisher(dlqKafkaTemplate(), KafkaConstants.TOPIC_DLQ);
+    }
 }
-
@@ -1,6 +1,12 @@
 package com.kinch.consumer.controller;
 
+import com.kinch.consumer.batch.AdaptiveBatchSizer;
+import com.kinch.consumer.batch.BisectingBatchProcessor;
+import com.kinch.consumer.listener.ConsumeTransformProduceListener;
+import com.kinch.consumer.offset.CommitCoordinator;
+import com.kinch.consumer.parallel.KeyOrderedDispatcher;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -17,6 +23,21 @@ import java.util.Map;
 @RequestMapping("/api/consumer")
 public class ConsumerController {
     
+    @Autowired
+    private ConsumeTransformProduceListener consumeTransformProduceListener;
+    
+    @Autowired
+    private KeyOrderedDispatcher keyOrderedDispatcher;
+    
+    @Autowired
+    private CommitCoordinator commitCoordinator;
+    
+    @Autowired
+    private AdaptiveBatchSizer adaptiveBatchSizer;
+    
+    @Autowired
+    private BisectingBatchProcessor bisectingBatchProcessor;
+    
     /**
      * 健康检查
      */
@@ -47,5 +68,54 @@ public class ConsumerController {
         });
         return result;
     }
+    
+    /**
+     * 消费-转换-生产管道指标：事务数、中止数、每个事务平均处理的消息数
+     */
+    @GetMapping("/metrics/pipeline")
+    public Map<String, Object> pipelineMetrics() {
+        Map<String, Object> result = new HashMap<>(consumeTransformProduceListener.metrics());
+        result.put("timestamp", System.currentTimeMillis());
+        return result;
+    }
+    
+    /**
+     * 并行消费指标：已分发、完成、失败、在途消息数和活跃Key数
+     */
+    @GetMapping("/metrics/parallel")
+    public Map<String, Object> parallelMetrics() {
+        Map<String, Object> result = new HashMap<>(keyOrderedDispatcher.snapshot());
+        result.put("timestamp", System.currentTimeMillis());
+        return result;
+    }
+    
+    /**
+     * 批量提交指标：提交次数、触发原因、每秒提交数和提交延迟
+     */
+    @GetMapping("/metrics/commit")
+    public Map<String, Object> commitMetrics() {
+        Map<String, Object> result = new HashMap<>(commitCoordinator.snapshot());
+        result.put("timestamp", System.currentTimeMillis());
+        return result;
+    }
+    
+    /**
+     * 自适应批次指标：当前批次大小、选择过的最小/最大批次、单条平均耗时和退回的消息数
+     */
+    @GetMapping("/metrics/batch-size")
+    public Map<String, Object> batchSizeMetrics() {
+        Map<String, Object> result = new HashMap<>(adaptiveBatchSizer.snapshot());
+        result.put("timestamp", System.currentTimeMillis());
+        return result;
+    }
+    
+    /**
+     * 批次失败隔离指标：失败批次数、隔离出的失败消息数、每个失败批次平均额外调用次数
+     */
+    @GetMapping("/metrics/batch-failure")
+    public Map<String, Object> batchFailureMetrics() {
+        Map<String, Object> result = new HashMap<>(bisectingBatchProcessor.snapshot());
+        result.put("timestamp", System.currentTimeMillis());
+        return result;
+    }
 }
-
@@ -0,0 +1,54 @@
+package com.kinch.consumer.dlq;
+
+import com.kinch.consumer.parallel.KeyOrderedDispatcher;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 死信队列发送器
+ *
+ * 同步发送到死信Topic，Header中记录原始位置和异常信息（Spring Kafka的DLT_*头，DeadLetterPublishingRecoverer使用同样的格式）；
+ * 发送成功返回后调用方才能提交原消息的偏移量，发送失败时抛出异常，原消息保持未提交，由调用方决定重试（KeyOrderedDispatcher按指数退避重试）
+ */
+public class DeadLetterPublisher implements KeyOrderedDispatcher.DeadLetterHandler {
+
+    private static final long SEND_TIMEOUT_SECONDS = 10;
+
+    private final KafkaTemplate<String, String> template;
+
+    private final String topic;
+
+    public DeadLetterPublisher(KafkaTemplate<String, String> template, String topic) {
+        this.template = template;
+        this.topic = topic;
+    }
+
+    /**
+     * 发送一条死信并等待确认
+     *
+     * @throws Exception 发送失败、超时或被中断
+     */
+    @Override
+    public void handle(ConsumerRecord<?, ?> record, Exception cause) throws Exception {
+        template.send(toDeadLetter(record, cause)).get(SEND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    ProducerRecord<String, String> toDeadLetter(ConsumerRecord<?, ?> record, Exception cause) {
+        ProducerRecord<String, String> dlqRecord = new ProducerRecord<>(topic,
+            Objects.toString(record.key(), null), Objects.toString(record.value(), null));
+        dlqRecord.headers()
+            .add(KafkaHeaders.DLT_ORIGINAL_TOPIC, record.topic().getBytes(StandardCharsets.UTF_8))
+            .add(KafkaHeaders.DLT_ORIGINAL_PARTITION, ByteBuffer.allocate(Integer.BYTES).putInt(record.partition()).array())
+            .add(KafkaHeaders.DLT_ORIGINAL_OFFSET, ByteBuffer.allocate(Long.BYTES).putLong(record.offset()).array())
+            .add(KafkaHeaders.DLT_EXCEPTION_FQCN, cause.getClass().getName().getBytes(StandardCharsets.UTF_8))
+            .add(KafkaHeaders.DLT_EXCEPTION_MESSAGE, String.valueOf(cause.getMessage()).getBytes(StandardCharsets.UTF_8));
+        return dlqRecord;
+    }
+}
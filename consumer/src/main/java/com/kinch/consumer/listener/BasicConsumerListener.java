@@ -1,15 +1,17 @@
 package com.kinch.consumer.listener;
 
 import com.kinch.common.constant.KafkaConstants;
+import com.kinch.common.util.HeaderUtils;
+import com.kinch.consumer.parallel.KeyOrderedDispatcher;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.common.header.Header;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
 
-import java.nio.charset.StandardCharsets;
-
 /**
  * 基础消费者监听器
  * 演示基本的消息消费方式
@@ -18,6 +20,9 @@ import java.nio.charset.StandardCharsets;
 @Component
 public class BasicConsumerListener {
     
+    @Autowired
+    private KeyOrderedDispatcher keyOrderedDispatcher;
+    
     /**
      * 1. 基础消费 - 自动消费，手动提交
      * 
@@ -27,34 +32,24 @@ public class BasicConsumerListener {
      * - groupId指定消费者组
      * - ConsumerRecord包含消息的完整信息
      * - Acknowledgment用于手动提交偏移量
+     * - 并行消费：消息交给KeyOrderedDispatcher，同一Key串行、不同Key并行，
+     *   分发器只提交连续完成的偏移量，保证至少一次语义（At Least Once）
      */
     @KafkaListener(
         topics = KafkaConstants.TOPIC_SIMPLE,
         groupId = KafkaConstants.GROUP_SIMPLE,
-        containerFactory = "kafkaListenerContainerFactory"
+        containerFactory = "parallelKafkaListenerContainerFactory"
     )
-    public void consumeSimpleMessage(ConsumerRecord<String, String> record, Acknowledgment ack) {
-        try {
-            log.info("【基础消费者】收到消息 - Topic: {}, Partition: {}, Offset: {}, Key: {}, Value: {}", 
-                record.topic(),
-                record.partition(),
-                record.offset(),
-                record.key(),
-                record.value());
-            
-            // 处理消息
-            processMessage(record);
-            
-            // 手动提交偏移量
-            // 只有成功处理后才提交，保证至少一次语义（At Least Once）
-            ack.acknowledge();
-            log.debug("【基础消费者】偏移量提交成功 - Offset: {}", record.offset());
-            
-        } catch (Exception e) {
-            log.error("【基础消费者】消息处理失败 - Offset: {}", record.offset(), e);
-            // 不提交偏移量，下次会重新消费这条消息
-            // 注意：需要实现重试机制或死信队列，避免无限重试
-        }
+    public void consumeSimpleMessage(ConsumerRecord<String, String> record, Consumer<?, ?> consumer) {
+        log.info("【基础消费者】收到消息 - Topic: {}, Partition: {}, Offset: {}, Key: {}, Value: {}", 
+            record.topic(),
+            record.partition(),
+            record.offset(),
+            record.key(),
+            record.value());
+        
+        // 处理失败时分发器会重试，重试用尽后记录错误并视为完成，避免无限重试
+        keyOrderedDispatcher.dispatch(record, consumer, this::processMessage);
     }
     
     /**
@@ -73,7 +68,7 @@ public class BasicConsumerListener {
             // 读取Header信息
             for (Header header : record.headers()) {
                 String key = header.key();
-                String value = new String(header.value(), StandardCharsets.UTF_8);
+                String value = HeaderUtils.toDisplayString(header);
                 log.info("【Header消费者】Header - {}: {}", key, value);
                 
                 // 可以根据Header做特殊处理
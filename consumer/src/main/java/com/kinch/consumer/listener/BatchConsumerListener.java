@@ -1,13 +1,21 @@
 package com.kinch.consumer.listener;
 
 import com.kinch.common.constant.KafkaConstants;
+import com.kinch.consumer.batch.AdaptiveBatchSizer;
+import com.kinch.consumer.batch.BisectingBatchProcessor;
+import com.kinch.consumer.batch.BisectingBatchProcessor.Failure;
+import com.kinch.consumer.batch.BisectingBatchProcessor.Result;
+import com.kinch.consumer.dlq.DeadLetterPublisher;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 批量消费监听器
@@ -17,14 +25,30 @@ import java.util.List;
  * 2. 适合需要批量处理的场景，如批量入库
  * 3. 需要注意内存占用和处理时间
  * 4. 批量消费失败的处理策略更复杂
+ * 5. 批量处理失败时二分定位失败的消息，O(log n)次调用即可隔离，而不是逐条重试整个批次
+ * 6. 每批处理的条数根据单条处理耗时自适应调整，使每批耗时接近目标值，远小于max.poll.interval.ms
  */
 @Slf4j
 @Component
 public class BatchConsumerListener {
     
+    private static final Duration DLQ_RETRY_BACKOFF = Duration.ofSeconds(1);
+    
+    @Autowired
+    private AdaptiveBatchSizer adaptiveBatchSizer;
+    
+    @Autowired
+    private BisectingBatchProcessor bisectingBatchProcessor;
+    
+    @Autowired
+    private DeadLetterPublisher deadLetterPublisher;
+    
     /**
      * 批量消费消息
      * 
+     * 每次最多处理AdaptiveBatchSizer给出的条数，超出部分通过nack(index)退回，
+     * 已处理部分的偏移量随之提交，剩余消息下次poll重新拉取
+     * 
      * @param records 一批消息记录
      * @param ack 确认对象
      */
@@ -34,32 +58,39 @@ public class BatchConsumerListener {
         containerFactory = "batchKafkaListenerContainerFactory"
     )
     public void consumeBatch(List<ConsumerRecord<String, String>> records, Acknowledgment ack) {
+        int limit = Math.min(records.size(), adaptiveBatchSizer.batchSize());
+        List<ConsumerRecord<String, String>> batch = records.subList(0, limit);
+        long startTime = System.nanoTime();
         try {
-            log.info("【批量消费者】收到批量消息 - 数量: {}", records.size());
+            log.info("【批量消费者】收到批量消息 - 数量: {}, 本批处理: {}", records.size(), batch.size());
             
             // 记录批次的第一条和最后一条消息的偏移量
-            if (!records.isEmpty()) {
-                ConsumerRecord<String, String> first = records.get(0);
-                ConsumerRecord<String, String> last = records.get(records.size() - 1);
+            if (!batch.isEmpty()) {
+                ConsumerRecord<String, String> first = batch.get(0);
+                ConsumerRecord<String, String> last = batch.get(batch.size() - 1);
                 
                 log.info("【批量消费者】批次范围 - Topic: {}, Partition: {}, Offset: {} ~ {}", 
                     first.topic(), first.partition(), first.offset(), last.offset());
             }
             
-            // 批量处理消息
-            processBatch(records);
+            // 批量处理消息，失败时二分定位失败的消息
+            Result<ConsumerRecord<String, String>> result = bisectingBatchProcessor.process(batch, this::processBatch);
+            
+            // 失败消息发送到死信队列；发送失败时只提交它之前的前缀
+            int committable = result.succeeded() ? limit : handleBatchFailure(result, limit);
             
-            // 批量提交偏移量
-            // 注意：批量消费时，要么全部成功，要么全部失败
-            ack.acknowledge();
-            log.info("【批量消费者】批量处理成功，偏移量已提交");
+            if (committable < records.size()) {
+                // 提交前committable条的偏移量，剩余消息下次poll重新拉取
+                ack.nack(committable, committable < limit ? DLQ_RETRY_BACKOFF : Duration.ZERO);
+                log.info("【批量消费者】提交前 {} 条，退回 {} 条", committable, records.size() - committable);
+            } else {
+                // 批量提交偏移量
+                ack.acknowledge();
+                log.info("【批量消费者】批量处理完成，偏移量已提交");
+            }
             
-        } catch (Exception e) {
-            log.error("【批量消费者】批量处理失败", e);
-            // 批量处理失败时的策略：
-            // 1. 不提交偏移量，下次重新消费整个批次
-            // 2. 或者转为单条处理，找出失败的消息
-            handleBatchFailure(records, e);
+        } finally {
+            adaptiveBatchSizer.record(batch.size(), totalBytes(batch), System.nanoTime() - startTime, records.size());
         }
     }
     
@@ -69,7 +100,7 @@ public class BatchConsumerListener {
     private void processBatch(List<ConsumerRecord<String, String>> records) {
         log.info("【批量处理】开始处理 {} 条消息", records.size());
         
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
         
         // 示例1：批量入库
         // batchInsertToDatabase(records);
@@ -83,57 +114,59 @@ public class BatchConsumerListener {
                 record.offset(), record.key(), record.value());
         }
         
-        long endTime = System.currentTimeMillis();
+        long elapsedNanos = Math.max(System.nanoTime() - startTime, 1);
         log.info("【批量处理】完成，耗时: {} ms, 吞吐量: {} msg/s", 
-            (endTime - startTime),
-            records.size() * 1000.0 / (endTime - startTime));
+            TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+            Math.round(records.size() * 1_000_000_000.0 / elapsedNanos));
     }
     
-    /**
-     * 批量处理失败的处理策略
-     */
-    private void handleBatchFailure(List<ConsumerRecord<String, String>> records, Exception e) {
-        log.error("【批量处理失败】开始处理失败批次，尝试单条处理");
-        
-        // 策略1：转为单条处理，找出失败的消息
-        int successCount = 0;
-        int failureCount = 0;
-        
+    private static long totalBytes(List<ConsumerRecord<String, String>> records) {
+        long bytes = 0;
         for (ConsumerRecord<String, String> record : records) {
-            try {
-                // 尝试单独处理每条消息
-                processSingleRecord(record);
-                successCount++;
-            } catch (Exception ex) {
-                failureCount++;
-                log.error("【批量处理失败】单条处理失败 - Offset: {}, Key: {}", 
-                    record.offset(), record.key(), ex);
-                
-                // 将失败的消息发送到死信队列
-                sendToDeadLetterQueue(record, ex);
-            }
+            bytes += Math.max(record.serializedKeySize(), 0) + Math.max(record.serializedValueSize(), 0);
         }
-        
-        log.info("【批量处理失败】单条处理完成 - 成功: {}, 失败: {}", successCount, failureCount);
+        return bytes;
     }
     
     /**
-     * 单条消息处理
+     * 批量处理失败的处理策略
+     * 二分隔离出的失败消息依次发送到死信队列，其余消息已经处理成功
+     * 
+     * @return 可以提交的前缀长度：全部发送成功时为批次大小，否则为第一条发送失败的消息下标
      */
-    private void processSingleRecord(ConsumerRecord<String, String> record) {
-        // 实际的业务处理逻辑
-        log.debug("【单条处理】处理消息: {}", record.value());
+    private int handleBatchFailure(Result<ConsumerRecord<String, String>> result, int batchSize) {
+        log.error("【批量处理失败】{} 次调用隔离出 {} 条失败消息", result.attempts(), result.failures().size());
+        
+        for (Failure<ConsumerRecord<String, String>> failure : result.failures()) {
+            ConsumerRecord<String, String> record = failure.item();
+            log.error("【批量处理失败】消息处理失败 - Offset: {}, Key: {}", 
+                record.offset(), record.key(), failure.exception());
+            
+            if (!sendToDeadLetterQueue(record, failure.exception())) {
+                return failure.index();
+            }
+        }
+        return batchSize;
     }
     
     /**
-     * 发送到死信队列
+     * 发送到死信队列，Header中记录原始位置和异常信息
+     * 
+     * @return 是否发送成功
      */
-    private void sendToDeadLetterQueue(ConsumerRecord<String, String> record, Exception e) {
+    private boolean sendToDeadLetterQueue(ConsumerRecord<String, String> record, Exception e) {
         log.warn("【死信队列】发送失败消息 - Topic: {}, Offset: {}, Error: {}", 
             record.topic(), record.offset(), e.getMessage());
         
-        // 实际应该使用KafkaTemplate发送到DLQ
-        // kafkaTemplate.send(KafkaConstants.TOPIC_DLQ, record.key(), record.value());
+        try {
+            deadLetterPublisher.handle(record, e);
+            return true;
+        } catch (Exception ex) {
+            log.error("【死信队列】发送失败，不提交该消息的偏移量 - Offset: {}", record.offset(), ex);
+            if (ex instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
     }
 }
-
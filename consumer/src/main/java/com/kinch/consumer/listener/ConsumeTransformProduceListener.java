@@ -0,0 +1,83 @@
+package com.kinch.consumer.listener;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.kinch.common.constant.KafkaConstants;
+import com.kinch.consumer.pipeline.ExactlyOnceBatchPipeline;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 消费-转换-生产监听器（精确一次）
+ *
+ * 核心知识点：
+ * 1. 以read_committed读取订单Topic，只处理已提交事务中的订单
+ * 2. 每次poll的整批订单在一个事务中转换并写入order-processed-topic，
+ *    同一个事务通过sendOffsetsToTransaction提交消费偏移量，不再调用ack
+ * 3. 事务中止时异常抛给容器，容器的错误处理器按固定间隔无限重试本批消息，不跳过、不确认；
+ *    重平衡时回退到最后一次随事务提交的偏移量重新拉取。中止事务里的输出对read_committed不可见，输出不会重复
+ * 4. 不是合法JSON的订单在同一个事务中写入死信队列，避免毒消息导致整批反复重试
+ */
+@Slf4j
+@Component
+public class ConsumeTransformProduceListener {
+
+    private final ExactlyOnceBatchPipeline<String, String, String, String> pipeline;
+
+    public ConsumeTransformProduceListener(@Qualifier("pipelineKafkaTemplate") KafkaTemplate<String, String> pipelineKafkaTemplate) {
+        this.pipeline = new ExactlyOnceBatchPipeline<>(pipelineKafkaTemplate, ConsumeTransformProduceListener::transform);
+    }
+
+    /**
+     * 批量消费订单，转换结果与偏移量在同一个事务中提交
+     *
+     * @param records 一次poll拉取的订单
+     * @param consumer 当前消费者，用于获取组元数据
+     */
+    @KafkaListener(
+        topics = KafkaConstants.TOPIC_ORDER,
+        groupId = KafkaConstants.GROUP_EOS_PIPELINE,
+        containerFactory = "transactionalKafkaListenerContainerFactory",
+        batch = "true"
+    )
+    public void consume(List<ConsumerRecord<String, String>> records, Consumer<?, ?> consumer) {
+        long startTime = System.currentTimeMillis();
+        int outputs = pipeline.process(records, consumer.groupMetadata());
+        log.info("【消费-转换-生产】事务提交成功 - 输入: {}, 输出: {}, 耗时: {} ms",
+            records.size(), outputs, System.currentTimeMillis() - startTime);
+    }
+
+    public Map<String, Object> metrics() {
+        return pipeline.snapshot();
+    }
+
+    /**
+     * 订单转换：标记为已处理并按orderId重新分区，非法消息转入死信队列
+     */
+    static List<ProducerRecord<String, String>> transform(ConsumerRecord<String, String> record) {
+        JSONObject order = null;
+        try {
+            order = JSON.parseObject(record.value());
+        } catch (RuntimeException e) {
+            log.warn("【消费-转换-生产】非法订单消息转入死信队列 - Partition: {}, Offset: {}",
+                record.partition(), record.offset());
+        }
+        if (order == null) {
+            return List.of(new ProducerRecord<>(KafkaConstants.TOPIC_DLQ, record.key(), record.value()));
+        }
+
+        order.put("status", "PROCESSED");
+        order.put("processedAt", System.currentTimeMillis());
+        String key = order.getString("orderId") != null ? order.getString("orderId") : record.key();
+        return List.of(new ProducerRecord<>(KafkaConstants.TOPIC_ORDER_PROCESSED, key, order.toJSONString()));
+    }
+}
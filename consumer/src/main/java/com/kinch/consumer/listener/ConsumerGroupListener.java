@@ -1,8 +1,11 @@
 package com.kinch.consumer.listener;
 
 import com.kinch.common.constant.KafkaConstants;
+import com.kinch.consumer.parallel.KeyOrderedDispatcher;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
@@ -26,33 +29,36 @@ import org.springframework.stereotype.Component;
 @Component
 public class ConsumerGroupListener {
     
+    @Autowired
+    private KeyOrderedDispatcher keyOrderedDispatcher;
+    
     /**
      * 消费者组1 - 实例1
      * 说明：启动多个实例时，它们会自动负载均衡
+     * 
+     * 并行消费：每条消息处理耗时100ms，逐条处理时每个分区最多10条/秒；
+     * 交给KeyOrderedDispatcher后同一Key仍然串行，不同Key并行处理，只提交连续完成的偏移量
      */
     @KafkaListener(
         topics = KafkaConstants.TOPIC_PARTITION_TEST,
         groupId = KafkaConstants.GROUP_MULTIPLE_1,
-        containerFactory = "kafkaListenerContainerFactory",
+        containerFactory = "parallelKafkaListenerContainerFactory",
         concurrency = "3" // 3个并发线程，相当于3个消费者
     )
-    public void consumeGroup1(ConsumerRecord<String, String> record, Acknowledgment ack) {
-        try {
-            log.info("【消费者组1】收到消息 - Thread: {}, Partition: {}, Offset: {}, Key: {}, Value: {}", 
-                Thread.currentThread().getName(),
-                record.partition(),
-                record.offset(),
-                record.key(),
-                record.value());
-            
-            // 模拟处理耗时
-            Thread.sleep(100);
-            
-            ack.acknowledge();
-            
-        } catch (Exception e) {
-            log.error("【消费者组1】消息处理失败", e);
-        }
+    public void consumeGroup1(ConsumerRecord<String, String> record, Consumer<?, ?> consumer) {
+        keyOrderedDispatcher.dispatch(record, consumer, this::processGroup1);
+    }
+    
+    private void processGroup1(ConsumerRecord<String, String> record) throws InterruptedException {
+        log.info("【消费者组1】收到消息 - Thread: {}, Partition: {}, Offset: {}, Key: {}, Value: {}", 
+            Thread.currentThread(),
+            record.partition(),
+            record.offset(),
+            record.key(),
+            record.value());
+        
+        // 模拟处理耗时
+        Thread.sleep(100);
     }
     
     /**
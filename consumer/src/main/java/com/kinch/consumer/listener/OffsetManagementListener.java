@@ -1,11 +1,13 @@
 package com.kinch.consumer.listener;
 
 import com.kinch.common.constant.KafkaConstants;
+import com.kinch.consumer.offset.CommitCoordinator;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.listener.ConsumerSeekAware;
 import org.springframework.kafka.support.Acknowledgment;
@@ -37,6 +39,9 @@ import java.util.Map;
 @Component
 public class OffsetManagementListener implements ConsumerSeekAware {
     
+    @Autowired
+    private CommitCoordinator commitCoordinator;
+    
     /**
      * 1. 手动提交偏移量 - 同步方式
      * At Least Once语义：先处理，后提交
@@ -72,14 +77,15 @@ public class OffsetManagementListener implements ConsumerSeekAware {
     /**
      * 2. 批量提交偏移量
      * 提高性能，但失败时会重复消费更多消息
+     * 处理完成后交给CommitCoordinator，按条数、字节数或时间任一条件提交，
+     * 偏移量不连续的分区也不会长时间不提交，重复消费的范围有上界
      */
     @KafkaListener(
         topics = KafkaConstants.TOPIC_USER,
         groupId = "batch-commit-group",
-        containerFactory = "kafkaListenerContainerFactory"
+        containerFactory = "batchCommitKafkaListenerContainerFactory"
     )
     public void consumeWithBatchCommit(ConsumerRecord<String, String> record, 
-                                      Acknowledgment ack,
                                       Consumer<?, ?> consumer) {
         try {
             log.info("【批量提交】收到消息 - Partition: {}, Offset: {}", 
@@ -87,15 +93,11 @@ public class OffsetManagementListener implements ConsumerSeekAware {
             
             processMessage(record);
             
-            // 每处理10条消息提交一次
-            if (record.offset() % 10 == 0) {
-                ack.acknowledge();
-                log.info("【批量提交】批量提交偏移量 - Offset: {}", record.offset());
-            }
-            
         } catch (Exception e) {
             log.error("【批量提交】消息处理失败", e);
         }
+        // 与原来一样，失败的消息记录日志后跳过，同样计入提交进度
+        commitCoordinator.processed(record, consumer);
     }
     
     /**
@@ -0,0 +1,230 @@
+package com.kinch.consumer.offset;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 批量提交协调器
+ *
+ * 核心知识点：
+ * 1. 每条消息都提交，会给Group Coordinator带来大量提交请求；按 offset % N 提交，
+ *    在偏移量不连续的分区（日志压缩、事务标记）上可能很久都不提交，重平衡后重复消费大量消息
+ * 2. 协调器记录每个分区已处理的最高位置，满足任一条件就提交一次：
+ *    - 累计消息数达到上限
+ *    - 累计消息字节数达到上限
+ *    - 距离第一条未提交消息超过时间上限
+ *    重复消费的范围因此有明确上界（条数、字节、时间）
+ * 3. 平时使用异步提交，不阻塞消费；失败只记录，下一次提交会带上更新的偏移量
+ * 4. 分区被回收前（包括消费者关闭时离开消费者组）同步提交，保证交接给新消费者的位置是准确的
+ * 5. 容器空闲事件（在消费者线程上发布）触发时间条件检查，流量停止后未提交的进度也会按时提交
+ *
+ * 所有方法都在消费者线程上调用，每个Consumer实例单独维护待提交状态
+ */
+public class CommitCoordinator implements ConsumerAwareRebalanceListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommitCoordinator.class);
+
+    private final int maxRecords;
+
+    private final long maxBytes;
+
+    private final long maxIntervalNanos;
+
+    private final Map<Consumer<?, ?>, PendingCommit> pending = new ConcurrentHashMap<>();
+
+    private final long createdNanos = System.nanoTime();
+
+    private final LongAdder recordCount = new LongAdder();
+
+    private final LongAdder asyncCommitCount = new LongAdder();
+
+    private final LongAdder syncCommitCount = new LongAdder();
+
+    private final LongAdder failedCommitCount = new LongAdder();
+
+    private final LongAdder countTriggered = new LongAdder();
+
+    private final LongAdder bytesTriggered = new LongAdder();
+
+    private final LongAdder timeTriggered = new LongAdder();
+
+    private final LongAdder completedCommits = new LongAdder();
+
+    private final LongAdder totalLatencyNanos = new LongAdder();
+
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    /**
+     * @param maxRecords    累计多少条消息提交一次
+     * @param maxBytes      累计多少字节（Key + Value序列化大小）提交一次
+     * @param maxIntervalMs 第一条未提交消息最多等待多久提交
+     */
+    public CommitCoordinator(int maxRecords, long maxBytes, long maxIntervalMs) {
+        if (maxRecords < 1 || maxBytes < 1 || maxIntervalMs < 1) {
+            throw new IllegalArgumentException("提交条件必须大于0");
+        }
+        this.maxRecords = maxRecords;
+        this.maxBytes = maxBytes;
+        this.maxIntervalNanos = TimeUnit.MILLISECONDS.toNanos(maxIntervalMs);
+    }
+
+    /**
+     * 记录一条消息已经处理完成，满足提交条件时异步提交
+     */
+    public void processed(ConsumerRecord<?, ?> record, Consumer<?, ?> consumer) {
+        PendingCommit batch = pending.computeIfAbsent(consumer, c -> new PendingCommit());
+        batch.offsets.put(new TopicPartition(record.topic(), record.partition()),
+            new OffsetAndMetadata(record.offset() + 1));
+        if (batch.records == 0) {
+            batch.firstRecordNanos = System.nanoTime();
+        }
+        batch.records++;
+        batch.bytes += Math.max(record.serializedKeySize(), 0) + Math.max(record.serializedValueSize(), 0);
+        recordCount.increment();
+
+        if (batch.records >= maxRecords) {
+            countTriggered.increment();
+            commitAsync(consumer, batch);
+        } else if (batch.bytes >= maxBytes) {
+            bytesTriggered.increment();
+            commitAsync(consumer, batch);
+        } else {
+            maybeCommitOnTime(consumer, batch);
+        }
+    }
+
+    /**
+     * 只检查时间条件，用于没有新消息时推进提交
+     */
+    public void maybeCommit(Consumer<?, ?> consumer) {
+        PendingCommit batch = pending.get(consumer);
+        if (batch != null) {
+            maybeCommitOnTime(consumer, batch);
+        }
+    }
+
+    @EventListener
+    public void onIdle(ListenerContainerIdleEvent event) {
+        if (event.getConsumer() != null) {
+            maybeCommit(event.getConsumer());
+        }
+    }
+
+    /**
+     * 分区被回收前同步提交；消费者关闭时离开消费者组也会回调这里
+     */
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> revoked) {
+        PendingCommit batch = pending.remove(consumer);
+        if (batch == null || batch.offsets.isEmpty()) {
+            return;
+        }
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>(batch.offsets);
+        long start = System.nanoTime();
+        try {
+            syncCommitCount.increment();
+            consumer.commitSync(offsets);
+            recordLatency(System.nanoTime() - start);
+            logger.info("分区回收前同步提交偏移量: {}", offsets);
+        } catch (RuntimeException e) {
+            failedCommitCount.increment();
+            logger.warn("分区回收前同步提交失败，新的消费者会重复处理部分消息: {}", offsets, e);
+        }
+    }
+
+    /**
+     * 分区丢失时已经不能提交，丢弃待提交状态
+     */
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> lost) {
+        PendingCommit batch = pending.get(consumer);
+        if (batch != null) {
+            lost.forEach(batch.offsets::remove);
+        }
+    }
+
+    private void maybeCommitOnTime(Consumer<?, ?> consumer, PendingCommit batch) {
+        if (batch.records > 0 && System.nanoTime() - batch.firstRecordNanos >= maxIntervalNanos) {
+            timeTriggered.increment();
+            commitAsync(consumer, batch);
+        }
+    }
+
+    private void commitAsync(Consumer<?, ?> consumer, PendingCommit batch) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>(batch.offsets);
+        batch.offsets.clear();
+        batch.records = 0;
+        batch.bytes = 0;
+
+        asyncCommitCount.increment();
+        long start = System.nanoTime();
+        consumer.commitAsync(offsets, (committed, e) -> {
+            if (e != null) {
+                failedCommitCount.increment();
+                logger.warn("异步提交偏移量失败，等待下一次提交: {}", committed, e);
+            } else {
+                recordLatency(System.nanoTime() - start);
+            }
+        });
+    }
+
+    private void recordLatency(long nanos) {
+        completedCommits.increment();
+        totalLatencyNanos.add(nanos);
+        maxLatencyNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public Map<String, Object> snapshot() {
+        long records = recordCount.sum();
+        long commits = asyncCommitCount.sum() + syncCommitCount.sum();
+        long completed = completedCommits.sum();
+        double uptimeSeconds = Math.max((System.nanoTime() - createdNanos) / 1_000_000_000.0, 1e-3);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("maxRecords", maxRecords);
+        result.put("maxBytes", maxBytes);
+        result.put("maxIntervalMs", TimeUnit.NANOSECONDS.toMillis(maxIntervalNanos));
+        result.put("recordCount", records);
+        result.put("asyncCommitCount", asyncCommitCount.sum());
+        result.put("syncCommitCount", syncCommitCount.sum());
+        result.put("failedCommitCount", failedCommitCount.sum());
+        result.put("countTriggered", countTriggered.sum());
+        result.put("bytesTriggered", bytesTriggered.sum());
+        result.put("timeTriggered", timeTriggered.sum());
+        result.put("commitsPerSecond", Math.round(commits / uptimeSeconds * 100) / 100.0);
+        result.put("recordsPerCommit", commits == 0 ? 0 : records / commits);
+        result.put("avgCommitLatencyMs", completed == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalLatencyNanos.sum() / completed));
+        result.put("maxCommitLatencyMs", TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get()));
+        return result;
+    }
+
+    /**
+     * 一个Consumer的待提交状态，只在该Consumer的线程上读写
+     */
+    private static class PendingCommit {
+
+        private final Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+
+        private int records;
+
+        private long bytes;
+
+        private long firstRecordNanos;
+    }
+}
@@ -0,0 +1,260 @@
+package com.kinch.consumer.offset;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * 单个分区的偏移量完成情况跟踪器
+ *
+ * 核心知识点：
+ * 1. 并行/异步消费时消息乱序完成，提交的偏移量只能是"连续完成的最高位置"（水位线），
+ *    否则重启后会跳过还没处理完的消息
+ * 2. 用位图记录未完成的偏移量：1位对应1个偏移量，100万条在途消息只占约125KB；
+ *    位图是按64位分组的环形数组，登记和完成都是O(1)
+ * 3. 水位线 = 最低的未完成偏移量；低位的全零分组会被回收，计算水位线均摊O(1)
+ * 4. 没有登记过的偏移量（压缩、事务标记造成的空洞）视为已完成，不会卡住水位线
+ * 5. 水位线之后已完成的偏移量可以编码进提交的metadata（游程编码），
+ *    重启后从metadata恢复，只重新处理真正没完成的消息
+ *
+ * 同一个分区的偏移量按递增顺序登记（poll返回的顺序），完成可以来自任意线程
+ */
+public class OffsetCompletionTracker {
+
+    private static final int INITIAL_WORDS = 16;
+
+    private static final String METADATA_PREFIX = "p1:";
+
+    // 环形数组，words[head]对应偏移量 [baseWord * 64, baseWord * 64 + 63]，位为1表示已登记未完成
+    private long[] words = new long[INITIAL_WORDS];
+
+    private int head;
+
+    private long baseWord;
+
+    // 起始位置（上次提交的偏移量），之前的消息都已完成
+    private final long startOffset;
+
+    private long highestRegistered;
+
+    private long pendingCount;
+
+    public OffsetCompletionTracker(long startOffset) {
+        this.startOffset = startOffset;
+        this.baseWord = startOffset >>> 6;
+        this.highestRegistered = startOffset - 1;
+    }
+
+    /**
+     * 从提交的偏移量和metadata恢复：metadata中记录为已完成的消息不再处理
+     *
+     * @param metadata {@link #encodeIncomplete(int)}的结果，为空或无法解析时从committedOffset开始全部处理
+     */
+    public static OffsetCompletionTracker restore(long committedOffset, String metadata) {
+        OffsetCompletionTracker tracker = new OffsetCompletionTracker(committedOffset);
+        if (metadata == null || !metadata.startsWith(METADATA_PREFIX)) {
+            return tracker;
+        }
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(metadata.substring(METADATA_PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            return tracker;
+        }
+
+        // 游程交替表示 未完成、已完成、未完成...，第一段从committedOffset开始
+        long offset = committedOffset;
+        boolean incomplete = true;
+        int[] position = {0};
+        while (position[0] < bytes.length) {
+            long run = readVarLong(bytes, position);
+            if (run < 0) {
+                return new OffsetCompletionTracker(committedOffset);
+            }
+            if (incomplete) {
+                for (long i = 0; i < run; i++) {
+                    tracker.setPending(offset + i);
+                }
+            }
+            offset += run;
+            incomplete = !incomplete;
+        }
+        tracker.highestRegistered = offset - 1;
+        return tracker;
+    }
+
+    /**
+     * 登记一条即将处理的消息
+     *
+     * @return false表示这条消息已经完成过（低于水位线，或恢复的metadata中记录为已完成），应跳过
+     */
+    public synchronized boolean register(long offset) {
+        if (offset < startOffset || offset < (baseWord << 6)) {
+            return false;
+        }
+        if (offset <= highestRegistered) {
+            return isPending(offset);
+        }
+        setPending(offset);
+        highestRegistered = offset;
+        return true;
+    }
+
+    /**
+     * 标记一条消息处理完成
+     */
+    public synchronized void complete(long offset) {
+        if (offset < (baseWord << 6) || offset > highestRegistered) {
+            return;
+        }
+        int index = index(offset >>> 6);
+        long mask = 1L << (offset & 63);
+        if ((words[index] & mask) != 0) {
+            words[index] &= ~mask;
+            pendingCount--;
+        }
+    }
+
+    /**
+     * 可以提交的偏移量：最低的未完成偏移量，全部完成时为最高登记偏移量 + 1
+     */
+    public synchronized long watermark() {
+        if (highestRegistered < startOffset) {
+            return startOffset;
+        }
+        long lastWord = highestRegistered >>> 6;
+        // 回收已经全部完成且不会再登记的分组
+        while (baseWord < lastWord && words[head] == 0) {
+            head = (head + 1) & (words.length - 1);
+            baseWord++;
+        }
+        for (long word = baseWord; word <= lastWord; word++) {
+            long bits = words[index(word)];
+            if (bits != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        return highestRegistered + 1;
+    }
+
+    public synchronized long pendingCount() {
+        return pendingCount;
+    }
+
+    /**
+     * 把水位线之后的完成情况编码为提交metadata
+     * 超过maxLength时只编码前面的部分，后面的消息重启后重新处理（仍然是至少一次）
+     * 游程按64位分组查找边界，编码长度达到上限后立即停止，不会逐位扫描到最高登记偏移量
+     *
+     * @return 水位线之后没有已完成的消息时返回空字符串
+     */
+    public synchronized String encodeIncomplete(int maxLength) {
+        long from = watermark();
+        if (from > highestRegistered) {
+            return "";
+        }
+        // Base64每3字节变为4个字符
+        int maxBytes = (maxLength - METADATA_PREFIX.length()) / 4 * 3;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // 只保留到最后一个"已完成"游程为止，结尾的未完成游程恢复时本来就会重新处理
+        int usable = 0;
+        boolean incomplete = true;
+        long runStart = from;
+        while (runStart <= highestRegistered && out.size() < maxBytes) {
+            long runEnd = runEnd(runStart, incomplete);
+            writeVarLong(out, runEnd - runStart);
+            if (out.size() > maxBytes) {
+                break;
+            }
+            if (!incomplete) {
+                usable = out.size();
+            }
+            runStart = runEnd;
+            incomplete = !incomplete;
+        }
+        if (usable == 0) {
+            return "";
+        }
+        return METADATA_PREFIX + Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(Arrays.copyOf(out.toByteArray(), usable));
+    }
+
+    /**
+     * 从from开始、未完成状态等于pending的游程在哪里结束
+     * 按64位分组扫描：找未完成游程的结尾就是找第一个0位，先取反再数尾部的0
+     *
+     * @return 第一个状态不同的偏移量，直到最高登记偏移量都相同时为highestRegistered + 1
+     */
+    private long runEnd(long from, boolean pending) {
+        long fromWord = from >>> 6;
+        long lastWord = highestRegistered >>> 6;
+        for (long word = fromWord; word <= lastWord; word++) {
+            long bits = words[index(word)];
+            if (pending) {
+                bits = ~bits;
+            }
+            if (word == fromWord) {
+                bits &= -1L << (from & 63);
+            }
+            if (bits != 0) {
+                return Math.min((word << 6) + Long.numberOfTrailingZeros(bits), highestRegistered + 1);
+            }
+        }
+        return highestRegistered + 1;
+    }
+
+    private boolean isPending(long offset) {
+        return (words[index(offset >>> 6)] & (1L << (offset & 63))) != 0;
+    }
+
+    private void setPending(long offset) {
+        ensureCapacity(offset >>> 6);
+        int index = index(offset >>> 6);
+        long mask = 1L << (offset & 63);
+        if ((words[index] & mask) == 0) {
+            words[index] |= mask;
+            pendingCount++;
+        }
+    }
+
+    private int index(long word) {
+        return (int) ((head + (word - baseWord)) & (words.length - 1));
+    }
+
+    private void ensureCapacity(long word) {
+        long needed = word - baseWord + 1;
+        if (needed <= words.length) {
+            return;
+        }
+        int capacity = words.length;
+        while (capacity < needed) {
+            capacity <<= 1;
+        }
+        long[] grown = new long[capacity];
+        for (int i = 0; i < words.length; i++) {
+            grown[i] = words[(head + i) & (words.length - 1)];
+        }
+        words = grown;
+        head = 0;
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(byte[] bytes, int[] position) {
+        long value = 0;
+        for (int shift = 0; shift < 64 && position[0] < bytes.length; shift += 7) {
+            byte b = bytes[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        return -1;
+    }
+}
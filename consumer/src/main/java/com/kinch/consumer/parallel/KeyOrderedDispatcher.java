@@ -0,0 +1,481 @@
+package com.kinch.consumer.parallel;
+
+import com.kinch.consumer.offset.OffsetCompletionTracker;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按Key保序的并行消费分发器
+ *
+ * 核心知识点：
+ * 1. 监听器在容器线程上逐条处理时，单个分区的吞吐量受限于处理耗时（处理100ms，每个分区最多10条/秒）
+ * 2. 分发器把消息交给工作线程（默认虚拟线程）处理，同一个Key的消息在同一条"通道"上按到达顺序串行执行，
+ *    不同Key的消息并行执行，一个分区可以同时利用多个核
+ * 3. 每个分区用{@link OffsetCompletionTracker}记录乱序完成的偏移量，只提交连续完成的最高位置（水位线），
+ *    水位线之后已完成的偏移量编码进提交metadata，重启或重平衡后跳过这些消息，保持至少一次语义
+ * 4. 提交只在消费者线程上进行（分发时、容器空闲时、分区被回收前），工作线程不接触Consumer；
+ *    分区被回收前等待该分区的在途消息处理完，再同步提交
+ * 5. 在途消息数超过上限时，分发会阻塞消费者线程（期间继续提交已完成的进度）
+ * 6. 处理失败时按次数重试，重试用尽后交给死信处理（发送到死信队列），成功后才视为完成，
+ *    避免一条消息卡住整个分区的提交，也不会悄悄丢掉消息；死信发送失败时按指数退避一直重试，
+ *    直到成功或分区被回收（交给新的消费者重新投递）
+ * 7. 被中断（关闭、外部中断）时不标记完成，消费者线程在下次提交时暂停该分区并记录错误，
+ *    不再拉取新消息让未提交的范围继续增长；偏移量停在这条消息之前，之后完成的消息记录在提交metadata中，
+ *    重平衡或重启后只重新投递这条消息（快照中该分区的stalled为true）
+ *
+ * 没有Key的消息不要求顺序，直接提交给工作线程
+ */
+public class KeyOrderedDispatcher implements ConsumerAwareRebalanceListener, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(KeyOrderedDispatcher.class);
+
+    private static final long RETRY_BACKOFF_MS = 100;
+
+    private static final long MAX_DEAD_LETTER_BACKOFF_MS = 5000;
+
+    private static final long COMMIT_INTERVAL_MS = 1000;
+
+    private static final long REVOKE_DRAIN_TIMEOUT_MS = 10_000;
+
+    // Broker默认offset.metadata.max.bytes=4096
+    private static final int MAX_METADATA_LENGTH = 4000;
+
+    private final ExecutorService executor;
+
+    private final int maxAttempts;
+
+    private final DeadLetterHandler deadLetterHandler;
+
+    private final Semaphore inFlightPermits;
+
+    // 每个Key当前队尾的任务，新消息接在队尾之后执行
+    private final Map<LaneKey, CompletableFuture<Void>> lanes = new ConcurrentHashMap<>();
+
+    // 不同消费者组可能消费同一个分区，按(组, 分区)区分
+    private final Map<GroupPartition, PartitionState> partitions = new ConcurrentHashMap<>();
+
+    // 分发和提交都在消费者线程上，每个消费者线程单独计时
+    private final ThreadLocal<long[]> lastCommitNanos = ThreadLocal.withInitial(() -> new long[]{System.nanoTime()});
+
+    private final LongAdder dispatchedCount = new LongAdder();
+
+    private final LongAdder completedCount = new LongAdder();
+
+    private final LongAdder failedCount = new LongAdder();
+
+    private final LongAdder retryCount = new LongAdder();
+
+    private final LongAdder deadLetterCount = new LongAdder();
+
+    private final LongAdder deadLetterFailedCount = new LongAdder();
+
+    private final LongAdder interruptedCount = new LongAdder();
+
+    private final LongAdder skippedCount = new LongAdder();
+
+    private final LongAdder commitCount = new LongAdder();
+
+    /**
+     * @param executor 工作线程池，由分发器负责关闭
+     * @param maxAttempts 每条消息最多处理几次
+     * @param maxInFlight 所有分区合计的最大在途消息数
+     * @param deadLetterHandler 重试用尽的消息交给它处理，正常返回后才提交该消息
+     */
+    public KeyOrderedDispatcher(ExecutorService executor, int maxAttempts, int maxInFlight,
+                                DeadLetterHandler deadLetterHandler) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("maxAttempts must be positive: " + maxAttempts);
+        }
+        this.executor = executor;
+        this.maxAttempts = maxAttempts;
+        this.inFlightPermits = new Semaphore(maxInFlight);
+        this.deadLetterHandler = deadLetterHandler;
+    }
+
+    /**
+     * 分发一条消息，只能在监听器（消费者线程）中调用
+     *
+     * @param consumer 当前消费者，用于读取和提交偏移量
+     * @return 处理结束（成功、进入死信或放弃）时完成的Future，是否提交偏移量见类注释
+     */
+    public <K, V> CompletableFuture<Void> dispatch(ConsumerRecord<K, V> record, Consumer<?, ?> consumer,
+                                                   RecordHandler<K, V> handler) {
+        String groupId = consumer.groupMetadata().groupId();
+        PartitionState state = partitionState(consumer, groupId,
+            new TopicPartition(record.topic(), record.partition()), record.offset());
+        if (!state.tracker.register(record.offset())) {
+            // 上次运行中已经完成（记录在提交metadata中），不再重复处理
+            skippedCount.increment();
+            return CompletableFuture.completedFuture(null);
+        }
+        acquirePermit(consumer);
+
+        dispatchedCount.increment();
+        state.inFlight.incrementAndGet();
+        Runnable task = () -> {
+            try {
+                if (process(record, handler, state)) {
+                    state.tracker.complete(record.offset());
+                } else {
+                    state.stalled = true;
+                }
+            } finally {
+                state.inFlight.decrementAndGet();
+                inFlightPermits.release();
+            }
+        };
+
+        CompletableFuture<Void> future;
+        if (record.key() == null) {
+            future = CompletableFuture.runAsync(task, executor);
+        } else {
+            LaneKey laneKey = new LaneKey(record.topic(), record.key());
+            CompletableFuture<Void> next = lanes.compute(laneKey, (key, tail) -> tail == null
+                ? CompletableFuture.runAsync(task, executor)
+                : tail.exceptionally(e -> null).thenRunAsync(task, executor));
+            // 队尾执行完且没有新消息接上时移除通道，避免Key数量无限增长
+            next.whenComplete((result, e) -> lanes.remove(laneKey, next));
+            future = next;
+        }
+
+        long[] lastCommit = lastCommitNanos.get();
+        if (System.nanoTime() - lastCommit[0] >= TimeUnit.MILLISECONDS.toNanos(COMMIT_INTERVAL_MS)) {
+            commit(consumer);
+        }
+        return future;
+    }
+
+    /**
+     * 异步提交当前消费者所有分区的水位线，只能在消费者线程上调用
+     */
+    public void commit(Consumer<?, ?> consumer) {
+        lastCommitNanos.get()[0] = System.nanoTime();
+        pauseStalled(consumer);
+        Map<TopicPartition, OffsetAndMetadata> offsets = collectOffsets(consumer, consumer.assignment(), false);
+        if (offsets.isEmpty()) {
+            return;
+        }
+        commitCount.increment();
+        consumer.commitAsync(offsets, (committed, e) -> {
+            if (e != null) {
+                logger.warn("并行消费异步提交失败，下次提交时重试: {}", committed, e);
+                // 让下次提交不被"未变化"跳过
+                committed.keySet().forEach(tp -> {
+                    PartitionState state = partitions.get(new GroupPartition(consumer.groupMetadata().groupId(), tp));
+                    if (state != null) {
+                        state.committed = null;
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 容器空闲时没有消息触发分发，在空闲事件中提交已完成的进度（空闲事件在消费者线程上发布）
+     */
+    @EventListener
+    public void onIdle(ListenerContainerIdleEvent event) {
+        if (event.getConsumer() != null) {
+            commit(event.getConsumer());
+        }
+    }
+
+    /**
+     * 分区被回收前：等待在途消息处理完，同步提交最终进度
+     */
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> revoked) {
+        String groupId = consumer.groupMetadata().groupId();
+        // 先标记回收，正在重试死信发送的消息放弃重试，由新的消费者重新投递
+        revoked.forEach(tp -> markRevoked(new GroupPartition(groupId, tp)));
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(REVOKE_DRAIN_TIMEOUT_MS);
+        for (TopicPartition tp : revoked) {
+            PartitionState state = partitions.get(new GroupPartition(groupId, tp));
+            while (state != null && state.inFlight.get() > 0 && System.nanoTime() < deadline) {
+                if (!sleep(10)) {
+                    break;
+                }
+            }
+        }
+        Map<TopicPartition, OffsetAndMetadata> offsets = collectOffsets(consumer, revoked, true);
+        if (!offsets.isEmpty()) {
+            try {
+                commitCount.increment();
+                consumer.commitSync(offsets);
+            } catch (RuntimeException e) {
+                logger.warn("分区回收前同步提交失败，新的消费者会重复处理部分消息: {}", offsets, e);
+            }
+        }
+        revoked.forEach(tp -> partitions.remove(new GroupPartition(groupId, tp)));
+    }
+
+    /**
+     * 分区丢失（会话超时）时已经不能提交，直接丢弃进度
+     */
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> lost) {
+        String groupId = consumer.groupMetadata().groupId();
+        lost.forEach(tp -> markRevoked(new GroupPartition(groupId, tp)));
+        lost.forEach(tp -> partitions.remove(new GroupPartition(groupId, tp)));
+    }
+
+    private void markRevoked(GroupPartition key) {
+        PartitionState state = partitions.get(key);
+        if (state != null) {
+            state.revoked = true;
+        }
+    }
+
+    /**
+     * 有消息被中断的分区暂停拉取，只能在消费者线程上调用；分区被回收时KafkaConsumer会清除暂停状态
+     */
+    private void pauseStalled(Consumer<?, ?> consumer) {
+        String groupId = consumer.groupMetadata().groupId();
+        for (TopicPartition tp : consumer.assignment()) {
+            PartitionState state = partitions.get(new GroupPartition(groupId, tp));
+            if (state != null && state.stalled && !state.paused) {
+                consumer.pause(Set.of(tp));
+                state.paused = true;
+                logger.error("分区{}有消息处理被中断，偏移量停在{}，暂停拉取该分区，重平衡或重启后从这里重新投递",
+                    tp, state.tracker.watermark());
+            }
+        }
+    }
+
+    private Map<TopicPartition, OffsetAndMetadata> collectOffsets(Consumer<?, ?> consumer,
+                                                                   Collection<TopicPartition> topicPartitions,
+                                                                   boolean force) {
+        String groupId = consumer.groupMetadata().groupId();
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (TopicPartition tp : topicPartitions) {
+            PartitionState state = partitions.get(new GroupPartition(groupId, tp));
+            if (state == null) {
+                continue;
+            }
+            OffsetAndMetadata offset = new OffsetAndMetadata(state.tracker.watermark(),
+                state.tracker.encodeIncomplete(MAX_METADATA_LENGTH));
+            if (force || !offset.equals(state.committed)) {
+                offsets.put(tp, offset);
+                state.committed = offset;
+            }
+        }
+        return offsets;
+    }
+
+    /**
+     * 首次见到分区时从已提交的偏移量和metadata恢复完成情况，没有提交记录时从第一条收到的消息开始
+     */
+    private PartitionState partitionState(Consumer<?, ?> consumer, String groupId, TopicPartition tp,
+                                          long firstOffset) {
+        GroupPartition key = new GroupPartition(groupId, tp);
+        PartitionState state = partitions.get(key);
+        if (state != null) {
+            return state;
+        }
+        OffsetAndMetadata committed = consumer.committed(Set.of(tp)).get(tp);
+        OffsetCompletionTracker tracker = committed == null
+            ? new OffsetCompletionTracker(firstOffset)
+            : OffsetCompletionTracker.restore(committed.offset(), committed.metadata());
+        state = new PartitionState(tracker);
+        state.committed = committed;
+        partitions.put(key, state);
+        return state;
+    }
+
+    private void acquirePermit(Consumer<?, ?> consumer) {
+        try {
+            while (!inFlightPermits.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                // 等待期间继续提交已完成的进度
+                commit(consumer);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for in-flight capacity", e);
+        }
+    }
+
+    /**
+     * @return 是否可以提交该消息：处理成功，或重试用尽后死信处理成功
+     */
+    private <K, V> boolean process(ConsumerRecord<K, V> record, RecordHandler<K, V> handler, PartitionState state) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                handler.handle(record);
+                completedCount.increment();
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return interrupted(record);
+            } catch (Exception e) {
+                if (attempt >= maxAttempts) {
+                    failedCount.increment();
+                    logger.error("并行消费处理失败，重试{}次后发送到死信队列 - Topic: {}, Partition: {}, Offset: {}, Key: {}",
+                        maxAttempts, record.topic(), record.partition(), record.offset(), record.key(), e);
+                    return deadLetter(record, e, state);
+                }
+                retryCount.increment();
+                if (!sleep(RETRY_BACKOFF_MS * attempt)) {
+                    return interrupted(record);
+                }
+            }
+        }
+    }
+
+    /**
+     * 死信发送失败时按指数退避重试，直到成功、分区被回收或线程被中断
+     *
+     * @return 是否发送成功
+     */
+    private boolean deadLetter(ConsumerRecord<?, ?> record, Exception cause, PartitionState state) {
+        long backoffMs = RETRY_BACKOFF_MS;
+        while (true) {
+            try {
+                deadLetterHandler.handle(record, cause);
+                deadLetterCount.increment();
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                deadLetterFailedCount.increment();
+                logger.error("死信发送失败，{}ms后重试 - Topic: {}, Partition: {}, Offset: {}",
+                    backoffMs, record.topic(), record.partition(), record.offset(), e);
+                if (!state.revoked && sleep(backoffMs)) {
+                    backoffMs = Math.min(backoffMs * 2, MAX_DEAD_LETTER_BACKOFF_MS);
+                    continue;
+                }
+            }
+            if (state.revoked) {
+                logger.warn("分区已被回收，停止重试死信发送，由新的消费者重新投递 - Topic: {}, Partition: {}, Offset: {}",
+                    record.topic(), record.partition(), record.offset());
+            } else {
+                logger.warn("死信发送被中断，不提交该消息 - Topic: {}, Partition: {}, Offset: {}",
+                    record.topic(), record.partition(), record.offset());
+            }
+            return false;
+        }
+    }
+
+    private boolean interrupted(ConsumerRecord<?, ?> record) {
+        interruptedCount.increment();
+        logger.warn("并行消费处理被中断，不提交该消息 - Topic: {}, Partition: {}, Offset: {}",
+            record.topic(), record.partition(), record.offset());
+        return false;
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        long dispatched = dispatchedCount.sum();
+        long completed = completedCount.sum();
+        long failed = failedCount.sum();
+        long interrupted = interruptedCount.sum();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("dispatchedCount", dispatched);
+        result.put("completedCount", completed);
+        result.put("failedCount", failed);
+        result.put("retryCount", retryCount.sum());
+        result.put("deadLetterCount", deadLetterCount.sum());
+        result.put("deadLetterFailedCount", deadLetterFailedCount.sum());
+        result.put("interruptedCount", interrupted);
+        result.put("skippedCount", skippedCount.sum());
+        result.put("commitCount", commitCount.sum());
+        result.put("inFlight", dispatched - completed - failed - interrupted);
+        result.put("activeKeys", lanes.size());
+
+        Map<String, Object> partitionSnapshots = new LinkedHashMap<>();
+        partitions.forEach((key, state) -> {
+            Map<String, Object> partition = new LinkedHashMap<>();
+            partition.put("watermark", state.tracker.watermark());
+            partition.put("pending", state.tracker.pendingCount());
+            partition.put("inFlight", state.inFlight.get());
+            partition.put("stalled", state.stalled);
+            partitionSnapshots.put(key.groupId() + "/" + key.topicPartition(), partition);
+        });
+        result.put("partitions", partitionSnapshots);
+        return result;
+    }
+
+    /**
+     * 等待已分发的消息处理完成后关闭工作线程
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 消息处理逻辑，抛出异常表示需要重试
+     */
+    @FunctionalInterface
+    public interface RecordHandler<K, V> {
+        void handle(ConsumerRecord<K, V> record) throws Exception;
+    }
+
+    /**
+     * 重试用尽的消息的处理逻辑（通常是发送到死信队列），抛出异常表示没有处理成功，分发器退避后再次调用
+     */
+    @FunctionalInterface
+    public interface DeadLetterHandler {
+        void handle(ConsumerRecord<?, ?> record, Exception cause) throws Exception;
+    }
+
+    private record LaneKey(String topic, Object key) {
+    }
+
+    private record GroupPartition(String groupId, TopicPartition topicPartition) {
+    }
+
+    private static final class PartitionState {
+        private final OffsetCompletionTracker tracker;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        // 最近一次提交的内容，只在消费者线程上读写
+        private volatile OffsetAndMetadata committed;
+        // 有消息被中断、没有完成，偏移量停在它之前
+        private volatile boolean stalled;
+        // 已经暂停拉取，只在消费者线程上读写
+        private boolean paused;
+        // 分区正在被回收或已经丢失
+        private volatile boolean revoked;
+
+        private PartitionState(OffsetCompletionTracker tracker) {
+            this.tracker = tracker;
+        }
+    }
+}
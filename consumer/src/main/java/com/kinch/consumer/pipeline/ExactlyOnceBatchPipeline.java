@@ -0,0 +1,126 @@
+package com.kinch.consumer.pipeline;
+
+import org.apache.kafka.clients.consumer.ConsumerGroupMetadata;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 精确一次的消费-转换-生产管道
+ *
+ * 核心知识点：
+ * 1. 一次poll拿到的整批消息在同一个生产者事务中处理：转换结果的发送和消费偏移量的提交
+ *    （sendOffsetsToTransaction）要么一起提交，要么一起中止
+ * 2. 偏移量不再通过消费者commit提交，而是作为事务的一部分写入__consumer_offsets，
+ *    下游使用read_committed读取时，不会看到中止事务中的输出
+ * 3. 事务中止时抛出异常，消费者没有提交偏移量，重新拉取同一批消息后再次处理，不会产生重复输出
+ * 4. 每个事务都有固定开销（AddPartitionsToTxn、AddOffsetsToTxn、EndTxn），
+ *    事务覆盖整个poll批次，开销被整批消息分摊
+ * 5. sendOffsetsToTransaction带上消费者的ConsumerGroupMetadata（KIP-447），
+ *    由group generation完成僵尸消费者的fence，transactional.id不需要按输入分区分配；
+ *    但同一时刻使用相同transactional.id的Producer会互相fence，前缀中仍要包含每个实例唯一的ID
+ *
+ * 转换函数对一条输入返回0到多条输出，格式不合法的消息应该转换为死信消息，而不是抛出异常，
+ * 否则同一批消息会被反复重试
+ */
+public class ExactlyOnceBatchPipeline<K, V, OK, OV> {
+
+    private final KafkaTemplate<OK, OV> template;
+
+    private final Function<ConsumerRecord<K, V>, ? extends Collection<ProducerRecord<OK, OV>>> transform;
+
+    private final LongAdder transactionCount = new LongAdder();
+
+    private final LongAdder abortCount = new LongAdder();
+
+    private final LongAdder recordCount = new LongAdder();
+
+    private final LongAdder outputCount = new LongAdder();
+
+    private final LongAdder transactionNanos = new LongAdder();
+
+    public ExactlyOnceBatchPipeline(KafkaTemplate<OK, OV> template,
+                                    Function<ConsumerRecord<K, V>, ? extends Collection<ProducerRecord<OK, OV>>> transform) {
+        if (!template.isTransactional()) {
+            throw new IllegalArgumentException("KafkaTemplate must be transactional");
+        }
+        this.template = template;
+        this.transform = transform;
+    }
+
+    /**
+     * 在一个事务中处理一批消息并提交它们的偏移量
+     *
+     * @param groupMetadata 消费者的组元数据，通过Consumer.groupMetadata()获取
+     * @return 发送的输出消息数量
+     * @throws RuntimeException 事务中止时抛出，调用方不能提交这批消息的偏移量
+     */
+    public int process(List<ConsumerRecord<K, V>> records, ConsumerGroupMetadata groupMetadata) {
+        if (records.isEmpty()) {
+            return 0;
+        }
+        Map<TopicPartition, OffsetAndMetadata> offsets = nextOffsets(records);
+        long start = System.nanoTime();
+        try {
+            int outputs = template.executeInTransaction(operations -> {
+                int sent = 0;
+                for (ConsumerRecord<K, V> record : records) {
+                    for (ProducerRecord<OK, OV> output : transform.apply(record)) {
+                        operations.send(output);
+                        sent++;
+                    }
+                }
+                operations.sendOffsetsToTransaction(offsets, groupMetadata);
+                return sent;
+            });
+            transactionCount.increment();
+            recordCount.add(records.size());
+            outputCount.add(outputs);
+            return outputs;
+        } catch (RuntimeException e) {
+            abortCount.increment();
+            throw e;
+        } finally {
+            transactionNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 每个分区要提交的偏移量：该分区本批最大偏移量 + 1（下一条要消费的位置）
+     */
+    static <K, V> Map<TopicPartition, OffsetAndMetadata> nextOffsets(List<ConsumerRecord<K, V>> records) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (ConsumerRecord<K, V> record : records) {
+            offsets.merge(new TopicPartition(record.topic(), record.partition()),
+                new OffsetAndMetadata(record.offset() + 1),
+                (a, b) -> a.offset() >= b.offset() ? a : b);
+        }
+        return offsets;
+    }
+
+    public Map<String, Object> snapshot() {
+        long transactions = transactionCount.sum();
+        long records = recordCount.sum();
+        long attempts = transactions + abortCount.sum();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("transactionCount", transactions);
+        result.put("abortCount", abortCount.sum());
+        result.put("recordCount", records);
+        result.put("outputCount", outputCount.sum());
+        result.put("avgRecordsPerTransaction", transactions == 0 ? 0 : records / transactions);
+        result.put("avgTransactionMs", attempts == 0 ? 0
+            : Math.round(transactionNanos.sum() / attempts / 10_000.0) / 100.0);
+        return result;
+    }
+}
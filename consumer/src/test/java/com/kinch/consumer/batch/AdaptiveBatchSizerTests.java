@@ -0,0 +1,58 @@
+package com.kinch.consumer.batch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveBatchSizerTests {
+
+    @Test
+    void growsGraduallyWhenRecordsAreFast() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1000, 10, 1000, 100);
+
+        // 每条1ms，目标1秒，理想批次1000条，但每次最多翻倍
+        sizer.record(100, 10_000, millis(100), 100);
+        assertEquals(200, sizer.batchSize());
+        sizer.record(200, 20_000, millis(200), 200);
+        assertEquals(400, sizer.batchSize());
+        sizer.record(400, 40_000, millis(400), 400);
+        sizer.record(800, 80_000, millis(800), 1000);
+        assertEquals(1000, sizer.batchSize());
+
+        assertEquals(1000, sizer.snapshot().get("maxChosenBatchSize"));
+        assertEquals(1L, sizer.snapshot().get("limitedBatchCount"));
+        assertEquals(200L, sizer.snapshot().get("returnedRecordCount"));
+        assertEquals(100_000, sizer.fetchBytes());
+    }
+
+    @Test
+    void shrinksImmediatelyWhenProcessingSlowsDown() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1000, 10, 1000, 500);
+
+        // 每条20ms，一批500条要10秒
+        sizer.record(500, 0, millis(10_000), 500);
+        assertEquals(50, sizer.batchSize());
+
+        // 继续变慢，不低于下限
+        sizer.record(50, 0, millis(50 * 500), 500);
+        assertEquals(10, sizer.batchSize());
+        assertEquals(10, sizer.snapshot().get("minChosenBatchSize"));
+    }
+
+    @Test
+    void smoothsSingleOutlier() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1000, 10, 1000, 100);
+        sizer.record(100, 0, millis(1000), 100);
+        assertEquals(100, sizer.batchSize());
+
+        // 一次很快的批次只让估计值部分下降，批次大小不会立刻翻倍到上限
+        sizer.record(100, 0, millis(1), 100);
+        assertEquals(142, sizer.batchSize());
+    }
+
+    private static long millis(long ms) {
+        return TimeUnit.MILLISECONDS.toNanos(ms);
+    }
+}
@@ -0,0 +1,88 @@
+package com.kinch.consumer.batch;
+
+import com.kinch.consumer.batch.BisectingBatchProcessor.Failure;
+import com.kinch.consumer.batch.BisectingBatchProcessor.Result;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BisectingBatchProcessorTests {
+
+    private final BisectingBatchProcessor processor = new BisectingBatchProcessor();
+
+    @Test
+    void successfulBatchIsProcessedOnce() {
+        List<Integer> processed = new ArrayList<>();
+        Result<Integer> result = processor.process(range(500), processed::addAll);
+
+        assertTrue(result.succeeded());
+        assertEquals(1, result.attempts());
+        assertEquals(range(500), processed);
+    }
+
+    @Test
+    void isolatesSinglePoisonRecordInLogarithmicAttempts() {
+        List<Integer> processed = new ArrayList<>();
+        Result<Integer> result = processor.process(range(512), poisonAware(Set.of(300), processed));
+
+        assertEquals(List.of(300), result.failures().stream().map(Failure::item).toList());
+        assertEquals(300, result.failures().get(0).index());
+        assertEquals("poison 300", result.failures().get(0).exception().getMessage());
+        // 1次整批 + 每层最多2次，log2(512) = 9层
+        assertTrue(result.attempts() <= 1 + 2 * 9, "attempts: " + result.attempts());
+
+        // 除毒消息外每条都处理成功一次，且保持原顺序
+        List<Integer> expected = new ArrayList<>(range(512));
+        expected.remove(Integer.valueOf(300));
+        assertEquals(expected, processed);
+    }
+
+    @Test
+    void isolatesMultiplePoisonRecordsInOrder() {
+        List<Integer> processed = new ArrayList<>();
+        Result<Integer> result = processor.process(range(100), poisonAware(Set.of(0, 41, 42, 99), processed));
+
+        assertEquals(List.of(0, 41, 42, 99), result.failures().stream().map(Failure::index).toList());
+        assertEquals(96, processed.size());
+        assertEquals(1L, processor.snapshot().get("failedBatchCount"));
+        assertEquals(4L, processor.snapshot().get("isolatedCount"));
+    }
+
+    @Test
+    void transientFailureOfKnownBadHalfIsRetriedNotIsolated() {
+        int[] failures = {1};
+        Result<Integer> result = processor.process(range(2), batch -> {
+            // 只有第一次整批调用失败
+            if (failures[0]-- > 0) {
+                throw new IllegalStateException("transient");
+            }
+        });
+
+        // 整批失败、左半成功后，右半虽然"已知失败"，单条时仍会实际处理一次
+        assertTrue(result.succeeded());
+        assertEquals(3, result.attempts());
+    }
+
+    /**
+     * 批次中包含毒消息时整批失败且不产生任何效果，否则整批记入processed
+     */
+    static BisectingBatchProcessor.BatchHandler<Integer> poisonAware(Set<Integer> poison, List<Integer> processed) {
+        return batch -> {
+            for (Integer item : batch) {
+                if (poison.contains(item)) {
+                    throw new IllegalArgumentException("poison " + item);
+                }
+            }
+            processed.addAll(batch);
+        };
+    }
+
+    private static List<Integer> range(int size) {
+        return IntStream.range(0, size).boxed().toList();
+    }
+}
@@ -0,0 +1,100 @@
+package com.kinch.consumer.bench;
+
+import com.kinch.consumer.batch.BisectingBatchProcessor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 批次中有毒消息时，二分隔离与逐条重试的恢复成本对比
+ *
+ * 模拟批量入库：每次调用有固定开销CALL_OVERHEAD_MS（网络往返、事务提交），
+ * 另加每条PER_RECORD_MICROS；批次中有毒消息时整批回滚。对比：
+ * 1. 逐条重试：整批失败后每条单独调用一次
+ * 2. 二分隔离：BisectingBatchProcessor
+ *
+ * 默认不运行，执行方式：
+ * mvn test -pl consumer -am -Dtest=BatchFailureIsolationBenchmark -Dbenchmark=true -Dsurefire.failIfNoSpecifiedTests=false
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class BatchFailureIsolationBenchmark {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final long CALL_OVERHEAD_MS = 2;
+
+    private static final long PER_RECORD_MICROS = 20;
+
+    @Test
+    void compareRecoveryCost() throws Exception {
+        List<Integer> batch = IntStream.range(0, BATCH_SIZE).boxed().toList();
+        System.out.printf("批次%d条，每次调用开销%dms，每条%dμs%n", BATCH_SIZE, CALL_OVERHEAD_MS, PER_RECORD_MICROS);
+        System.out.printf("%-8s %-22s %-22s%n", "毒消息数", "逐条重试(调用/耗时)", "二分隔离(调用/耗时)");
+
+        for (int poisonCount : new int[]{0, 1, 5, 25}) {
+            Set<Integer> poison = poison(poisonCount);
+
+            int[] linearCalls = {0};
+            long start = System.nanoTime();
+            int linearFailures = linearRetry(batch, poison, linearCalls);
+            long linearMs = (System.nanoTime() - start) / 1_000_000;
+
+            int[] bisectCalls = {0};
+            start = System.nanoTime();
+            BisectingBatchProcessor.Result<Integer> result = new BisectingBatchProcessor()
+                .process(batch, b -> handle(b, poison, bisectCalls));
+            long bisectMs = (System.nanoTime() - start) / 1_000_000;
+
+            System.out.printf("%-8d %-22s %-22s%n", poisonCount,
+                linearCalls[0] + " / " + linearMs + "ms", bisectCalls[0] + " / " + bisectMs + "ms");
+            assertEquals(poisonCount, linearFailures);
+            assertEquals(poisonCount, result.failures().size());
+            assertTrue(poisonCount == 0 || bisectCalls[0] < linearCalls[0]);
+        }
+    }
+
+    private static int linearRetry(List<Integer> batch, Set<Integer> poison, int[] calls) throws Exception {
+        try {
+            handle(batch, poison, calls);
+            return 0;
+        } catch (IllegalArgumentException e) {
+            int failures = 0;
+            for (Integer item : batch) {
+                try {
+                    handle(List.of(item), poison, calls);
+                } catch (IllegalArgumentException ex) {
+                    failures++;
+                }
+            }
+            return failures;
+        }
+    }
+
+    private static void handle(List<Integer> batch, Set<Integer> poison, int[] calls) throws InterruptedException {
+        calls[0]++;
+        long micros = CALL_OVERHEAD_MS * 1000 + PER_RECORD_MICROS * batch.size();
+        Thread.sleep(micros / 1000, (int) (micros % 1000) * 1000);
+        for (Integer item : batch) {
+            if (poison.contains(item)) {
+                throw new IllegalArgumentException("poison " + item);
+            }
+        }
+    }
+
+    private static Set<Integer> poison(int count) {
+        Random random = new Random(42);
+        Set<Integer> poison = new HashSet<>();
+        while (poison.size() < count) {
+            poison.add(random.nextInt(BATCH_SIZE));
+        }
+        return poison;
+    }
+}
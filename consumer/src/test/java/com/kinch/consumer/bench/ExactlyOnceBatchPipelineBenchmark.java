@@ -0,0 +1,93 @@
+package com.kinch.consumer.bench;
+
+import com.kinch.consumer.config.KafkaConsumerConfig;
+import com.kinch.consumer.pipeline.ExactlyOnceBatchPipeline;
+import org.apache.kafka.clients.consumer.ConsumerGroupMetadata;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 消费-转换-生产管道的吞吐量：每条消息一个事务 vs 整个poll批次一个事务
+ *
+ * 使用内嵌Broker上的真实事务：每个事务都要与事务协调器往返
+ * （AddPartitionsToTxn、AddOffsetsToTxn、TxnOffsetCommit、EndTxn），并写入事务标记；
+ * 输出和偏移量通过KafkaConsumerConfig中的pipelineKafkaTemplate提交
+ *
+ * 默认不运行，执行方式：
+ * mvn test -pl consumer -am -Dtest=ExactlyOnceBatchPipelineBenchmark -Dbenchmark=true -Dsurefire.failIfNoSpecifiedTests=false
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@EmbeddedKafka(partitions = 3, topics = {ExactlyOnceBatchPipelineBenchmark.IN, ExactlyOnceBatchPipelineBenchmark.OUT},
+    brokerProperties = {"transaction.state.log.replication.factor=1", "transaction.state.log.min.isr=1",
+        "transaction.state.log.num.partitions=1", "offsets.topic.num.partitions=1"})
+class ExactlyOnceBatchPipelineBenchmark {
+
+    static final String IN = "eos-bench-in";
+
+    static final String OUT = "eos-bench-out";
+
+    private static final int RECORDS = 1_000;
+
+    private static final ConsumerGroupMetadata GROUP = new ConsumerGroupMetadata("eos-bench-group");
+
+    @Test
+    void compareTransactionPerRecordWithTransactionPerBatch(EmbeddedKafkaBroker broker) {
+        KafkaConsumerConfig config = new KafkaConsumerConfig();
+        ReflectionTestUtils.setField(config, "bootstrapServers", broker.getBrokersAsString());
+        ReflectionTestUtils.setField(config, "transactionInstanceId", "eos-bench");
+        KafkaTemplate<String, String> template = config.pipelineKafkaTemplate();
+
+        List<ConsumerRecord<String, String>> records = new ArrayList<>(RECORDS);
+        for (int offset = 0; offset < RECORDS; offset++) {
+            records.add(new ConsumerRecord<>(IN, offset % 3, offset, "key-" + offset, "value-" + offset));
+        }
+        // 预热：建立连接、初始化事务Producer
+        newPipeline(template).process(records.subList(0, 10), GROUP);
+
+        System.out.printf("%d条消息，内嵌Broker上的真实事务%n", RECORDS);
+        System.out.printf("%-10s %-8s %-10s %-12s%n", "批次大小", "事务数", "耗时", "吞吐量");
+
+        double perRecordThroughput = 0;
+        double wholeBatchThroughput = 0;
+        for (int batchSize : new int[]{1, 10, 100, 500}) {
+            ExactlyOnceBatchPipeline<String, String, String, String> pipeline = newPipeline(template);
+
+            long start = System.nanoTime();
+            int outputs = 0;
+            for (int from = 0; from < RECORDS; from += batchSize) {
+                outputs += pipeline.process(records.subList(from, Math.min(from + batchSize, RECORDS)), GROUP);
+            }
+            long elapsedNanos = System.nanoTime() - start;
+            double throughput = RECORDS * 1e9 / elapsedNanos;
+            long transactions = (Long) pipeline.snapshot().get("transactionCount");
+
+            System.out.printf("%-10d %-8d %-10s %-12s%n", batchSize, transactions,
+                elapsedNanos / 1_000_000 + "ms", String.format("%.0f 条/s", throughput));
+            assertEquals(RECORDS, outputs);
+            assertEquals((RECORDS + batchSize - 1) / batchSize, transactions);
+            if (batchSize == 1) {
+                perRecordThroughput = throughput;
+            } else if (batchSize == 500) {
+                wholeBatchThroughput = throughput;
+            }
+        }
+        assertTrue(wholeBatchThroughput > perRecordThroughput * 10);
+    }
+
+    private static ExactlyOnceBatchPipeline<String, String, String, String> newPipeline(KafkaTemplate<String, String> template) {
+        return new ExactlyOnceBatchPipeline<>(template,
+            record -> List.of(new ProducerRecord<>(OUT, record.key(), record.value().toUpperCase())));
+    }
+}
@@ -0,0 +1,88 @@
+package com.kinch.consumer.offset;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommitCoordinatorTests {
+
+    private static final TopicPartition TP0 = new TopicPartition("t", 0);
+
+    private static final TopicPartition TP1 = new TopicPartition("t", 1);
+
+    private final MockConsumer<String, String> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+
+    CommitCoordinatorTests() {
+        consumer.assign(List.of(TP0, TP1));
+    }
+
+    @Test
+    void commitsByRecordCountEvenWhenOffsetsAreSparse() {
+        CommitCoordinator coordinator = new CommitCoordinator(10, Long.MAX_VALUE, 60_000);
+
+        // 压缩后的分区偏移量不连续，offset % 10 == 0 永远不成立
+        for (int i = 0; i < 25; i++) {
+            coordinator.processed(record(TP0, i * 10L + 3, 10), consumer);
+        }
+
+        assertEquals(2L, coordinator.snapshot().get("asyncCommitCount"));
+        assertEquals(2L, coordinator.snapshot().get("countTriggered"));
+        assertEquals(194, committed(TP0).offset());
+    }
+
+    @Test
+    void commitsByBytesAndByElapsedTime() throws Exception {
+        CommitCoordinator coordinator = new CommitCoordinator(1000, 1000, 50);
+
+        coordinator.processed(record(TP0, 0, 600), consumer);
+        coordinator.processed(record(TP1, 0, 600), consumer);
+        assertEquals(1L, coordinator.snapshot().get("bytesTriggered"));
+        assertEquals(1, committed(TP0).offset());
+        assertEquals(1, committed(TP1).offset());
+
+        coordinator.processed(record(TP0, 1, 10), consumer);
+        coordinator.maybeCommit(consumer);
+        assertEquals(1, committed(TP0).offset());
+
+        Thread.sleep(60);
+        coordinator.maybeCommit(consumer);
+        assertEquals(1L, coordinator.snapshot().get("timeTriggered"));
+        assertEquals(2, committed(TP0).offset());
+    }
+
+    @Test
+    void commitsPendingOffsetsSynchronouslyOnRevoke() {
+        CommitCoordinator coordinator = new CommitCoordinator(1000, Long.MAX_VALUE, 60_000);
+        for (long offset = 0; offset < 7; offset++) {
+            coordinator.processed(record(TP0, offset, 10), consumer);
+        }
+        assertNull(committed(TP0));
+
+        coordinator.onPartitionsRevokedBeforeCommit(consumer, List.of(TP0, TP1));
+
+        assertEquals(7, committed(TP0).offset());
+        assertNull(committed(TP1));
+        assertEquals(1L, coordinator.snapshot().get("syncCommitCount"));
+        assertEquals(0L, coordinator.snapshot().get("asyncCommitCount"));
+    }
+
+    private OffsetAndMetadata committed(TopicPartition tp) {
+        return consumer.committed(Set.of(tp)).get(tp);
+    }
+
+    private static ConsumerRecord<String, String> record(TopicPartition tp, long offset, int valueSize) {
+        return new ConsumerRecord<>(tp.topic(), tp.partition(), offset, 0L, TimestampType.CREATE_TIME,
+            0, valueSize, "k", "v", new RecordHeaders(), Optional.empty());
+    }
+}
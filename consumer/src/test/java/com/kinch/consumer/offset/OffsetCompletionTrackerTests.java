@@ -0,0 +1,145 @@
+package com.kinch.consumer.offset;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffsetCompletionTrackerTests {
+
+    @Test
+    void watermarkStopsAtLowestIncompleteOffset() {
+        OffsetCompletionTracker tracker = new OffsetCompletionTracker(100);
+        assertEquals(100, tracker.watermark());
+
+        for (long offset = 100; offset < 110; offset++) {
+            assertTrue(tracker.register(offset));
+        }
+        tracker.complete(101);
+        tracker.complete(102);
+        assertEquals(100, tracker.watermark());
+
+        tracker.complete(100);
+        assertEquals(103, tracker.watermark());
+
+        for (long offset = 103; offset < 110; offset++) {
+            tracker.complete(offset);
+        }
+        assertEquals(110, tracker.watermark());
+        assertEquals(0, tracker.pendingCount());
+        assertFalse(tracker.register(105));
+    }
+
+    @Test
+    void gapsFromCompactionDoNotBlockWatermark() {
+        OffsetCompletionTracker tracker = new OffsetCompletionTracker(0);
+        tracker.register(0);
+        tracker.register(500);
+        tracker.register(10_000);
+
+        tracker.complete(0);
+        assertEquals(500, tracker.watermark());
+        tracker.complete(500);
+        assertEquals(10_000, tracker.watermark());
+        tracker.complete(10_000);
+        assertEquals(10_001, tracker.watermark());
+    }
+
+    @Test
+    void tracksMillionsOfInFlightOffsets() {
+        OffsetCompletionTracker tracker = new OffsetCompletionTracker(0);
+        int count = 2_000_000;
+        for (long offset = 0; offset < count; offset++) {
+            tracker.register(offset);
+        }
+        // 倒序完成，最后完成的是offset 0
+        for (long offset = count - 1; offset > 0; offset--) {
+            tracker.complete(offset);
+        }
+        assertEquals(0, tracker.watermark());
+        assertEquals(1, tracker.pendingCount());
+
+        tracker.complete(0);
+        assertEquals(count, tracker.watermark());
+    }
+
+    @Test
+    void encodesCompletedOffsetsIntoMetadataAndRestores() {
+        OffsetCompletionTracker tracker = new OffsetCompletionTracker(1000);
+        for (long offset = 1000; offset < 1100; offset++) {
+            tracker.register(offset);
+        }
+        // 未完成：1000、1050~1059、1099
+        for (long offset = 1001; offset < 1099; offset++) {
+            if (offset < 1050 || offset >= 1060) {
+                tracker.complete(offset);
+            }
+        }
+        String metadata = tracker.encodeIncomplete(4000);
+        assertTrue(metadata.length() < 20, metadata);
+
+        OffsetCompletionTracker restored = OffsetCompletionTracker.restore(tracker.watermark(), metadata);
+        assertEquals(1000, restored.watermark());
+        assertTrue(restored.register(1000));
+        assertFalse(restored.register(1001));
+        assertFalse(restored.register(1049));
+        assertTrue(restored.register(1050));
+        assertTrue(restored.register(1059));
+        assertFalse(restored.register(1098));
+        // 结尾未完成的游程不编码，超出编码范围的消息照常处理
+        assertTrue(restored.register(1099));
+        assertTrue(restored.register(1200));
+        assertEquals(13, restored.pendingCount());
+    }
+
+    @Test
+    void encodesRunsThatCrossWordBoundaries() {
+        OffsetCompletionTracker tracker = new OffsetCompletionTracker(37);
+        Random random = new Random(42);
+        boolean[] pending = new boolean[5_000];
+        for (int i = 0; i < pending.length; i++) {
+            tracker.register(37 + i);
+        }
+        // 长短不一的游程：1位、跨越多个64位分组、正好落在分组边界上
+        boolean state = true;
+        for (int i = 0; i < pending.length; ) {
+            int run = random.nextBoolean() ? 1 + random.nextInt(5) : 60 + random.nextInt(300);
+            for (int end = Math.min(pending.length, i + run); i < end; i++) {
+                pending[i] = state;
+                if (!state) {
+                    tracker.complete(37 + i);
+                }
+            }
+            state = !state;
+        }
+
+        String metadata = tracker.encodeIncomplete(100_000);
+        OffsetCompletionTracker restored = OffsetCompletionTracker.restore(tracker.watermark(), metadata);
+        for (int i = 0; i < pending.length; i++) {
+            assertEquals(pending[i], restored.register(37 + i), "offset " + (37 + i));
+        }
+    }
+
+    @Test
+    void truncatesMetadataToMaxLengthAndFallsBackOnInvalidInput() {
+        OffsetCompletionTracker tracker = new OffsetCompletionTracker(0);
+        for (long offset = 0; offset < 10_000; offset++) {
+            tracker.register(offset);
+        }
+        // 每隔一条完成一条，游程数量很多
+        for (long offset = 1; offset < 10_000; offset += 2) {
+            tracker.complete(offset);
+        }
+        String metadata = tracker.encodeIncomplete(100);
+        assertTrue(metadata.length() <= 100);
+
+        OffsetCompletionTracker restored = OffsetCompletionTracker.restore(0, metadata);
+        assertTrue(restored.register(0));
+        assertFalse(restored.register(1));
+        assertTrue(restored.register(9_999));
+
+        assertEquals(0, OffsetCompletionTracker.restore(0, "garbage").watermark());
+        assertEquals(0, OffsetCompletionTracker.restore(0, "p1:!!!").watermark());
+    }
+}
@@ -0,0 +1,220 @@
+package com.kinch.consumer.parallel;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyOrderedDispatcherTests {
+
+    private static final TopicPartition TP = new TopicPartition("t", 0);
+
+    private final MockConsumer<String, String> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+
+    private final List<Long> deadLetters = new CopyOnWriteArrayList<>();
+
+    KeyOrderedDispatcherTests() {
+        consumer.assign(List.of(TP));
+    }
+
+    @Test
+    void keepsOrderPerKeyAndRunsKeysInParallel() throws Exception {
+        Map<String, List<Long>> processed = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        long start = System.nanoTime();
+        try (KeyOrderedDispatcher dispatcher = dispatcher(1)) {
+            // 20个Key，每个Key 5条消息，每条处理20ms：串行需要2秒，按Key并行约100ms
+            for (long offset = 0; offset < 100; offset++) {
+                futures.add(dispatcher.dispatch(record(offset, "key-" + offset % 20), consumer, r -> {
+                    Thread.sleep(20);
+                    processed.computeIfAbsent(r.key(), k -> new CopyOnWriteArrayList<>()).add(r.offset());
+                }));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+            dispatcher.commit(consumer);
+
+            assertEquals(0L, dispatcher.snapshot().get("inFlight"));
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(20, processed.size());
+        processed.values().forEach(offsets -> {
+            List<Long> sorted = new ArrayList<>(offsets);
+            sorted.sort(null);
+            assertEquals(sorted, offsets);
+        });
+        assertTrue(elapsedMs < 1500, "keys were not processed in parallel: " + elapsedMs + " ms");
+        assertEquals(100, committed().offset());
+    }
+
+    @Test
+    void commitsOnlyContiguousOffsetsAndSkipsCompletedAfterRestart() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Long> processed = new CopyOnWriteArrayList<>();
+
+        try (KeyOrderedDispatcher dispatcher = dispatcher(1)) {
+            // offset 2 一直阻塞，其余消息先完成
+            List<CompletableFuture<Void>> done = new ArrayList<>();
+            for (long offset = 0; offset < 6; offset++) {
+                CompletableFuture<Void> future = dispatcher.dispatch(record(offset, "key-" + offset), consumer, r -> {
+                    if (r.offset() == 2) {
+                        release.await();
+                    }
+                    processed.add(r.offset());
+                });
+                if (offset != 2) {
+                    done.add(future);
+                }
+            }
+            CompletableFuture.allOf(done.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+            dispatcher.commit(consumer);
+
+            OffsetAndMetadata committed = committed();
+            assertEquals(2, committed.offset());
+            assertFalse(committed.metadata().isEmpty());
+            release.countDown();
+        }
+
+        // 模拟重启：新的分发器从提交的偏移量和metadata恢复，3~5已完成，只重新处理2
+        processed.clear();
+        try (KeyOrderedDispatcher restarted = dispatcher(1)) {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (long offset = 2; offset < 8; offset++) {
+                futures.add(restarted.dispatch(record(offset, "key-" + offset), consumer, r -> processed.add(r.offset())));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+            restarted.commit(consumer);
+
+            processed.sort(null);
+            assertEquals(List.of(2L, 6L, 7L), processed);
+            assertEquals(3L, restarted.snapshot().get("skippedCount"));
+        }
+        assertEquals(8, committed().offset());
+        assertEquals("", committed().metadata());
+    }
+
+    @Test
+    void retriesThenDeadLettersAndKeepsLaneMoving() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        List<Long> processed = new CopyOnWriteArrayList<>();
+
+        try (KeyOrderedDispatcher dispatcher = dispatcher(2)) {
+            CompletableFuture<Void> failing = dispatcher.dispatch(record(0, "k"), consumer, r -> {
+                attempts.incrementAndGet();
+                throw new IllegalStateException("always fails");
+            });
+            CompletableFuture<Void> next = dispatcher.dispatch(record(1, "k"), consumer, r -> processed.add(r.offset()));
+
+            CompletableFuture.allOf(failing, next).get(5, TimeUnit.SECONDS);
+            dispatcher.onPartitionsRevokedBeforeCommit(consumer, List.of(TP));
+
+            assertEquals(2, attempts.get());
+            assertEquals(List.of(1L), processed);
+            assertEquals(1L, dispatcher.snapshot().get("failedCount"));
+            assertEquals(1L, dispatcher.snapshot().get("retryCount"));
+            assertEquals(1L, dispatcher.snapshot().get("deadLetterCount"));
+        }
+        assertEquals(List.of(0L), deadLetters);
+        assertEquals(2, committed().offset());
+    }
+
+    @Test
+    void retriesDeadLetterWithBackoffUntilItSucceeds() throws Exception {
+        AtomicInteger sends = new AtomicInteger();
+        try (KeyOrderedDispatcher dispatcher = new KeyOrderedDispatcher(Executors.newVirtualThreadPerTaskExecutor(), 1, 1000,
+                 (record, cause) -> {
+                     if (sends.incrementAndGet() <= 2) {
+                         throw new IllegalStateException("dlq unavailable");
+                     }
+                 })) {
+            CompletableFuture<Void> failing = dispatcher.dispatch(record(0, "k"), consumer, r -> {
+                throw new IllegalStateException("always fails");
+            });
+            failing.get(5, TimeUnit.SECONDS);
+            dispatcher.onPartitionsRevokedBeforeCommit(consumer, List.of(TP));
+
+            assertEquals(3, sends.get());
+            assertEquals(2L, dispatcher.snapshot().get("deadLetterFailedCount"));
+            assertEquals(1L, dispatcher.snapshot().get("deadLetterCount"));
+        }
+        assertEquals(1, committed().offset());
+    }
+
+    @Test
+    void deadLetterRetryStopsWhenPartitionIsRevoked() throws Exception {
+        try (KeyOrderedDispatcher dispatcher = new KeyOrderedDispatcher(Executors.newVirtualThreadPerTaskExecutor(), 1, 1000,
+                 (record, cause) -> {
+                     throw new IllegalStateException("dlq unavailable");
+                 })) {
+            CompletableFuture<Void> failing = dispatcher.dispatch(record(0, "k"), consumer, r -> {
+                throw new IllegalStateException("always fails");
+            });
+            CompletableFuture<Void> next = dispatcher.dispatch(record(1, "k"), consumer, r -> {
+            });
+            // 死信一直发送失败时不会放弃，消息保持在途
+            assertThrows(TimeoutException.class, () -> failing.get(500, TimeUnit.MILLISECONDS));
+            assertTrue((Long) dispatcher.snapshot().get("deadLetterFailedCount") >= 2);
+
+            dispatcher.onPartitionsRevokedBeforeCommit(consumer, List.of(TP));
+            CompletableFuture.allOf(failing, next).get(5, TimeUnit.SECONDS);
+        }
+        // offset 0 没有进入死信队列，不能提交，由新的消费者重新投递；offset 1 已完成，记录在metadata中
+        assertEquals(0, committed().offset());
+        assertFalse(committed().metadata().isEmpty());
+    }
+
+    @Test
+    void interruptedRecordPausesPartitionAndIsNotCommitted() throws Exception {
+        try (KeyOrderedDispatcher dispatcher = dispatcher(3)) {
+            CompletableFuture<Void> interrupted = dispatcher.dispatch(record(0, "k"), consumer, r -> {
+                throw new InterruptedException("shutdown");
+            });
+            interrupted.get(5, TimeUnit.SECONDS);
+            dispatcher.commit(consumer);
+
+            // 偏移量不会前进，暂停拉取该分区
+            assertEquals(Set.of(TP), consumer.paused());
+            assertEquals(1L, dispatcher.snapshot().get("interruptedCount"));
+            assertEquals(0L, dispatcher.snapshot().get("retryCount"));
+            assertEquals(0L, dispatcher.snapshot().get("inFlight"));
+            @SuppressWarnings("unchecked")
+            Map<String, Map<String, Object>> partitions = (Map<String, Map<String, Object>>) dispatcher.snapshot().get("partitions");
+            assertEquals(true, partitions.values().iterator().next().get("stalled"));
+
+            dispatcher.onPartitionsRevokedBeforeCommit(consumer, List.of(TP));
+        }
+        assertTrue(deadLetters.isEmpty());
+        assertEquals(0, committed().offset());
+    }
+
+    private KeyOrderedDispatcher dispatcher(int maxAttempts) {
+        return new KeyOrderedDispatcher(Executors.newVirtualThreadPerTaskExecutor(), maxAttempts, 1000,
+            (record, cause) -> deadLetters.add(record.offset()));
+    }
+
+    private OffsetAndMetadata committed() {
+        return consumer.committed(Set.of(TP)).get(TP);
+    }
+
+    private static ConsumerRecord<String, String> record(long offset, String key) {
+        return new ConsumerRecord<>(TP.topic(), TP.partition(), offset, key, "v");
+    }
+}
@@ -0,0 +1,200 @@
+package com.kinch.consumer.pipeline;
+
+import com.kinch.consumer.config.KafkaConsumerConfig;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.BatchAcknowledgingConsumerAwareMessageListener;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 消费-转换-生产管道在真实Broker上的端到端测试
+ *
+ * 输入Topic中有一个中止的事务和一个提交的事务，容器使用transactionalKafkaListenerContainerFactory
+ * （read_committed + 不跳过消息的错误处理器），转换过程中两条消息分别失败2次和12次，事务中止后整批重新处理。
+ * 最后以read_committed读取输出Topic，检查输出不重复、不缺失，且提交的偏移量与输出对应的输入一致
+ */
+@EmbeddedKafka(partitions = 3, topics = {ExactlyOnceBatchPipelineEmbeddedKafkaTests.IN, ExactlyOnceBatchPipelineEmbeddedKafkaTests.OUT},
+    brokerProperties = {"transaction.state.log.replication.factor=1", "transaction.state.log.min.isr=1",
+        "transaction.state.log.num.partitions=1", "offsets.topic.num.partitions=1"})
+class ExactlyOnceBatchPipelineEmbeddedKafkaTests {
+
+    static final String IN = "eos-embedded-in";
+
+    static final String OUT = "eos-embedded-out";
+
+    private static final String GROUP = "eos-embedded-group";
+
+    private static final int RECORDS = 300;
+
+    private static final int ABORTED_RECORDS = 50;
+
+    // 输入 -> 失败次数：失败时本批前面的输出已经发送，事务必须中止；
+    // 12次超过默认错误处理器的重试上限（9次），默认配置下这一批会被跳过
+    private static final Map<String, Integer> FAILURES = Map.of("value-100", 2, "value-200", 12);
+
+    @Test
+    void abortedBatchesAreRedeliveredAndCommittedExactlyOnce(EmbeddedKafkaBroker broker) throws Exception {
+        Map<TopicPartition, Long> expectedOffsets = produceInputs(broker.getBrokersAsString());
+
+        KafkaConsumerConfig config = new KafkaConsumerConfig();
+        ReflectionTestUtils.setField(config, "bootstrapServers", broker.getBrokersAsString());
+        ReflectionTestUtils.setField(config, "transactionInstanceId", "eos-embedded");
+
+        Map<String, Integer> attempts = new ConcurrentHashMap<>();
+        ExactlyOnceBatchPipeline<String, String, String, String> pipeline = new ExactlyOnceBatchPipeline<>(
+            config.pipelineKafkaTemplate(), record -> {
+                int failures = FAILURES.getOrDefault(record.value(), 0);
+                if (failures > 0 && attempts.merge(record.value(), 1, Integer::sum) <= failures) {
+                    throw new IllegalStateException("transform failed: " + record.value());
+                }
+                // 输出中带上输入的位置，用来核对提交的偏移量
+                return List.of(new ProducerRecord<>(OUT, record.key(),
+                    record.partition() + ":" + record.offset() + ":" + record.value()));
+            });
+
+        ConcurrentMessageListenerContainer<String, String> container =
+            config.transactionalKafkaListenerContainerFactory(100).createContainer(IN);
+        container.getContainerProperties().setGroupId(GROUP);
+        container.getContainerProperties().getKafkaConsumerProperties()
+            .setProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, "50");
+        container.getContainerProperties().setMessageListener(
+            (BatchAcknowledgingConsumerAwareMessageListener<String, String>) (records, ack, consumer) ->
+                pipeline.process(records, consumer.groupMetadata()));
+        container.start();
+        try {
+            assertEquals(expectedOffsets, awaitCommittedOffsets(broker.getBrokersAsString(), expectedOffsets));
+        } finally {
+            container.stop();
+        }
+
+        List<String> outputs = readCommitted(broker.getBrokersAsString());
+        assertEquals(RECORDS, outputs.size(), "输出缺失或重复");
+        assertEquals(RECORDS, new HashSet<>(outputs).size(), "输出重复");
+        assertEquals(IntStream.range(0, RECORDS).mapToObj(i -> "value-" + i).collect(Collectors.toSet()),
+            outputs.stream().map(output -> output.substring(output.lastIndexOf(':') + 1)).collect(Collectors.toSet()));
+
+        // 提交的偏移量 = 每个分区有输出的最大输入偏移量 + 1
+        Map<TopicPartition, Long> outputOffsets = new HashMap<>();
+        for (String output : outputs) {
+            String[] parts = output.split(":");
+            outputOffsets.merge(new TopicPartition(IN, Integer.parseInt(parts[0])), Long.parseLong(parts[1]) + 1, Math::max);
+        }
+        assertEquals(expectedOffsets, outputOffsets);
+
+        assertEquals(14L, pipeline.snapshot().get("abortCount"));
+        FAILURES.forEach((value, failures) -> assertEquals(failures + 1, attempts.get(value)));
+    }
+
+    /**
+     * 先写入一个中止的事务（read_committed下不可见），再写入一个提交的事务
+     *
+     * @return 每个分区最后一条已提交输入的下一个偏移量
+     */
+    private static Map<TopicPartition, Long> produceInputs(String brokers) {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, brokers);
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.TRANSACTIONAL_ID_CONFIG, "eos-embedded-input");
+
+        Map<TopicPartition, Long> offsets = new HashMap<>();
+        try (KafkaProducer<String, String> producer = new KafkaProducer<>(props)) {
+            producer.initTransactions();
+            producer.beginTransaction();
+            for (int i = 0; i < ABORTED_RECORDS; i++) {
+                producer.send(new ProducerRecord<>(IN, "aborted-" + i, "aborted-" + i));
+            }
+            producer.flush();
+            producer.abortTransaction();
+
+            producer.beginTransaction();
+            List<Future<RecordMetadata>> sends = new ArrayList<>(RECORDS);
+            for (int i = 0; i < RECORDS; i++) {
+                sends.add(producer.send(new ProducerRecord<>(IN, "key-" + i, "value-" + i)));
+            }
+            producer.commitTransaction();
+            for (Future<RecordMetadata> send : sends) {
+                RecordMetadata metadata = send.get(10, TimeUnit.SECONDS);
+                offsets.merge(new TopicPartition(IN, metadata.partition()), metadata.offset() + 1, Math::max);
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("写入输入消息失败", e);
+        }
+        return offsets;
+    }
+
+    private static Map<TopicPartition, Long> awaitCommittedOffsets(String brokers, Map<TopicPartition, Long> expected)
+            throws Exception {
+        Map<TopicPartition, Long> committed = Map.of();
+        try (Admin admin = Admin.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, brokers))) {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+            while (System.nanoTime() < deadline) {
+                committed = admin.listConsumerGroupOffsets(GROUP).partitionsToOffsetAndMetadata().get()
+                    .entrySet().stream()
+                    .filter(entry -> entry.getValue() != null)
+                    .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().offset()));
+                if (committed.equals(expected)) {
+                    break;
+                }
+                Thread.sleep(200);
+            }
+        }
+        return committed;
+    }
+
+    /**
+     * 以read_committed从头读取输出Topic，直到每个分区的LSO
+     */
+    private static List<String> readCommitted(String brokers) {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, brokers);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+
+        List<String> values = new ArrayList<>();
+        try (KafkaConsumer<String, String> consumer = new KafkaConsumer<>(props)) {
+            List<TopicPartition> partitions = consumer.partitionsFor(OUT).stream()
+                .map(info -> new TopicPartition(OUT, info.partition())).toList();
+            consumer.assign(partitions);
+            consumer.seekToBeginning(partitions);
+            Map<TopicPartition, Long> end = consumer.endOffsets(partitions);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (partitions.stream().anyMatch(tp -> consumer.position(tp) < end.get(tp))) {
+                assertTrue(System.nanoTime() < deadline, "读取输出超时");
+                for (ConsumerRecord<String, String> record : consumer.poll(Duration.ofMillis(200))) {
+                    values.add(record.value());
+                }
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,110 @@
+package com.kinch.consumer.pipeline;
+
+import org.apache.kafka.clients.consumer.ConsumerGroupMetadata;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.mock.MockProducerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExactlyOnceBatchPipelineTests {
+
+    private static final ConsumerGroupMetadata GROUP = new ConsumerGroupMetadata("eos-test-group");
+
+    private final MockProducer<String, String> producer = new MockProducer<>(true, new StringSerializer(), new StringSerializer()) {
+        @Override
+        public void close(Duration timeout) {
+            // KafkaTemplate在事务结束后close，同一个MockProducer要在多个事务中复用
+        }
+    };
+
+    @Test
+    void commitsOutputsAndOffsetsInOneTransactionPerBatch() {
+        producer.initTransactions();
+        ExactlyOnceBatchPipeline<String, String, String, String> pipeline = new ExactlyOnceBatchPipeline<>(template(),
+            record -> List.of(new ProducerRecord<>("out", record.key(), record.value().toUpperCase())));
+
+        int outputs = 0;
+        for (int batch = 0; batch < 5; batch++) {
+            outputs += pipeline.process(batch(batch * 100, 100), GROUP);
+        }
+
+        // 500条输入只用了5个事务，每个事务同时提交输出和偏移量
+        assertEquals(500, outputs);
+        assertEquals(5, producer.commitCount());
+        assertEquals(500, producer.history().size());
+        assertEquals(5, producer.consumerGroupOffsetsHistory().size());
+
+        Map<TopicPartition, OffsetAndMetadata> last = producer.consumerGroupOffsetsHistory().get(4).get("eos-test-group");
+        assertEquals(499, last.get(new TopicPartition("in", 0)).offset());
+        assertEquals(500, last.get(new TopicPartition("in", 1)).offset());
+        assertEquals(5L, pipeline.snapshot().get("transactionCount"));
+        assertEquals(100L, pipeline.snapshot().get("avgRecordsPerTransaction"));
+    }
+
+    @Test
+    void abortedBatchLeavesNoOutputsOrOffsetsAndCanBeRetried() {
+        producer.initTransactions();
+        boolean[] failOnce = {true};
+        ExactlyOnceBatchPipeline<String, String, String, String> pipeline = new ExactlyOnceBatchPipeline<>(template(),
+            record -> {
+                if (record.offset() == 7 && failOnce[0]) {
+                    failOnce[0] = false;
+                    throw new IllegalStateException("transform failed");
+                }
+                return List.of(new ProducerRecord<>("out", record.key(), record.value()));
+            });
+
+        List<ConsumerRecord<String, String>> records = batch(0, 10);
+        assertThrows(IllegalStateException.class, () -> pipeline.process(records, GROUP));
+        assertTrue(producer.transactionAborted());
+        assertTrue(producer.history().isEmpty());
+        assertTrue(producer.consumerGroupOffsetsHistory().isEmpty());
+
+        // 偏移量没有提交，重新拉取同一批消息后处理，每条输出只出现一次
+        assertEquals(10, pipeline.process(records, GROUP));
+        assertEquals(1, producer.commitCount());
+        assertEquals(10, producer.history().size());
+        assertEquals(1L, pipeline.snapshot().get("abortCount"));
+    }
+
+    @Test
+    void nextOffsetsUsesHighestOffsetPerPartition() {
+        List<ConsumerRecord<String, String>> records = List.of(
+            new ConsumerRecord<>("in", 0, 5, "k", "v"),
+            new ConsumerRecord<>("in", 0, 3, "k", "v"),
+            new ConsumerRecord<>("in", 2, 9, "k", "v"));
+
+        Map<TopicPartition, OffsetAndMetadata> offsets = ExactlyOnceBatchPipeline.nextOffsets(records);
+        assertEquals(2, offsets.size());
+        assertEquals(6, offsets.get(new TopicPartition("in", 0)).offset());
+        assertEquals(10, offsets.get(new TopicPartition("in", 2)).offset());
+    }
+
+    private KafkaTemplate<String, String> template() {
+        return new KafkaTemplate<>(new MockProducerFactory<>((transactional, txId) -> producer, "tx-pipeline-"));
+    }
+
+    /**
+     * 两个分区交替分布的一批消息，偏移量从start开始
+     */
+    private static List<ConsumerRecord<String, String>> batch(int start, int count) {
+        List<ConsumerRecord<String, String>> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int offset = start + i;
+            records.add(new ConsumerRecord<>("in", offset % 2, offset, "key-" + offset, "value-" + offset));
+        }
+        return records;
+    }
+}
@@ -0,0 +1,228 @@
+package com.kinch.common.admin;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.CreateTopicsResult;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.errors.InterruptException;
+import org.apache.kafka.common.errors.TopicExistsException;
+import org.apache.kafka.common.errors.UnknownTopicOrPartitionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 共享的Admin与元数据服务
+ *
+ * 核心知识点：
+ * 1. AdminClient创建时要建立连接、拉取集群元数据，应长期复用而不是每次调用都新建
+ * 2. Topic描述在TTL内直接读缓存；未命中的Topic合并成一次describeTopics请求
+ * 3. 创建Topic直接发请求，已存在时Broker返回TopicExistsException，视为成功，
+ *    不需要先listTopics拉取集群里全部Topic名称
+ * 4. 多个Topic的创建同样合并成一次createTopics请求，启动时无论多少个Topic都只需一次往返
+ * 5. 批量操作中单个Topic失败不会中断其余Topic，全部处理完后统一抛出{@link TopicOperationException}；
+ *    所有Topic共用一个等待截止时间，Broker不可用时最多等待timeoutMs，而不是每个Topic各等一次
+ *
+ * 每个集群只应创建一个实例并由容器管理生命周期（例如Spring Bean，销毁时调用close），
+ * {@link com.kinch.common.util.KafkaUtils}中的方法也委托给这个实例
+ */
+public class KafkaMetadataService implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(KafkaMetadataService.class);
+
+    public static final long DEFAULT_CACHE_TTL_MS = 30_000;
+
+    public static final long DEFAULT_TIMEOUT_MS = 10_000;
+
+    private final AdminClient adminClient;
+
+    private final long cacheTtlMs;
+
+    private final long timeoutMs;
+
+    private final ConcurrentMap<String, CachedDescription> descriptions = new ConcurrentHashMap<>();
+
+    public KafkaMetadataService(String bootstrapServers) {
+        this(bootstrapServers, DEFAULT_CACHE_TTL_MS, DEFAULT_TIMEOUT_MS);
+    }
+
+    public KafkaMetadataService(String bootstrapServers, long cacheTtlMs, long timeoutMs) {
+        this(AdminClient.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers)),
+            cacheTtlMs, timeoutMs);
+    }
+
+    /**
+     * 使用外部创建的AdminClient，关闭服务时一并关闭
+     */
+    public KafkaMetadataService(AdminClient adminClient, long cacheTtlMs, long timeoutMs) {
+        this.adminClient = adminClient;
+        this.cacheTtlMs = cacheTtlMs;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * 批量获取Topic描述
+     * 缓存未命中的Topic合并成一次describeTopics请求；不存在的Topic不会出现在结果中
+     *
+     * @throws TopicOperationException 部分Topic查询失败，其余Topic的结果在异常中
+     */
+    public Map<String, TopicDescription> describeTopics(Collection<String> topics) {
+        long now = System.currentTimeMillis();
+        Map<String, TopicDescription> result = new HashMap<>();
+        Set<String> missing = new LinkedHashSet<>();
+        for (String topic : topics) {
+            CachedDescription cached = descriptions.get(topic);
+            if (cached != null && now - cached.loadedAt < cacheTtlMs) {
+                result.put(topic, cached.description);
+            } else {
+                missing.add(topic);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        Map<String, KafkaFuture<TopicDescription>> futures = adminClient.describeTopics(missing).topicNameValues();
+        long loadedAt = System.currentTimeMillis();
+        long deadline = loadedAt + timeoutMs;
+        Map<String, Throwable> failures = new LinkedHashMap<>();
+        for (Map.Entry<String, KafkaFuture<TopicDescription>> entry : futures.entrySet()) {
+            try {
+                TopicDescription description = await(entry.getValue(), deadline);
+                descriptions.put(entry.getKey(), new CachedDescription(description, loadedAt));
+                result.put(entry.getKey(), description);
+            } catch (UnknownTopicOrPartitionException e) {
+                descriptions.remove(entry.getKey());
+            } catch (InterruptException e) {
+                throw e;
+            } catch (KafkaException e) {
+                failures.put(entry.getKey(), e);
+            }
+        }
+        if (!failures.isEmpty()) {
+            throw new TopicOperationException("describeTopics", failures, result);
+        }
+        return result;
+    }
+
+    /**
+     * 获取单个Topic描述，不存在返回null
+     */
+    public TopicDescription describeTopic(String topic) {
+        return describeTopics(Collections.singleton(topic)).get(topic);
+    }
+
+    /**
+     * 获取Topic分区数，不存在返回-1
+     */
+    public int partitionCount(String topic) {
+        TopicDescription description = describeTopic(topic);
+        return description == null ? -1 : description.partitions().size();
+    }
+
+    /**
+     * 批量创建Topic（幂等），一次createTopics请求
+     *
+     * @return Topic名称 -> 本次是否新建（false表示已存在）
+     * @throws TopicOperationException 部分Topic创建失败，其余Topic的结果在异常中
+     */
+    public Map<String, Boolean> createTopics(Collection<NewTopic> topics) {
+        Map<String, Boolean> result = new LinkedHashMap<>();
+        if (topics.isEmpty()) {
+            return result;
+        }
+
+        CreateTopicsResult createResult = adminClient.createTopics(topics);
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        Map<String, Throwable> failures = new LinkedHashMap<>();
+        for (Map.Entry<String, KafkaFuture<Void>> entry : createResult.values().entrySet()) {
+            String topic = entry.getKey();
+            try {
+                await(entry.getValue(), deadline);
+                result.put(topic, true);
+            } catch (TopicExistsException e) {
+                result.put(topic, false);
+            } catch (InterruptException e) {
+                throw e;
+            } catch (KafkaException e) {
+                failures.put(topic, e);
+            } finally {
+                descriptions.remove(topic);
+            }
+        }
+        if (!failures.isEmpty()) {
+            throw new TopicOperationException("createTopics", failures, result);
+        }
+        return result;
+    }
+
+    /**
+     * 创建单个Topic（幂等）
+     *
+     * @return 本次是否新建
+     */
+    public boolean createTopic(NewTopic topic) {
+        return createTopics(Collections.singleton(topic)).get(topic.name());
+    }
+
+    /**
+     * 使某个Topic的缓存失效（例如扩容分区后）
+     */
+    public void invalidate(String topic) {
+        descriptions.remove(topic);
+    }
+
+    public AdminClient adminClient() {
+        return adminClient;
+    }
+
+    /**
+     * 关闭AdminClient，最多等待timeoutMs让未完成的请求结束
+     * 无参的close()会一直等到请求超时（默认60秒），Broker不可用时会拖慢应用退出
+     */
+    @Override
+    public void close() {
+        adminClient.close(Duration.ofMillis(timeoutMs));
+        descriptions.clear();
+        logger.info("Kafka元数据服务关闭");
+    }
+
+    /**
+     * 在截止时间前等待结果，把ExecutionException中的Kafka异常解包抛出
+     */
+    private <T> T await(KafkaFuture<T> future, long deadline) {
+        try {
+            return future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            throw new InterruptException("Interrupted while waiting for admin request", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof KafkaException) {
+                throw (KafkaException) e.getCause();
+            }
+            throw new KafkaException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new org.apache.kafka.common.errors.TimeoutException(
+                "Admin request timed out after " + timeoutMs + " ms", e);
+        }
+    }
+
+    private static final class CachedDescription {
+        private final TopicDescription description;
+        private final long loadedAt;
+
+        private CachedDescription(TopicDescription description, long loadedAt) {
+            this.description = description;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.kinch.common.admin;
+
+import com.kinch.common.constant.KafkaConstants;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.config.TopicConfig;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Topic目录 - 声明项目用到的全部Topic
+ *
+ * 核心知识点：
+ * 1. 依赖Broker自动创建时，Topic使用Broker的默认分区数和配置，且首次发送要等待元数据
+ * 2. 在这里统一声明分区数、副本数和Topic级配置，启动时用一次createTopics请求批量创建
+ * 3. compression.type=producer 表示保留生产者的压缩格式，Broker不再重新压缩
+ */
+public final class TopicCatalog {
+
+    private static final Map<String, String> DEFAULT_CONFIGS = Map.of(
+        TopicConfig.COMPRESSION_TYPE_CONFIG, "producer"
+    );
+
+    // 死信队列流量小、保留时间长，使用较小的段文件，便于按时间清理
+    private static final Map<String, String> DLQ_CONFIGS = Map.of(
+        TopicConfig.COMPRESSION_TYPE_CONFIG, "producer",
+        TopicConfig.SEGMENT_BYTES_CONFIG, String.valueOf(64 * 1024 * 1024),
+        TopicConfig.RETENTION_MS_CONFIG, String.valueOf(14L * 24 * 60 * 60 * 1000)
+    );
+
+    private TopicCatalog() {
+        // 工具类，防止实例化
+    }
+
+    /**
+     * 全部Topic定义，每次调用返回新的实例（NewTopic是可变对象）
+     */
+    public static List<NewTopic> topics() {
+        return List.of(
+            topic(KafkaConstants.TOPIC_SIMPLE, KafkaConstants.PARTITION_COUNT_DEFAULT, DEFAULT_CONFIGS),
+            topic(KafkaConstants.TOPIC_USER, KafkaConstants.PARTITION_COUNT_DEFAULT, DEFAULT_CONFIGS),
+            topic(KafkaConstants.TOPIC_ORDER, KafkaConstants.PARTITION_COUNT_HIGH, DEFAULT_CONFIGS),
+            topic(KafkaConstants.TOPIC_TRANSACTION, KafkaConstants.PARTITION_COUNT_DEFAULT, DEFAULT_CONFIGS),
+            topic(KafkaConstants.TOPIC_PARTITION_TEST, KafkaConstants.PARTITION_COUNT_HIGH, DEFAULT_CONFIGS),
+            topic(KafkaConstants.TOPIC_DLQ, 1, DLQ_CONFIGS),
+            topic(KafkaConstants.TOPIC_INVENTORY, KafkaConstants.PARTITION_COUNT_DEFAULT, DEFAULT_CONFIGS),
+            topic(KafkaConstants.TOPIC_POINTS, KafkaConstants.PARTITION_COUNT_DEFAULT, DEFAULT_CONFIGS),
+            topic(KafkaConstants.TOPIC_ORDER_PROCESSED, KafkaConstants.PARTITION_COUNT_HIGH, DEFAULT_CONFIGS)
+        );
+    }
+
+    /**
+     * 全部Topic名称
+     */
+    public static List<String> topicNames() {
+        return topics().stream().map(NewTopic::name).toList();
+    }
+
+    private static NewTopic topic(String name, int partitions, Map<String, String> configs) {
+        return new NewTopic(name, partitions, KafkaConstants.REPLICATION_FACTOR).configs(configs);
+    }
+}
@@ -0,0 +1,42 @@
+package com.kinch.common.admin;
+
+import org.apache.kafka.common.KafkaException;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 批量Topic操作中部分（或全部）Topic失败
+ *
+ * 每个Topic单独记录失败原因，成功的Topic结果也一并保留，调用方可以只重试失败的部分；
+ * 第一个失败原因作为cause，其余作为suppressed
+ */
+public final class TopicOperationException extends KafkaException {
+
+    private final Map<String, Throwable> failures;
+
+    private final Map<String, ?> succeeded;
+
+    public TopicOperationException(String operation, Map<String, Throwable> failures, Map<String, ?> succeeded) {
+        super(operation + " failed for " + failures.size() + " topic(s): " + failures.keySet(),
+            failures.values().iterator().next());
+        this.failures = Collections.unmodifiableMap(new LinkedHashMap<>(failures));
+        this.succeeded = Collections.unmodifiableMap(new LinkedHashMap<>(succeeded));
+        failures.values().stream().skip(1).forEach(this::addSuppressed);
+    }
+
+    /**
+     * Topic名称 -> 失败原因
+     */
+    public Map<String, Throwable> failures() {
+        return failures;
+    }
+
+    /**
+     * 成功的Topic及其结果，与对应方法正常返回时的值相同
+     */
+    public Map<String, ?> succeeded() {
+        return succeeded;
+    }
+}
@@ -12,6 +12,9 @@ public class KafkaConstants {
     public static final String TOPIC_TRANSACTION = "transaction-topic";
     public static final String TOPIC_PARTITION_TEST = "partition-test-topic";
     public static final String TOPIC_DLQ = "dead-letter-queue"; // 死信队列
+    public static final String TOPIC_INVENTORY = "inventory-topic";
+    public static final String TOPIC_POINTS = "points-topic";
+    public static final String TOPIC_ORDER_PROCESSED = "order-processed-topic"; // 消费-转换-生产管道的输出
     
     // ==================== 消费者组 ====================
     public static final String GROUP_SIMPLE = "simple-consumer-group";
@@ -19,12 +22,16 @@ public class KafkaConstants {
     public static final String GROUP_ORDER = "order-consumer-group";
     public static final String GROUP_MULTIPLE_1 = "multiple-consumer-group-1";
     public static final String GROUP_MULTIPLE_2 = "multiple-consumer-group-2";
+    public static final String GROUP_EOS_PIPELINE = "eos-pipeline-group";
     
     // ==================== 消息头 ====================
     public static final String HEADER_MESSAGE_ID = "message-id";
-    public static final String HEADER_TIMESTAMP = "timestamp";
+    public static final String HEADER_TIMESTAMP = "timestamp"; // 9字节：格式标记0x01 + 8字节大端数值，见HeaderUtils.longHeader
     public static final String HEADER_SOURCE = "source";
     public static final String HEADER_TRACE_ID = "trace-id";
+    public static final String HEADER_TYPE_ID = "type-id"; // 消息体类型，用于多类型Topic的反序列化分派
+    public static final String HEADER_MESSAGE_SEQ = "message-seq"; // 9字节：格式标记0x01 + 8字节大端数值，见HeaderUtils.longHeader
+    public static final String HEADER_SEND_TIMESTAMP = "send-timestamp"; // 9字节：格式标记0x01 + 8字节大端数值，见HeaderUtils.longHeader
     
     // ==================== 分区数量 ====================
     public static final int PARTITION_COUNT_DEFAULT = 3;
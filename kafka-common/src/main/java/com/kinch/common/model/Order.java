@@ -26,6 +26,7 @@ public class Order implements Serializable {
     private BigDecimal totalAmount;
     private String status; // PENDING, CONFIRMED, CANCELLED
     private LocalDateTime orderTime;
+    private String currency; // 币种，如CNY、USD；二进制格式v2新增
     
     public void confirm() {
         this.status = "CONFIRMED";
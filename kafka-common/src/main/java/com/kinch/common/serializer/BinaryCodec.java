@@ -0,0 +1,131 @@
+package com.kinch.common.serializer;
+
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 单个实体类型某一版本的二进制编解码器
+ *
+ * 消息体布局：
+ * [存在位图 Varint][字段1][字段2]...
+ * - 存在位图第i位为1表示第i个字段非null，null字段不占任何字节
+ * - 字段按定义顺序写出，不写字段名
+ *
+ * 版本演进规则：新版本只能在末尾追加字段。
+ * 因此旧版本的字段布局总是新版本的前缀，旧读取器读完自己认识的字段后
+ * 直接忽略剩余字节即可，无需解析未知字段。
+ *
+ * @param <T> 实体类型
+ */
+public final class BinaryCodec<T> {
+
+    private static final int MAX_FIELDS = 63;
+
+    private final int typeId;
+    private final int version;
+    private final int schemaId;
+    private final Class<T> type;
+    private final Supplier<T> factory;
+    private final List<BinaryField<T, ?>> fields;
+
+    public BinaryCodec(int typeId, int version, Class<T> type, Supplier<T> factory,
+                       List<BinaryField<T, ?>> fields) {
+        if (fields.size() > MAX_FIELDS) {
+            throw new IllegalArgumentException("Too many fields for " + type.getName() + ": " + fields.size());
+        }
+        this.typeId = typeId;
+        this.version = version;
+        this.schemaId = schemaId(typeId, version);
+        this.type = type;
+        this.factory = factory;
+        this.fields = List.copyOf(fields);
+    }
+
+    /**
+     * Schema ID：高16位为类型标识，低16位为版本号
+     * 读取端即使不认识某个版本，也能从ID中得知类型，退回到已知的最新版本
+     */
+    public static int schemaId(int typeId, int version) {
+        return (typeId << 16) | (version & 0xFFFF);
+    }
+
+    public static int typeIdOf(int schemaId) {
+        return schemaId >>> 16;
+    }
+
+    public static int versionOf(int schemaId) {
+        return schemaId & 0xFFFF;
+    }
+
+    public int typeId() {
+        return typeId;
+    }
+
+    public int version() {
+        return version;
+    }
+
+    public int schemaId() {
+        return schemaId;
+    }
+
+    /**
+     * 判断other的字段布局是否以本版本为前缀（即other只在末尾追加了字段）
+     */
+    boolean isPrefixOf(BinaryCodec<?> other) {
+        if (other.fields.size() < fields.size()) {
+            return false;
+        }
+        for (int i = 0; i < fields.size(); i++) {
+            if (!fields.get(i).name().equals(other.fields.get(i).name())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Class<T> type() {
+        return type;
+    }
+
+    public void write(T entity, BinaryWriter out) {
+        long presence = 0;
+        for (int i = 0; i < fields.size(); i++) {
+            if (fields.get(i).get(entity) != null) {
+                presence |= 1L << i;
+            }
+        }
+        out.writeUnsignedVarLong(presence);
+
+        for (int i = 0; i < fields.size(); i++) {
+            if ((presence & (1L << i)) != 0) {
+                writeField(fields.get(i), entity, out);
+            }
+        }
+    }
+
+    /**
+     * 读取本版本认识的字段
+     * 写入端版本更新时，存在位图中超出本版本的位和末尾的未知字段都被忽略
+     */
+    public T read(BinaryReader in) {
+        long presence = in.readUnsignedVarLong();
+        T entity = factory.get();
+        for (int i = 0; i < fields.size(); i++) {
+            if ((presence & (1L << i)) != 0) {
+                fields.get(i).read(in, entity);
+            }
+        }
+        return entity;
+    }
+
+    private static <T, V> void writeField(BinaryField<T, V> field, T entity, BinaryWriter out) {
+        V value = field.get(entity);
+        if (value == null) {
+            throw new SerializationException("Field " + field.name() + " changed while serializing");
+        }
+        field.write(out, value);
+    }
+}
@@ -0,0 +1,62 @@
+package com.kinch.common.serializer;
+
+import com.kinch.common.model.Order;
+import com.kinch.common.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 公共模块实体的二进制编解码器定义（各版本字段布局）
+ *
+ * 注意：
+ * 1. 字段顺序即编码顺序，已经上线的字段不能调整顺序或删除
+ * 2. 新增字段只能追加在末尾，并发布一个新版本
+ * 3. 旧版本定义需要保留，以便新消费者读取旧消息
+ */
+public final class BinaryCodecs {
+
+    public static final int TYPE_USER = 1;
+    public static final int TYPE_ORDER = 2;
+
+    private static final List<BinaryField<User, ?>> USER_FIELDS_V1 = List.of(
+        BinaryField.varLong("id", User::getId, User::setId),
+        BinaryField.string("username", User::getUsername, User::setUsername),
+        BinaryField.string("email", User::getEmail, User::setEmail),
+        BinaryField.varInt("age", User::getAge, User::setAge),
+        BinaryField.timestamp("createTime", User::getCreateTime, User::setCreateTime)
+    );
+
+    private static final List<BinaryField<Order, ?>> ORDER_FIELDS_V1 = List.of(
+        BinaryField.string("orderId", Order::getOrderId, Order::setOrderId),
+        BinaryField.varLong("userId", Order::getUserId, Order::setUserId),
+        BinaryField.string("productName", Order::getProductName, Order::setProductName),
+        BinaryField.varInt("quantity", Order::getQuantity, Order::setQuantity),
+        BinaryField.decimal("totalAmount", Order::getTotalAmount, Order::setTotalAmount),
+        BinaryField.string("status", Order::getStatus, Order::setStatus),
+        BinaryField.timestamp("orderTime", Order::getOrderTime, Order::setOrderTime)
+    );
+
+    public static final BinaryCodec<User> USER_V1 =
+        new BinaryCodec<>(TYPE_USER, 1, User.class, User::new, USER_FIELDS_V1);
+
+    public static final BinaryCodec<Order> ORDER_V1 =
+        new BinaryCodec<>(TYPE_ORDER, 1, Order.class, Order::new, ORDER_FIELDS_V1);
+
+    /**
+     * v2：追加币种字段
+     */
+    public static final BinaryCodec<Order> ORDER_V2 =
+        new BinaryCodec<>(TYPE_ORDER, 2, Order.class, Order::new, append(ORDER_FIELDS_V1,
+            List.of(BinaryField.string("currency", Order::getCurrency, Order::setCurrency))));
+
+    private BinaryCodecs() {
+        // 工具类，防止实例化
+    }
+
+    private static <T> List<BinaryField<T, ?>> append(List<BinaryField<T, ?>> base, List<BinaryField<T, ?>> added) {
+        List<BinaryField<T, ?>> fields = new ArrayList<>(base);
+        fields.addAll(added);
+        return fields;
+    }
+}
@@ -0,0 +1,70 @@
+package com.kinch.common.serializer;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.utils.Utils;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * 二进制反序列化器 - 与{@link BinarySerializer}配对使用
+ * 按信封中的Schema ID选择编解码器，同一Topic可以混合User和Order
+ * 
+ * 兼容性：
+ * - 消息版本比本地旧：使用对应的旧版本布局读取，新增字段保持null
+ * - 消息版本比本地新：使用本地最新版本读取，末尾未知字段直接忽略
+ */
+public class BinaryDeserializer<T> implements Deserializer<T> {
+    
+    private BinarySchemaStore schemaStore = BinarySchemaStore.getDefault();
+    
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        this.schemaStore = BinarySchemaStore.fromConfig(configs);
+    }
+    
+    @Override
+    public T deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        return read(new BinaryReader(data));
+    }
+    
+    /**
+     * 堆内缓冲区直接在底层数组上读取，避免拷贝
+     */
+    @Override
+    public T deserialize(String topic, Headers headers, ByteBuffer data) {
+        if (data == null) {
+            return null;
+        }
+        if (data.hasArray()) {
+            return read(new BinaryReader(data.array(), data.arrayOffset() + data.position(), data.remaining()));
+        }
+        return deserialize(topic, Utils.toArray(data));
+    }
+    
+    @SuppressWarnings("unchecked")
+    private T read(BinaryReader reader) {
+        try {
+            int magic = reader.readByte();
+            if (magic != BinarySerializer.MAGIC_BYTE) {
+                throw new SerializationException("Unknown magic byte: " + magic);
+            }
+            int schemaId = reader.readInt();
+            BinaryCodec<?> codec = schemaStore.readerFor(schemaId);
+            if (codec == null) {
+                throw new SerializationException("Unknown binary schema: type="
+                    + BinaryCodec.typeIdOf(schemaId) + ", version=" + BinaryCodec.versionOf(schemaId));
+            }
+            return (T) codec.read(reader);
+        } catch (SerializationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SerializationException("Error deserializing binary message", e);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.kinch.common.serializer;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 二进制字段定义 - 字段名、取值/赋值方法与编码方式的组合
+ *
+ * 字段通过getter/setter方法引用绑定，编解码时不使用反射
+ *
+ * @param <T> 所属实体类型
+ * @param <V> 字段值类型
+ */
+public final class BinaryField<T, V> {
+
+    private final String name;
+    private final Function<T, V> getter;
+    private final BiConsumer<T, V> setter;
+    private final ValueWriter<V> writer;
+    private final ValueReader<V> reader;
+
+    private BinaryField(String name, Function<T, V> getter, BiConsumer<T, V> setter,
+                        ValueWriter<V> writer, ValueReader<V> reader) {
+        this.name = name;
+        this.getter = getter;
+        this.setter = setter;
+        this.writer = writer;
+        this.reader = reader;
+    }
+
+    public static <T> BinaryField<T, Long> varLong(String name, Function<T, Long> getter,
+                                                   BiConsumer<T, Long> setter) {
+        return new BinaryField<>(name, getter, setter, BinaryWriter::writeVarLong, BinaryReader::readVarLong);
+    }
+
+    public static <T> BinaryField<T, Integer> varInt(String name, Function<T, Integer> getter,
+                                                     BiConsumer<T, Integer> setter) {
+        return new BinaryField<>(name, getter, setter, BinaryWriter::writeVarInt, BinaryReader::readVarInt);
+    }
+
+    public static <T> BinaryField<T, String> string(String name, Function<T, String> getter,
+                                                    BiConsumer<T, String> setter) {
+        return new BinaryField<>(name, getter, setter, BinaryWriter::writeString, BinaryReader::readString);
+    }
+
+    public static <T> BinaryField<T, LocalDateTime> timestamp(String name, Function<T, LocalDateTime> getter,
+                                                              BiConsumer<T, LocalDateTime> setter) {
+        return new BinaryField<>(name, getter, setter, BinaryWriter::writeTimestamp, BinaryReader::readTimestamp);
+    }
+
+    public static <T> BinaryField<T, BigDecimal> decimal(String name, Function<T, BigDecimal> getter,
+                                                         BiConsumer<T, BigDecimal> setter) {
+        return new BinaryField<>(name, getter, setter, BinaryWriter::writeDecimal, BinaryReader::readDecimal);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * 取出字段值，null表示该字段缺省
+     */
+    V get(T entity) {
+        return getter.apply(entity);
+    }
+
+    void write(BinaryWriter out, V value) {
+        writer.write(out, value);
+    }
+
+    void read(BinaryReader in, T entity) {
+        setter.accept(entity, reader.read(in));
+    }
+
+    @FunctionalInterface
+    private interface ValueWriter<V> {
+        void write(BinaryWriter out, V value);
+    }
+
+    @FunctionalInterface
+    private interface ValueReader<V> {
+        V read(BinaryReader in);
+    }
+}
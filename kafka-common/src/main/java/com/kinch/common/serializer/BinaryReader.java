@@ -0,0 +1,121 @@
+package com.kinch.common.serializer;
+
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * 二进制读取器 - 与{@link BinaryWriter}的编码规则一一对应
+ * 直接在原始字节数组的 [offset, offset + length) 区间上读取，不做拷贝
+ */
+public class BinaryReader {
+
+    private final byte[] buffer;
+    private final int limit;
+    private int position;
+
+    public BinaryReader(byte[] buffer) {
+        this(buffer, 0, buffer.length);
+    }
+
+    public BinaryReader(byte[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    public boolean hasRemaining() {
+        return position < limit;
+    }
+
+    public int readByte() {
+        require(1);
+        return buffer[position++];
+    }
+
+    public int readInt() {
+        require(4);
+        int value = ((buffer[position] & 0xFF) << 24)
+            | ((buffer[position + 1] & 0xFF) << 16)
+            | ((buffer[position + 2] & 0xFF) << 8)
+            | (buffer[position + 3] & 0xFF);
+        position += 4;
+        return value;
+    }
+
+    public long readUnsignedVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            require(1);
+            byte b = buffer[position++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new SerializationException("Malformed varint");
+    }
+
+    public long readVarLong() {
+        long raw = readUnsignedVarLong();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    public int readVarInt() {
+        int raw = (int) readUnsignedVarLong();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    public String readString() {
+        int length = readLength();
+        String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    public byte[] readBytes() {
+        int length = readLength();
+        byte[] value = new byte[length];
+        System.arraycopy(buffer, position, value, 0, length);
+        position += length;
+        return value;
+    }
+
+    public LocalDateTime readTimestamp() {
+        long epochSecond = readVarLong();
+        int nano = (int) readUnsignedVarLong();
+        return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+    }
+
+    public BigDecimal readDecimal() {
+        int scale = readVarInt();
+        int length = readLength();
+        if (length == 0) {
+            return BigDecimal.valueOf(readVarLong(), scale);
+        }
+        BigInteger unscaled = new BigInteger(buffer, position, length);
+        position += length;
+        return new BigDecimal(unscaled, scale);
+    }
+
+    private int readLength() {
+        long length = readUnsignedVarLong();
+        if (length < 0) {
+            throw new SerializationException("Negative length " + length + ", data is corrupted");
+        }
+        if (length > limit - position) {
+            throw new SerializationException("Length " + length + " exceeds remaining bytes");
+        }
+        return (int) length;
+    }
+
+    private void require(int bytes) {
+        if (position + bytes > limit) {
+            throw new SerializationException("Unexpected end of binary message");
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.kinch.common.serializer;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 进程内Schema仓库 - 代替独立的Schema Registry服务
+ *
+ * 核心知识点：
+ * 1. 每个实体类型的所有版本都在这里注册，写入端总是使用最新版本
+ * 2. 读取端优先使用与消息完全一致的版本；遇到比自己新的版本时，
+ *    退回到本地已知的最新版本，只读前缀字段，忽略末尾的新字段
+ * 3. 注册时校验新版本是否只在末尾追加字段，不合规的演进直接拒绝
+ *
+ * 查找走数组下标而不是Map，消费路径上没有装箱和哈希
+ * 注册采用写时复制，三张索引放在同一个不可变快照中整体发布，读取无锁且总能看到一致的索引
+ */
+public class BinarySchemaStore {
+
+    /**
+     * 通过该配置项向序列化器/反序列化器传入自定义的Schema仓库实例
+     */
+    public static final String SCHEMA_STORE_CONFIG = "binary.schema.store";
+
+    private static final int MAX_TYPE_ID = 255;
+
+    private static final BinarySchemaStore DEFAULT = new BinarySchemaStore()
+        .register(BinaryCodecs.USER_V1)
+        .register(BinaryCodecs.ORDER_V1)
+        .register(BinaryCodecs.ORDER_V2);
+
+    private volatile Snapshot snapshot = new Snapshot(new BinaryCodec<?>[0][], new BinaryCodec<?>[0], Map.of());
+
+    /**
+     * 默认仓库 - 包含公共模块中User、Order的全部版本
+     */
+    public static BinarySchemaStore getDefault() {
+        return DEFAULT;
+    }
+
+    public static BinarySchemaStore fromConfig(Map<String, ?> configs) {
+        Object store = configs.get(SCHEMA_STORE_CONFIG);
+        return store instanceof BinarySchemaStore ? (BinarySchemaStore) store : DEFAULT;
+    }
+
+    /**
+     * 注册一个版本，版本号必须大于该类型已注册的版本，且字段布局以旧版本为前缀
+     */
+    public synchronized BinarySchemaStore register(BinaryCodec<?> codec) {
+        int typeId = codec.typeId();
+        if (typeId <= 0 || typeId > MAX_TYPE_ID) {
+            throw new IllegalArgumentException("Type id out of range: " + typeId);
+        }
+
+        Snapshot current = snapshot;
+        BinaryCodec<?> previous = typeId < current.latest.length ? current.latest[typeId] : null;
+        if (previous != null) {
+            if (previous.type() != codec.type()) {
+                throw new IllegalArgumentException("Type id " + typeId + " already bound to "
+                    + previous.type().getName());
+            }
+            if (codec.version() <= previous.version()) {
+                throw new IllegalArgumentException("Version " + codec.version() + " of "
+                    + codec.type().getName() + " is not newer than " + previous.version());
+            }
+            if (!previous.isPrefixOf(codec)) {
+                throw new IllegalArgumentException("Version " + codec.version() + " of "
+                    + codec.type().getName() + " must only append fields to version " + previous.version());
+            }
+        }
+
+        BinaryCodec<?>[][] newVersions = Arrays.copyOf(current.versions, Math.max(current.versions.length, typeId + 1));
+        BinaryCodec<?>[] typeVersions = newVersions[typeId] == null
+            ? new BinaryCodec<?>[0] : newVersions[typeId];
+        typeVersions = Arrays.copyOf(typeVersions, Math.max(typeVersions.length, codec.version() + 1));
+        typeVersions[codec.version()] = codec;
+        newVersions[typeId] = typeVersions;
+
+        BinaryCodec<?>[] newLatest = Arrays.copyOf(current.latest, Math.max(current.latest.length, typeId + 1));
+        newLatest[typeId] = codec;
+
+        Map<Class<?>, BinaryCodec<?>> newLatestByType = new HashMap<>(current.latestByType);
+        newLatestByType.put(codec.type(), codec);
+
+        snapshot = new Snapshot(newVersions, newLatest, newLatestByType);
+        return this;
+    }
+
+    /**
+     * 写入端使用的编解码器（该类型的最新版本），未注册返回null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> BinaryCodec<T> writerFor(Class<?> type) {
+        return (BinaryCodec<T>) snapshot.latestByType.get(type);
+    }
+
+    /**
+     * 读取端使用的编解码器，无法读取时返回null
+     * 1. 本地有完全一致的版本：直接使用
+     * 2. 消息版本比本地已知版本新：使用本地最新版本读取前缀字段
+     * 3. 类型未知，或消息版本比本地旧但本地缺少该版本：无法读取
+     */
+    public BinaryCodec<?> readerFor(int schemaId) {
+        int typeId = BinaryCodec.typeIdOf(schemaId);
+        int version = BinaryCodec.versionOf(schemaId);
+
+        Snapshot current = snapshot;
+        if (typeId >= current.versions.length || current.versions[typeId] == null) {
+            return null;
+        }
+
+        BinaryCodec<?>[] typeVersions = current.versions[typeId];
+        if (version < typeVersions.length && typeVersions[version] != null) {
+            return typeVersions[version];
+        }
+
+        BinaryCodec<?> newestKnown = current.latest[typeId];
+        return newestKnown.version() < version ? newestKnown : null;
+    }
+
+    /**
+     * 注册后不再修改的索引
+     *
+     * @param versions versions[typeId][version]
+     * @param latest latest[typeId]，与versions同时发布，长度总是一致
+     */
+    private record Snapshot(BinaryCodec<?>[][] versions, BinaryCodec<?>[] latest,
+                            Map<Class<?>, BinaryCodec<?>> latestByType) {
+    }
+}
@@ -0,0 +1,178 @@
+package com.kinch.common.serializer;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * 二进制写入器 - 可复用的可增长缓冲区
+ *
+ * 编码规则：
+ * 1. 整数：ZigZag + Varint，小数值只占1~2个字节
+ * 2. 字符串：Varint长度 + UTF-8字节，直接编码进缓冲区
+ * 3. 时间：UTC纪元秒（ZigZag Varint） + 纳秒（Varint），不再以字符串传输
+ * 4. 金额：scale（ZigZag Varint） + 非标度值，非标度值能放进long时按Varint写，否则写补码字节
+ *
+ * 非线程安全，一个线程持有一个实例，通过{@link #reset()}复用
+ */
+public class BinaryWriter {
+
+    private byte[] buffer;
+    private int position;
+
+    public BinaryWriter() {
+        this(256);
+    }
+
+    public BinaryWriter(int initialCapacity) {
+        this.buffer = new byte[initialCapacity];
+    }
+
+    public void reset() {
+        position = 0;
+    }
+
+    public int size() {
+        return position;
+    }
+
+    /**
+     * 拷贝出当前内容，Kafka需要独立的字节数组
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    public void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) value;
+    }
+
+    public void writeInt(int value) {
+        ensureCapacity(4);
+        buffer[position++] = (byte) (value >>> 24);
+        buffer[position++] = (byte) (value >>> 16);
+        buffer[position++] = (byte) (value >>> 8);
+        buffer[position++] = (byte) value;
+    }
+
+    public void writeUnsignedVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    public void writeVarLong(long value) {
+        writeUnsignedVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public void writeVarInt(int value) {
+        writeUnsignedVarLong(((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+    }
+
+    public void writeString(String value) {
+        int length = value.length();
+        int start = position;
+        // ASCII快速路径：假设字符数即字节数，一遍完成检查和拷贝；遇到非ASCII字符时回退重写
+        writeUnsignedVarLong(length);
+        ensureCapacity(length);
+        byte[] out = buffer;
+        int pos = position;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                position = start;
+                writeUtf8(value, length);
+                return;
+            }
+            out[pos++] = (byte) c;
+        }
+        position = pos;
+    }
+
+    public void writeBytes(byte[] value) {
+        writeUnsignedVarLong(value.length);
+        ensureCapacity(value.length);
+        System.arraycopy(value, 0, buffer, position, value.length);
+        position += value.length;
+    }
+
+    public void writeTimestamp(LocalDateTime value) {
+        writeVarLong(value.toEpochSecond(ZoneOffset.UTC));
+        writeUnsignedVarLong(value.getNano());
+    }
+
+    public void writeDecimal(BigDecimal value) {
+        writeVarInt(value.scale());
+        BigInteger unscaled = value.unscaledValue();
+        if (unscaled.bitLength() < 64) {
+            // 0 表示后面跟的是long形式的非标度值
+            writeUnsignedVarLong(0);
+            writeVarLong(unscaled.longValue());
+        } else {
+            writeBytes(unscaled.toByteArray());
+        }
+    }
+
+    /**
+     * 非ASCII字符串直接按UTF-8编码进缓冲区，不经过getBytes的临时数组
+     */
+    private void writeUtf8(String value, int length) {
+        int utf8Length = utf8Length(value, length);
+        writeUnsignedVarLong(utf8Length);
+        ensureCapacity(utf8Length);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // 不成对的代理字符，与String.getBytes一样替换为'?'
+                buffer[position++] = '?';
+            } else {
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private static int utf8Length(String value, int length) {
+        int bytes = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                bytes++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (position + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, position + extra));
+        }
+    }
+}
@@ -1,20 +1,35 @@
 package com.kinch.common.serializer;
 
 import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONReader;
+import com.kinch.common.constant.KafkaConstants;
 import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
 import org.apache.kafka.common.serialization.Deserializer;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 /**
  * 通用JSON反序列化器 - 使用FastJSON2
  * 用于演示自定义反序列化器的实现
+ * 
+ * 性能说明：
+ * 直接从UTF-8字节解析，不再先构造中间String；
+ * ByteBuffer重载直接在原始缓冲区的切片上解析，避免Kafka默认实现的数组拷贝。
+ * 
+ * 多类型分派：
+ * 消息带有type-id头时，按{@link JsonTypeRegistry}中预先解析好的类型反序列化；
+ * 没有类型头、类型未注册或与targetType不兼容时，回退到配置的targetType。
  */
 public class JsonDeserializer<T> implements Deserializer<T> {
     
     private Class<T> targetType;
     
+    private JsonTypeRegistry typeRegistry = JsonTypeRegistry.defaults();
+    
     public JsonDeserializer() {
     }
     
@@ -24,6 +39,9 @@ public class JsonDeserializer<T> implements Deserializer<T> {
     
     @Override
     public void configure(Map<String, ?> configs, boolean isKey) {
+        this.typeRegistry = JsonTypeRegistry.fromConfig(configs,
+            JsonTypeRegistry.DESERIALIZER_TYPE_MAPPINGS_CONFIG);
+        
         if (targetType == null) {
             // 尝试从配置中获取目标类型
             Object typeConfig = configs.get("value.deserializer.target.type");
@@ -45,16 +63,92 @@ public class JsonDeserializer<T> implements Deserializer<T> {
             return null;
         }
         
-        if (targetType == null) {
-            throw new SerializationException("Target type is not configured for deserialization");
+        checkTargetType();
+        
+        try {
+            return JSON.parseObject(data, targetType);
+        } catch (Exception e) {
+            throw new SerializationException("Error deserializing JSON message", e);
+        }
+    }
+    
+    /**
+     * 按类型头分派的反序列化
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        
+        JsonTypeRegistry.Entry entry = lookupType(headers);
+        if (entry == null) {
+            return deserialize(topic, data);
+        }
+        
+        try {
+            return (T) entry.read(data, 0, data.length);
+        } catch (Exception e) {
+            throw new SerializationException("Error deserializing JSON message", e);
+        }
+    }
+    
+    /**
+     * 直接在ByteBuffer上解析
+     * 堆内缓冲区按 offset/length 解析底层数组，堆外缓冲区交给FastJSON2的ByteBuffer读取器
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T deserialize(String topic, Headers headers, ByteBuffer data) {
+        if (data == null) {
+            return null;
+        }
+        
+        JsonTypeRegistry.Entry entry = lookupType(headers);
+        if (entry != null) {
+            try {
+                return (T) entry.read(data);
+            } catch (Exception e) {
+                throw new SerializationException("Error deserializing JSON message", e);
+            }
         }
         
+        checkTargetType();
+        
         try {
-            String jsonStr = new String(data, StandardCharsets.UTF_8);
-            return JSON.parseObject(jsonStr, targetType);
+            if (data.hasArray()) {
+                return JSON.parseObject(data.array(), data.arrayOffset() + data.position(),
+                    data.remaining(), StandardCharsets.UTF_8, targetType);
+            }
+            try (JSONReader reader = JSONReader.of(data.duplicate(), StandardCharsets.UTF_8)) {
+                return reader.read(targetType);
+            }
         } catch (Exception e) {
             throw new SerializationException("Error deserializing JSON message", e);
         }
     }
+    
+    private JsonTypeRegistry.Entry lookupType(Headers headers) {
+        if (headers == null) {
+            return null;
+        }
+        Header typeHeader = headers.lastHeader(KafkaConstants.HEADER_TYPE_ID);
+        if (typeHeader == null) {
+            return null;
+        }
+        JsonTypeRegistry.Entry entry = typeRegistry.lookup(typeHeader.value());
+        // 显式指定了targetType时，只接受与之兼容的类型
+        if (entry == null || (targetType != null && !targetType.isAssignableFrom(entry.type()))) {
+            return null;
+        }
+        return entry;
+    }
+    
+    private void checkTargetType() {
+        if (targetType == null) {
+            throw new SerializationException("Target type is not configured for deserialization");
+        }
+    }
 }
 
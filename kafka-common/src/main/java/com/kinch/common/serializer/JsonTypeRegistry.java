@@ -0,0 +1,146 @@
+package com.kinch.common.serializer;
+
+import com.alibaba.fastjson2.JSONFactory;
+import com.alibaba.fastjson2.JSONReader;
+import com.alibaba.fastjson2.reader.ObjectReader;
+import com.kinch.common.model.Order;
+import com.kinch.common.model.User;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JSON类型注册表 - 类型ID与Java类型的映射
+ *
+ * 核心知识点：
+ * 1. 序列化器把类型ID写入消息头（type-id），反序列化器按类型ID分派
+ * 2. 一个Topic可以同时承载多种消息类型（如User和Order）
+ * 3. 类型ID的字节形式和ObjectReader在注册时预先计算，
+ *    消费时不再有Class.forName或反射查找
+ *
+ * 配置格式：id:全限定类名，多个映射用逗号分隔
+ * 例如：user:com.kinch.common.model.User,order:com.kinch.common.model.Order
+ */
+public class JsonTypeRegistry {
+
+    public static final String SERIALIZER_TYPE_MAPPINGS_CONFIG = "value.serializer.type.mappings";
+    public static final String DESERIALIZER_TYPE_MAPPINGS_CONFIG = "value.deserializer.type.mappings";
+
+    public static final String TYPE_ID_USER = "user";
+    public static final String TYPE_ID_ORDER = "order";
+
+    private final Map<Class<?>, byte[]> typeIds = new HashMap<>();
+
+    // 类型数量很少，线性扫描比先解码成String再查Map更省
+    private Entry[] entries = new Entry[0];
+
+    /**
+     * 默认注册表 - 包含公共模块中的User和Order
+     */
+    public static JsonTypeRegistry defaults() {
+        return new JsonTypeRegistry()
+            .register(TYPE_ID_USER, User.class)
+            .register(TYPE_ID_ORDER, Order.class);
+    }
+
+    /**
+     * 在默认注册表基础上，追加配置中声明的映射
+     */
+    public static JsonTypeRegistry fromConfig(Map<String, ?> configs, String configName) {
+        JsonTypeRegistry registry = defaults();
+        Object mappings = configs.get(configName);
+        if (!(mappings instanceof String) || ((String) mappings).isBlank()) {
+            return registry;
+        }
+
+        for (String mapping : ((String) mappings).split(",")) {
+            String[] parts = mapping.trim().split(":");
+            if (parts.length != 2) {
+                throw new SerializationException("Invalid type mapping: " + mapping);
+            }
+            try {
+                registry.register(parts[0].trim(), Class.forName(parts[1].trim()));
+            } catch (ClassNotFoundException e) {
+                throw new SerializationException("Cannot find type mapping class: " + parts[1], e);
+            }
+        }
+        return registry;
+    }
+
+    /**
+     * 注册类型ID，重复注册同一类型时后者覆盖前者
+     */
+    public JsonTypeRegistry register(String typeId, Class<?> type) {
+        byte[] idBytes = typeId.getBytes(StandardCharsets.UTF_8);
+        ObjectReader<?> reader = JSONFactory.getDefaultObjectReaderProvider().getObjectReader(type);
+
+        typeIds.put(type, idBytes);
+
+        Entry[] updated = Arrays.copyOf(entries, entries.length + 1);
+        updated[entries.length] = new Entry(idBytes, type, reader);
+        entries = updated;
+        return this;
+    }
+
+    /**
+     * 获取类型ID的字节形式，未注册返回null
+     * 返回的数组被所有消息共享，调用方不能修改
+     */
+    public byte[] typeIdOf(Class<?> type) {
+        return typeIds.get(type);
+    }
+
+    /**
+     * 按消息头中的类型ID查找，未注册返回null
+     */
+    public Entry lookup(byte[] typeId) {
+        if (typeId == null) {
+            return null;
+        }
+        // 倒序扫描，保证后注册的映射优先
+        for (int i = entries.length - 1; i >= 0; i--) {
+            if (Arrays.equals(entries[i].typeId, typeId)) {
+                return entries[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 注册项：预先解析好的类型与ObjectReader
+     */
+    public static final class Entry {
+        private final byte[] typeId;
+        private final Class<?> type;
+        private final ObjectReader<?> reader;
+
+        private Entry(byte[] typeId, Class<?> type, ObjectReader<?> reader) {
+            this.typeId = typeId;
+            this.type = type;
+            this.reader = reader;
+        }
+
+        public Class<?> type() {
+            return type;
+        }
+
+        public Object read(byte[] data, int offset, int length) {
+            try (JSONReader jsonReader = JSONReader.of(data, offset, length, StandardCharsets.UTF_8)) {
+                return reader.readObject(jsonReader, type, null, 0);
+            }
+        }
+
+        public Object read(ByteBuffer data) {
+            if (data.hasArray()) {
+                return read(data.array(), data.arrayOffset() + data.position(), data.remaining());
+            }
+            try (JSONReader jsonReader = JSONReader.of(data.duplicate(), StandardCharsets.UTF_8)) {
+                return reader.readObject(jsonReader, type, null, 0);
+            }
+        }
+    }
+}
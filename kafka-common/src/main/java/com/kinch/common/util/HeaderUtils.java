@@ -0,0 +1,112 @@
+package com.kinch.common.util;
+
+import com.kinch.common.constant.KafkaConstants;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+/**
+ * 消息头工具类
+ *
+ * 核心知识点：
+ * 1. 常量消息头（如来源标识）只编码一次，所有消息共享同一个Header实例，
+ *    Header在序列化时只会被读取，共享是安全的
+ * 2. 序号、时间戳等数值消息头使用固定9字节编码：1字节格式标记 + 8字节大端数值，
+ *    不再经过 String.valueOf + getBytes 两次分配
+ * 3. 读取时兼容旧格式（UTF-8十进制字符串）：格式标记0x01不是数字字符也不是负号，
+ *    所以任何长度的旧值（包括恰好8位的十进制数）都不会被误当成二进制数值
+ */
+public final class HeaderUtils {
+
+    /**
+     * 按数值编码（格式标记 + 8字节大端）的消息头，日志展示时需要解码
+     */
+    private static final byte LONG_FORMAT_BINARY = 0x01;
+
+    private static final int LONG_HEADER_BYTES = 1 + Long.BYTES;
+
+    private static final Set<String> LONG_HEADERS = Set.of(
+        KafkaConstants.HEADER_TIMESTAMP,
+        KafkaConstants.HEADER_MESSAGE_SEQ,
+        KafkaConstants.HEADER_SEND_TIMESTAMP
+    );
+
+    private HeaderUtils() {
+        // 工具类，防止实例化
+    }
+
+    /**
+     * 预编码的常量消息头，应保存在静态字段或实例字段中复用
+     */
+    public static Header constant(String key, String value) {
+        return new RecordHeader(key, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 格式标记 + 8字节大端编码的数值消息头
+     */
+    public static Header longHeader(String key, long value) {
+        byte[] bytes = new byte[LONG_HEADER_BYTES];
+        bytes[0] = LONG_FORMAT_BINARY;
+        for (int i = LONG_HEADER_BYTES - 1; i > 0; i--) {
+            bytes[i] = (byte) value;
+            value >>>= 8;
+        }
+        return new RecordHeader(key, bytes);
+    }
+
+    /**
+     * 读取数值消息头
+     *
+     * @return 消息头不存在或无法解析时返回defaultValue
+     */
+    public static long readLong(Header header, long defaultValue) {
+        if (header == null || header.value() == null) {
+            return defaultValue;
+        }
+        byte[] bytes = header.value();
+        if (isBinaryLong(bytes)) {
+            long value = 0;
+            for (int i = 1; i < LONG_HEADER_BYTES; i++) {
+                value = (value << 8) | (bytes[i] & 0xFF);
+            }
+            return value;
+        }
+        try {
+            // 旧格式：UTF-8十进制字符串
+            return Long.parseLong(new String(bytes, StandardCharsets.UTF_8));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * 读取字符串消息头
+     */
+    public static String readString(Header header) {
+        if (header == null || header.value() == null) {
+            return null;
+        }
+        return new String(header.value(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 转换成便于日志展示的字符串，数值消息头解码为十进制，二进制消息ID转为字符串形式
+     */
+    public static String toDisplayString(Header header) {
+        if (header.value() != null && isBinaryLong(header.value()) && LONG_HEADERS.contains(header.key())) {
+            return String.valueOf(readLong(header, -1));
+        }
+        if (header.value() != null && header.value().length == TimeOrderedId.BYTES
+                && KafkaConstants.HEADER_MESSAGE_ID.equals(header.key())) {
+            return TimeOrderedId.toString(header.value());
+        }
+        return readString(header);
+    }
+
+    private static boolean isBinaryLong(byte[] bytes) {
+        return bytes.length == LONG_HEADER_BYTES && bytes[0] == LONG_FORMAT_BINARY;
+    }
+}
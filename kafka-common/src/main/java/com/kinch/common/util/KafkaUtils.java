@@ -1,13 +1,13 @@
 package com.kinch.common.util;
 
-import org.apache.kafka.clients.admin.AdminClient;
-import org.apache.kafka.clients.admin.AdminClientConfig;
+import com.kinch.common.admin.KafkaMetadataService;
 import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.KafkaException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.*;
-import java.util.concurrent.ExecutionException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 
 /**
  * Kafka工具类
@@ -18,62 +18,102 @@ public class KafkaUtils {
     
     /**
      * 创建Topic（如果不存在）
+     * 委托给应用内唯一的元数据服务（复用其AdminClient），直接创建，已存在时由Broker返回TopicExistsException
      */
-    public static void createTopicIfNotExists(String bootstrapServers, 
+    public static void createTopicIfNotExists(KafkaMetadataService metadataService, 
                                              String topicName, 
                                              int numPartitions, 
                                              short replicationFactor) {
-        Properties props = new Properties();
-        props.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        
-        try (AdminClient adminClient = AdminClient.create(props)) {
-            // 检查Topic是否存在
-            Set<String> existingTopics = adminClient.listTopics().names().get();
-            
-            if (!existingTopics.contains(topicName)) {
-                NewTopic newTopic = new NewTopic(topicName, numPartitions, replicationFactor);
-                adminClient.createTopics(Collections.singleton(newTopic)).all().get();
+        try {
+            NewTopic newTopic = new NewTopic(topicName, numPartitions, replicationFactor);
+            if (metadataService.createTopic(newTopic)) {
                 logger.info("Topic创建成功: {}, 分区数: {}, 副本数: {}", 
                     topicName, numPartitions, replicationFactor);
             } else {
                 logger.info("Topic已存在: {}", topicName);
             }
-        } catch (InterruptedException | ExecutionException e) {
+        } catch (KafkaException e) {
             logger.error("创建Topic失败: {}", topicName, e);
-            Thread.currentThread().interrupt();
         }
     }
     
     /**
      * 获取Topic的分区数
+     * Topic描述在元数据服务中按TTL缓存
      */
-    public static int getTopicPartitionCount(String bootstrapServers, String topicName) {
-        Properties props = new Properties();
-        props.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        
-        try (AdminClient adminClient = AdminClient.create(props)) {
-            var description = adminClient.describeTopics(Collections.singleton(topicName))
-                .allTopicNames().get();
-            return description.get(topicName).partitions().size();
-        } catch (InterruptedException | ExecutionException e) {
+    public static int getTopicPartitionCount(KafkaMetadataService metadataService, String topicName) {
+        try {
+            return metadataService.partitionCount(topicName);
+        } catch (KafkaException e) {
             logger.error("获取Topic分区数失败: {}", topicName, e);
-            Thread.currentThread().interrupt();
             return -1;
         }
     }
     
     /**
-     * 生成唯一消息ID
+     * 解析事务实例ID：配置了就直接使用，未配置时退回到主机名（取不到时为local）并打印WARN
+     * 主机名在同机多进程、多副本时并不唯一，只适合本地单实例运行；多实例部署必须通过KAFKA_INSTANCE_ID
+     * 为每个实例配置唯一且固定的值
+     *
+     * @param configured 配置的实例ID，可以为空
+     * @param property 配置项名称，用于日志提示
+     */
+    public static String resolveInstanceId(String configured, String property) {
+        if (configured != null && !configured.isBlank()) {
+            return configured.strip();
+        }
+        String fallback = localHostName();
+        logger.warn("未配置{}（环境变量KAFKA_INSTANCE_ID），事务实例ID使用默认值: {}。"
+            + "该值只适合本地单实例运行，多实例部署时相同的transactional.id会互相fence，"
+            + "必须为每个实例配置唯一且重启后不变的值", property, fallback);
+        return fallback;
+    }
+    
+    private static String localHostName() {
+        String hostName = System.getenv("HOSTNAME");
+        if (hostName == null || hostName.isBlank()) {
+            try {
+                hostName = InetAddress.getLocalHost().getHostName();
+            } catch (UnknownHostException e) {
+                hostName = null;
+            }
+        }
+        return hostName == null || hostName.isBlank() ? "local" : hostName.strip();
+    }
+    
+    /**
+     * 生成带实例ID的transactional.id前缀：{base}-{instanceId}-
+     * transactional.id相同的Producer会互相fence，多实例部署时每个实例的instanceId必须不同，且重启后保持不变
+     * （新实例才能fence掉崩溃前的旧Producer）；instanceId先经过{@link #resolveInstanceId}解析，
+     * 这里仍为空说明调用方漏掉了解析，直接抛出异常
+     */
+    public static String transactionalIdPrefix(String base, String instanceId) {
+        if (instanceId == null || instanceId.isBlank()) {
+            throw new IllegalStateException("transactional.id前缀" + base + "缺少实例ID，多实例部署时必须为每个实例配置唯一且固定的instance-id");
+        }
+        return base + "-" + instanceId.strip() + "-";
+    }
+    
+    /**
+     * 生成唯一消息ID（26位，按生成时间有序）
+     * 不使用UUID.randomUUID()，避免每次都经过SecureRandom
      */
     public static String generateMessageId() {
-        return UUID.randomUUID().toString();
+        return TimeOrderedId.nextString();
+    }
+    
+    /**
+     * 生成二进制形式的消息ID（16字节），用于消息头
+     */
+    public static byte[] generateMessageIdBytes() {
+        return TimeOrderedId.nextBytes();
     }
     
     /**
      * 生成TraceID用于链路追踪
      */
     public static String generateTraceId() {
-        return System.currentTimeMillis() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        return TimeOrderedId.nextString();
     }
 }
 
@@ -0,0 +1,174 @@
+package com.kinch.common.util;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按时间有序的128位ID（类似ULID / Snowflake）
+ *
+ * 核心知识点：
+ * 1. UUID.randomUUID()每次都走SecureRandom，高并发下会竞争甚至阻塞；
+ *    这里只在类加载时取一次安全随机数，之后每个线程从自己预留的计数区间里递增，无锁、无系统调用以外的开销
+ * 2. 高48位是毫秒时间戳，按字节比较或按字符串比较都与生成时间一致
+ * 3. 二进制形式16字节，适合放在消息头；字符串形式是26位Crockford Base32，适合日志和接口
+ *
+ * 位布局（高位在前）：
+ * | 48位毫秒时间戳 | 48位进程内计数 | 32位进程随机数 |
+ * 进程内计数是全局计数器，每个线程一次预留{@link #COUNTER_BLOCK}个值，用完再取下一段，
+ * 因此同一进程内任意两个ID的计数都不同，与线程数量无关（虚拟线程每个任务一个线程也不会重复）；
+ * 计数器的起点和进程随机数都来自SecureRandom，不同进程之间依靠它们区分
+ */
+public final class TimeOrderedId {
+
+    public static final int BYTES = 16;
+
+    public static final int STRING_LENGTH = 26;
+
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    private static final byte[] DECODE = new byte[128];
+
+    private static final long COUNTER_MASK = (1L << 48) - 1;
+
+    // 每个线程一次预留的计数值个数，只生成少量ID就结束的线程最多浪费这么多
+    static final int COUNTER_BLOCK = 1024;
+
+    private static final SecureRandom SEED = new SecureRandom();
+
+    private static final long PROCESS_RANDOM = SEED.nextInt() & 0xFFFFFFFFL;
+
+    // 计数器48位，按毫秒时间戳排在后面，回绕也不会在同一毫秒内产生重复
+    private static final AtomicLong COUNTER = new AtomicLong(SEED.nextLong() & COUNTER_MASK);
+
+    private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+
+    static {
+        Arrays.fill(DECODE, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            DECODE[ALPHABET[i]] = (byte) i;
+            DECODE[Character.toLowerCase(ALPHABET[i])] = (byte) i;
+        }
+    }
+
+    private TimeOrderedId() {
+        // 工具类，防止实例化
+    }
+
+    /**
+     * 生成二进制形式的ID（16字节，大端）
+     */
+    public static byte[] nextBytes() {
+        State state = STATE.get();
+        long hi = state.nextHigh();
+        byte[] bytes = new byte[BYTES];
+        putLong(bytes, 0, hi);
+        putLong(bytes, 8, state.low);
+        return bytes;
+    }
+
+    /**
+     * 生成字符串形式的ID（26位）
+     */
+    public static String nextString() {
+        State state = STATE.get();
+        long hi = state.nextHigh();
+        return encode(hi, state.low);
+    }
+
+    /**
+     * 二进制形式转字符串形式
+     */
+    public static String toString(byte[] bytes) {
+        if (bytes == null || bytes.length != BYTES) {
+            throw new IllegalArgumentException("Id must be " + BYTES + " bytes");
+        }
+        return encode(getLong(bytes, 0), getLong(bytes, 8));
+    }
+
+    /**
+     * 字符串形式转二进制形式
+     */
+    public static byte[] toBytes(String id) {
+        if (id == null || id.length() != STRING_LENGTH) {
+            throw new IllegalArgumentException("Id must be " + STRING_LENGTH + " characters: " + id);
+        }
+        long hi = 0;
+        long lo = 0;
+        for (int i = 0; i < STRING_LENGTH; i++) {
+            char c = id.charAt(i);
+            int value = c < DECODE.length ? DECODE[c] : -1;
+            if (value < 0 || (i == 0 && value > 7)) {
+                throw new IllegalArgumentException("Invalid id: " + id);
+            }
+            // 128位整体左移5位再加上新的5位
+            hi = (hi << 5) | (lo >>> 59);
+            lo = (lo << 5) | value;
+        }
+        byte[] bytes = new byte[BYTES];
+        putLong(bytes, 0, hi);
+        putLong(bytes, 8, lo);
+        return bytes;
+    }
+
+    /**
+     * 取出ID中的毫秒时间戳
+     */
+    public static long timestampOf(byte[] bytes) {
+        return getLong(bytes, 0) >>> 16;
+    }
+
+    private static String encode(long hi, long lo) {
+        char[] chars = new char[STRING_LENGTH];
+        for (int i = STRING_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (lo & 31)];
+            // 128位整体右移5位
+            lo = (lo >>> 5) | (hi << 59);
+            hi >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    private static void putLong(byte[] bytes, int offset, long value) {
+        for (int i = offset + 7; i >= offset; i--) {
+            bytes[i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    private static long getLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = (value << 8) | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * 线程私有的生成状态
+     */
+    private static final class State {
+        private long next;
+        private int remaining;
+        private long lastTimestamp;
+        private long low;
+
+        /**
+         * 计算高64位，同时更新low
+         * 时钟回拨时沿用上一次的时间戳；计数在线程内递增，保证单线程内严格递增
+         */
+        private long nextHigh() {
+            if (remaining == 0) {
+                next = COUNTER.getAndAdd(COUNTER_BLOCK);
+                remaining = COUNTER_BLOCK;
+            }
+            long counter = next++ & COUNTER_MASK;
+            remaining--;
+
+            long timestamp = Math.max(System.currentTimeMillis(), lastTimestamp);
+            lastTimestamp = timestamp;
+            low = (counter << 32) | PROCESS_RANDOM;
+            return (timestamp << 16) | (counter >>> 32);
+        }
+    }
+}
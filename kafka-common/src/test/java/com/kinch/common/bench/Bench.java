@@ -0,0 +1,60 @@
+package com.kinch.common.bench;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * 基准测试的计时和分配统计
+ *
+ * 没有JMH，用预热 + 多轮取最好成绩的方式减少JIT和GC的干扰；
+ * 分配字节数来自ThreadMXBean，统计的是当前线程在测量期间分配的堆内存
+ * 通过kafka-common的test-jar供其他模块的基准测试共用
+ */
+public final class Bench {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // 防止JIT把没有使用的结果当作死代码消除
+    public static volatile Object sink;
+
+    private Bench() {
+    }
+
+    /**
+     * 预热后测量rounds轮，每轮执行iterations次，返回最好一轮的结果
+     */
+    public static Result measure(int iterations, int rounds, Op op) throws Exception {
+        for (int i = 0; i < iterations; i++) {
+            sink = op.run();
+        }
+        long bestNanos = Long.MAX_VALUE;
+        long bestBytes = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            long threadId = Thread.currentThread().threadId();
+            long bytesBefore = THREADS.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                sink = op.run();
+            }
+            long elapsed = System.nanoTime() - start;
+            long allocated = THREADS.getThreadAllocatedBytes(threadId) - bytesBefore;
+            bestNanos = Math.min(bestNanos, elapsed);
+            bestBytes = Math.min(bestBytes, allocated);
+        }
+        return new Result((double) bestNanos / iterations, (double) bestBytes / iterations);
+    }
+
+    @FunctionalInterface
+    public interface Op {
+
+        Object run() throws Exception;
+    }
+
+    public record Result(double nanosPerOp, double bytesPerOp) {
+
+        @Override
+        public String toString() {
+            return String.format("%8.1f ns/op %8.1f B/op", nanosPerOp, bytesPerOp);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.kinch.common.bench;
+
+import com.kinch.common.serializer.BinaryDeserializer;
+import com.kinch.common.serializer.BinarySerializer;
+import com.kinch.common.serializer.JsonDeserializer;
+import com.kinch.common.serializer.JsonSerializer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 二进制编解码与JSON的消息大小、编码和解码耗时对比（User、Order）
+ *
+ * 默认不运行，执行方式：
+ * mvn test -pl kafka-common -Dtest=BinaryCodecBenchmark -Dbenchmark=true -Dsurefire.failIfNoSpecifiedTests=false
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class BinaryCodecBenchmark {
+
+    private static final int ITERATIONS = 200_000;
+
+    private static final int ROUNDS = 5;
+
+    @Test
+    void compareWithJson() throws Exception {
+        BinarySerializer<Object> binarySerializer = new BinarySerializer<>();
+        BinaryDeserializer<Object> binaryDeserializer = new BinaryDeserializer<>();
+        JsonSerializer<Object> jsonSerializer = new JsonSerializer<>();
+
+        for (Object value : new Object[]{JsonSerializerBenchmark.USER, JsonSerializerBenchmark.ORDER}) {
+            @SuppressWarnings("unchecked")
+            JsonDeserializer<Object> jsonDeserializer = new JsonDeserializer<>((Class<Object>) value.getClass());
+            byte[] binary = binarySerializer.serialize("t", value);
+            byte[] json = jsonSerializer.serialize("t", value);
+            assertEquals(value, binaryDeserializer.deserialize("t", binary));
+
+            Bench.Result binaryEncode = Bench.measure(ITERATIONS, ROUNDS, () -> binarySerializer.serialize("t", value));
+            Bench.Result jsonEncode = Bench.measure(ITERATIONS, ROUNDS, () -> jsonSerializer.serialize("t", value));
+            Bench.Result binaryDecode = Bench.measure(ITERATIONS, ROUNDS, () -> binaryDeserializer.deserialize("t", binary));
+            Bench.Result jsonDecode = Bench.measure(ITERATIONS, ROUNDS, () -> jsonDeserializer.deserialize("t", json));
+
+            String type = value.getClass().getSimpleName();
+            System.out.printf("%-6s 大小: binary %d B, JSON %d B (%.1fx)%n", type, binary.length, json.length,
+                (double) json.length / binary.length);
+            System.out.printf("%-6s 编码: binary %s | JSON %s%n", type, binaryEncode, jsonEncode);
+            System.out.printf("%-6s 解码: binary %s | JSON %s%n", type, binaryDecode, jsonDecode);
+            assertTrue(binary.length < json.length);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.kinch.common.bench;
+
+import com.alibaba.fastjson2.JSON;
+import com.kinch.common.model.Order;
+import com.kinch.common.serializer.JsonDeserializer;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * JSON反序列化：先解码为String（原实现） vs 直接解析byte[] / ByteBuffer（JsonDeserializer）
+ * 消息大小约200字节和20KB
+ *
+ * 默认不运行，执行方式：
+ * mvn test -pl kafka-common -Dtest=JsonDeserializerBenchmark -Dbenchmark=true -Dsurefire.failIfNoSpecifiedTests=false
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class JsonDeserializerBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    @Test
+    void compareWithStringPath() throws Exception {
+        Order small = JsonSerializerBenchmark.ORDER;
+        Order large = JSON.parseObject(JSON.toJSONBytes(small), Order.class);
+        large.setProductName("机械键盘 Keychron K8 ".repeat(800));
+
+        run(JSON.toJSONBytes(small), 200_000);
+        run(JSON.toJSONBytes(large), 5_000);
+    }
+
+    private void run(byte[] data, int iterations) throws Exception {
+        JsonDeserializer<Order> deserializer = new JsonDeserializer<>(Order.class);
+        RecordHeaders headers = new RecordHeaders();
+        ByteBuffer heap = ByteBuffer.wrap(data);
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length).put(data).flip();
+        assertEquals(viaString(data), deserializer.deserialize("t", headers, direct.duplicate()));
+
+        Bench.Result legacy = Bench.measure(iterations, ROUNDS, () -> viaString(data));
+        Bench.Result bytes = Bench.measure(iterations, ROUNDS, () -> deserializer.deserialize("t", data));
+        Bench.Result heapBuffer = Bench.measure(iterations, ROUNDS,
+            () -> deserializer.deserialize("t", headers, heap.duplicate()));
+        Bench.Result directBuffer = Bench.measure(iterations, ROUNDS,
+            () -> deserializer.deserialize("t", headers, direct.duplicate()));
+
+        System.out.printf("%d字节消息%n", data.length);
+        System.out.printf("  new String + parse: %s%n", legacy);
+        System.out.printf("  byte[]:             %s%n", bytes);
+        System.out.printf("  heap ByteBuffer:    %s%n", heapBuffer);
+        System.out.printf("  direct ByteBuffer:  %s%n", directBuffer);
+        assertTrue(bytes.bytesPerOp() < legacy.bytesPerOp());
+    }
+
+    private static Order viaString(byte[] data) {
+        return JSON.parseObject(new String(data, StandardCharsets.UTF_8), Order.class);
+    }
+}
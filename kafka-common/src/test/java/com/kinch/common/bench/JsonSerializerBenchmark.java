@@ -0,0 +1,57 @@
+package com.kinch.common.bench;
+
+import com.alibaba.fastjson2.JSON;
+import com.kinch.common.model.Order;
+import com.kinch.common.model.User;
+import com.kinch.common.serializer.JsonSerializer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * JSON序列化：经过String再转UTF-8（原实现） vs 直接写UTF-8字节（JsonSerializer）
+ *
+ * 默认不运行，执行方式：
+ * mvn test -pl kafka-common -Dtest=JsonSerializerBenchmark -Dbenchmark=true -Dsurefire.failIfNoSpecifiedTests=false
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class JsonSerializerBenchmark {
+
+    private static final int ITERATIONS = 200_000;
+
+    private static final int ROUNDS = 5;
+
+    static final User USER = User.builder().id(123456L).username("张三").email("zhangsan@example.com").age(30)
+        .createTime(LocalDateTime.of(2024, 5, 1, 12, 30, 15)).build();
+
+    static final Order ORDER = Order.builder().orderId("ORD-20240501-000001").userId(123456L)
+        .productName("机械键盘 Keychron K8").quantity(2).totalAmount(new BigDecimal("1299.99"))
+        .status("PENDING").orderTime(LocalDateTime.of(2024, 5, 1, 12, 30, 15)).currency("CNY").build();
+
+    @Test
+    void compareWithStringPath() throws Exception {
+        JsonSerializer<Object> serializer = new JsonSerializer<>();
+
+        for (Object value : new Object[]{USER, ORDER}) {
+            assertArrayEquals(viaString(value), serializer.serialize("t", value));
+
+            Bench.Result legacy = Bench.measure(ITERATIONS, ROUNDS, () -> viaString(value));
+            Bench.Result direct = Bench.measure(ITERATIONS, ROUNDS, () -> serializer.serialize("t", value));
+
+            String type = value.getClass().getSimpleName();
+            System.out.printf("%-6s String+getBytes: %s%n", type, legacy);
+            System.out.printf("%-6s toJSONBytes:     %s%n", type, direct);
+            assertTrue(direct.bytesPerOp() < legacy.bytesPerOp());
+        }
+    }
+
+    private static byte[] viaString(Object value) {
+        return JSON.toJSONString(value).getBytes(StandardCharsets.UTF_8);
+    }
+}
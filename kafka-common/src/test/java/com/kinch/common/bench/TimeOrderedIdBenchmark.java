@@ -0,0 +1,86 @@
+package com.kinch.common.bench;
+
+import com.kinch.common.util.TimeOrderedId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 消息ID生成：UUID.randomUUID() vs TimeOrderedId
+ * 1. 单线程耗时和每次分配字节数
+ * 2. 多线程并发生成的吞吐量（UUID共享同一个SecureRandom）
+ *
+ * 默认不运行，执行方式：
+ * mvn test -pl kafka-common -Dtest=TimeOrderedIdBenchmark -Dbenchmark=true -Dsurefire.failIfNoSpecifiedTests=false
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class TimeOrderedIdBenchmark {
+
+    private static final int ITERATIONS = 200_000;
+
+    private static final int ROUNDS = 5;
+
+    private static final int THREADS = 16;
+
+    private static final int PER_THREAD = 200_000;
+
+    @Test
+    void singleThread() throws Exception {
+        Bench.Result uuid = Bench.measure(ITERATIONS, ROUNDS, () -> UUID.randomUUID().toString());
+        Bench.Result string = Bench.measure(ITERATIONS, ROUNDS, TimeOrderedId::nextString);
+        Bench.Result bytes = Bench.measure(ITERATIONS, ROUNDS, TimeOrderedId::nextBytes);
+
+        System.out.printf("UUID.randomUUID().toString(): %s%n", uuid);
+        System.out.printf("TimeOrderedId.nextString():   %s%n", string);
+        System.out.printf("TimeOrderedId.nextBytes():    %s%n", bytes);
+        assertTrue(string.nanosPerOp() < uuid.nanosPerOp());
+    }
+
+    @Test
+    void concurrentThroughput() throws Exception {
+        // 预热
+        throughput(() -> UUID.randomUUID().toString());
+        throughput(TimeOrderedId::nextString);
+
+        double uuid = throughput(() -> UUID.randomUUID().toString());
+        double ordered = throughput(TimeOrderedId::nextString);
+        System.out.printf("%d线程并发: UUID %.0f 万个/s, TimeOrderedId %.0f 万个/s (%.1f 倍)%n",
+            THREADS, uuid / 10_000, ordered / 10_000, ordered / uuid);
+        assertTrue(ordered > uuid);
+    }
+
+    private static double throughput(Callable<String> generator) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < PER_THREAD; i++) {
+                        Bench.sink = generator.call();
+                    }
+                    return null;
+                }));
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return (double) THREADS * PER_THREAD / ((System.nanoTime() - begin) / 1e9);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
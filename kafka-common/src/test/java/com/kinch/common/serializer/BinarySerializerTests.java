@@ -0,0 +1,96 @@
+package com.kinch.common.serializer;
+
+import com.kinch.common.model.Order;
+import com.kinch.common.model.User;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinarySerializerTests {
+
+    private final BinarySerializer<Object> serializer = new BinarySerializer<>();
+    private final BinaryDeserializer<Object> deserializer = new BinaryDeserializer<>();
+
+    @Test
+    void roundTripsUserAndOrder() {
+        User user = User.builder().id(123456L).username("张三😀").email("zs@example.com").age(30)
+            .createTime(LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123456789)).build();
+        Order order = Order.builder().orderId("ORD-001").userId(-7L).productName("Keyboard").quantity(2)
+            .totalAmount(new BigDecimal("1299.99")).status("PENDING")
+            .orderTime(LocalDateTime.of(1969, 12, 31, 23, 59, 59)).currency("CNY").build();
+        Order hugeAmount = Order.builder()
+            .totalAmount(new BigDecimal("-123456789012345678901234567890.123")).build();
+
+        for (Object value : List.of(user, order, hugeAmount)) {
+            byte[] bytes = serializer.serialize("t", value);
+            assertEquals(value, deserializer.deserialize("t", bytes));
+            assertEquals(value, deserializer.deserialize("t", null, ByteBuffer.wrap(bytes)));
+        }
+    }
+
+    @Test
+    void oldConsumerSkipsTrailingFields() {
+        BinaryDeserializer<Order> oldConsumer = new BinaryDeserializer<>();
+        oldConsumer.configure(Map.of(BinarySchemaStore.SCHEMA_STORE_CONFIG,
+            new BinarySchemaStore().register(BinaryCodecs.ORDER_V1)), false);
+
+        Order order = Order.builder().orderId("ORD-002").quantity(1).currency("USD").build();
+        Order read = oldConsumer.deserialize("t", serializer.serialize("t", order));
+
+        assertEquals("ORD-002", read.getOrderId());
+        assertEquals(1, read.getQuantity());
+        assertNull(read.getCurrency());
+    }
+
+    @Test
+    void newConsumerReadsOldVersion() {
+        BinarySerializer<Order> oldProducer = new BinarySerializer<>();
+        oldProducer.configure(Map.of(BinarySchemaStore.SCHEMA_STORE_CONFIG,
+            new BinarySchemaStore().register(BinaryCodecs.ORDER_V1)), false);
+
+        Order order = Order.builder().orderId("ORD-003").status("CONFIRMED").currency("USD").build();
+        Order read = (Order) deserializer.deserialize("t", oldProducer.serialize("t", order));
+
+        assertEquals("ORD-003", read.getOrderId());
+        assertEquals("CONFIRMED", read.getStatus());
+        assertNull(read.getCurrency());
+    }
+
+    @Test
+    void rejectsNonAppendOnlyEvolution() {
+        BinaryCodec<Order> reordered = new BinaryCodec<>(BinaryCodecs.TYPE_ORDER, 3, Order.class, Order::new,
+            List.of(BinaryField.string("status", Order::getStatus, Order::setStatus)));
+
+        assertThrows(IllegalArgumentException.class,
+            () -> new BinarySchemaStore().register(BinaryCodecs.ORDER_V2).register(reordered));
+    }
+
+    @Test
+    void encodesStringsLikeStringGetBytes() {
+        for (String value : List.of("ascii", "张三", "emoji 😀", "unpaired \uD800 surrogate", "")) {
+            BinaryWriter writer = new BinaryWriter(4);
+            writer.writeString(value);
+            byte[] expected = value.getBytes(StandardCharsets.UTF_8);
+            assertArrayEquals(expected, new BinaryReader(writer.toByteArray()).readBytes(), value);
+        }
+    }
+
+    @Test
+    void rejectsNegativeLengthBeforeAllocating() {
+        // 10字节varint，最高位为1：按无符号读出是负数
+        byte[] corrupted = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+            (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x01};
+
+        SerializationException e = assertThrows(SerializationException.class,
+            () -> new BinaryReader(corrupted).readBytes());
+        assertTrue(e.getMessage().contains("Negative length"), e.getMessage());
+    }
+}
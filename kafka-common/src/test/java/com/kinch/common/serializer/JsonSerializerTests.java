@@ -0,0 +1,165 @@
+package com.kinch.common.serializer;
+
+import com.alibaba.fastjson2.JSON;
+import com.kinch.common.constant.KafkaConstants;
+import com.kinch.common.model.Order;
+import com.kinch.common.model.User;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonSerializerTests {
+
+    static final User USER = User.builder().id(123456L).username("张三").email("zs@example.com").age(30)
+        .createTime(LocalDateTime.of(2024, 5, 1, 12, 30, 15)).build();
+
+    static final Order ORDER = Order.builder().orderId("ORD-001").userId(123456L).productName("机械键盘")
+        .quantity(2).totalAmount(new BigDecimal("1299.99")).status("PENDING")
+        .orderTime(LocalDateTime.of(2024, 5, 1, 12, 30, 15)).currency("CNY").build();
+
+    private final JsonSerializer<Object> serializer = new JsonSerializer<>();
+
+    @Test
+    void dispatchesMixedUserAndOrderByTypeHeader() {
+        JsonDeserializer<Object> deserializer = new JsonDeserializer<>();
+        deserializer.configure(Map.of(), false);
+
+        for (Object value : List.of(USER, ORDER, ORDER, USER)) {
+            Headers headers = new RecordHeaders();
+            byte[] data = serializer.serialize("mixed", headers, value);
+
+            assertEquals(value, deserializer.deserialize("mixed", headers, data));
+        }
+    }
+
+    @Test
+    void writesRegisteredTypeIdHeaderOnly() {
+        Headers userHeaders = new RecordHeaders();
+        serializer.serialize("t", userHeaders, USER);
+        assertArrayEquals(JsonTypeRegistry.TYPE_ID_USER.getBytes(StandardCharsets.UTF_8),
+            userHeaders.lastHeader(KafkaConstants.HEADER_TYPE_ID).value());
+
+        Headers mapHeaders = new RecordHeaders();
+        serializer.serialize("t", mapHeaders, Map.of("k", "v"));
+        assertNull(mapHeaders.lastHeader(KafkaConstants.HEADER_TYPE_ID));
+    }
+
+    @Test
+    void fallsBackToTargetTypeWhenHeaderMissingUnknownOrIncompatible() {
+        JsonDeserializer<Order> deserializer = new JsonDeserializer<>(Order.class);
+        byte[] data = serializer.serialize("t", ORDER);
+
+        assertEquals(ORDER, deserializer.deserialize("t", new RecordHeaders(), data));
+        assertEquals(ORDER, deserializer.deserialize("t", typeHeader("unknown"), data));
+        // 类型头指向User，但消费端只接受Order，按targetType解析
+        assertEquals(ORDER, deserializer.deserialize("t", typeHeader(JsonTypeRegistry.TYPE_ID_USER), data));
+    }
+
+    @Test
+    void failsWithoutTypeHeaderOrTargetType() {
+        JsonDeserializer<Object> deserializer = new JsonDeserializer<>();
+        deserializer.configure(Map.of(), false);
+        byte[] data = serializer.serialize("t", ORDER);
+
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("t", new RecordHeaders(), data));
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("t", typeHeader("unknown"), data));
+    }
+
+    @Test
+    void loadsTypeMappingsFromConfig() {
+        String mappings = "refund:" + Refund.class.getName();
+        JsonSerializer<Object> configuredSerializer = new JsonSerializer<>();
+        configuredSerializer.configure(Map.of(JsonTypeRegistry.SERIALIZER_TYPE_MAPPINGS_CONFIG, mappings), false);
+        JsonDeserializer<Object> deserializer = new JsonDeserializer<>();
+        deserializer.configure(Map.of(JsonTypeRegistry.DESERIALIZER_TYPE_MAPPINGS_CONFIG, mappings), false);
+
+        Refund refund = new Refund("RF-001", 1299L);
+        for (Object value : List.of(refund, USER, ORDER)) {
+            Headers headers = new RecordHeaders();
+            byte[] data = configuredSerializer.serialize("t", headers, value);
+            assertEquals(value, deserializer.deserialize("t", headers, data));
+        }
+        assertArrayEquals("refund".getBytes(StandardCharsets.UTF_8), typeIdOf(configuredSerializer, refund));
+    }
+
+    @Test
+    void rejectsMalformedTypeMappings() {
+        JsonDeserializer<Object> deserializer = new JsonDeserializer<>();
+        assertThrows(SerializationException.class, () -> deserializer.configure(
+            Map.of(JsonTypeRegistry.DESERIALIZER_TYPE_MAPPINGS_CONFIG, "refund"), false));
+        assertThrows(SerializationException.class, () -> deserializer.configure(
+            Map.of(JsonTypeRegistry.DESERIALIZER_TYPE_MAPPINGS_CONFIG, "refund:com.example.Missing"), false));
+    }
+
+    @Test
+    void serializesDirectlyToUtf8Bytes() {
+        JsonDeserializer<User> userDeserializer = new JsonDeserializer<>(User.class);
+        JsonDeserializer<Order> orderDeserializer = new JsonDeserializer<>(Order.class);
+
+        byte[] user = serializer.serialize("t", USER);
+        byte[] order = serializer.serialize("t", ORDER);
+
+        // 与先转String再编码UTF-8的结果逐字节一致，中文按3字节编码
+        assertArrayEquals(JSON.toJSONString(USER).getBytes(StandardCharsets.UTF_8), user);
+        assertArrayEquals(JSON.toJSONString(ORDER).getBytes(StandardCharsets.UTF_8), order);
+        assertEquals(USER, userDeserializer.deserialize("t", user));
+        assertEquals(ORDER, orderDeserializer.deserialize("t", order));
+
+        assertNull(serializer.serialize("t", null));
+        assertNull(serializer.serialize("t", new RecordHeaders(), null));
+        assertNull(orderDeserializer.deserialize("t", (byte[]) null));
+    }
+
+    @Test
+    void deserializesByteBufferSlicesWithoutConsumingThem() {
+        JsonDeserializer<Order> deserializer = new JsonDeserializer<>(Order.class);
+        JsonDeserializer<Object> dispatching = new JsonDeserializer<>();
+        dispatching.configure(Map.of(), false);
+        byte[] json = serializer.serialize("t", ORDER);
+
+        // 消息位于一个更大的数组中间：position、arrayOffset都不为0
+        byte[] frame = new byte[json.length + 13];
+        System.arraycopy(json, 0, frame, 7, json.length);
+        ByteBuffer positioned = ByteBuffer.wrap(frame, 7, json.length);
+        ByteBuffer sliced = ByteBuffer.wrap(frame).position(3).slice().position(4).limit(4 + json.length);
+        ByteBuffer readOnly = positioned.asReadOnlyBuffer();
+        ByteBuffer direct = ByteBuffer.allocateDirect(frame.length).put(frame).position(7).limit(7 + json.length);
+        assertFalse(readOnly.hasArray());
+
+        for (ByteBuffer buffer : List.of(positioned, sliced, readOnly, direct)) {
+            int position = buffer.position();
+            assertEquals(ORDER, deserializer.deserialize("t", new RecordHeaders(), buffer));
+            assertEquals(ORDER, dispatching.deserialize("t", typeHeader(JsonTypeRegistry.TYPE_ID_ORDER), buffer));
+            assertEquals(position, buffer.position());
+        }
+        assertNull(deserializer.deserialize("t", new RecordHeaders(), (ByteBuffer) null));
+    }
+
+    static Headers typeHeader(String typeId) {
+        Headers headers = new RecordHeaders();
+        headers.add(KafkaConstants.HEADER_TYPE_ID, typeId.getBytes(StandardCharsets.UTF_8));
+        return headers;
+    }
+
+    private static byte[] typeIdOf(JsonSerializer<Object> serializer, Object value) {
+        Headers headers = new RecordHeaders();
+        serializer.serialize("t", headers, value);
+        return headers.lastHeader(KafkaConstants.HEADER_TYPE_ID).value();
+    }
+
+    /**
+     * 只通过配置注册的类型
+     */
+    public record Refund(String refundId, long amount) {
+    }
+}
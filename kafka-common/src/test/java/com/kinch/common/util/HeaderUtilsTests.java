@@ -0,0 +1,49 @@
+package com.kinch.common.util;
+
+import com.kinch.common.constant.KafkaConstants;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeaderUtilsTests {
+
+    @Test
+    void longHeaderRoundTrips() {
+        for (long value : new long[]{0, 1, 20240501, 1714537815000L, -1, Long.MIN_VALUE, Long.MAX_VALUE}) {
+            Header header = HeaderUtils.longHeader(KafkaConstants.HEADER_MESSAGE_SEQ, value);
+            assertEquals(value, HeaderUtils.readLong(header, 42));
+            assertEquals(String.valueOf(value), HeaderUtils.toDisplayString(header));
+        }
+    }
+
+    @Test
+    void legacyEightDigitDecimalIsNotMistakenForBinary() {
+        // 旧格式的8位十进制数恰好也是8个字节
+        Header legacy = legacy(KafkaConstants.HEADER_MESSAGE_SEQ, "20240501");
+
+        assertEquals(20240501L, HeaderUtils.readLong(legacy, -1));
+        assertEquals("20240501", HeaderUtils.toDisplayString(legacy));
+    }
+
+    @Test
+    void legacyDecimalOfOtherLengthsIsParsed() {
+        assertEquals(1714537815000L, HeaderUtils.readLong(legacy(KafkaConstants.HEADER_TIMESTAMP, "1714537815000"), -1));
+        assertEquals(-12345678L, HeaderUtils.readLong(legacy(KafkaConstants.HEADER_TIMESTAMP, "-12345678"), -1));
+        assertEquals(7L, HeaderUtils.readLong(legacy(KafkaConstants.HEADER_TIMESTAMP, "7"), -1));
+    }
+
+    @Test
+    void unreadableValueFallsBackToDefault() {
+        assertEquals(-1L, HeaderUtils.readLong(legacy(KafkaConstants.HEADER_TIMESTAMP, "abcdefgh"), -1));
+        assertEquals(-1L, HeaderUtils.readLong(null, -1));
+        assertEquals(-1L, HeaderUtils.readLong(new RecordHeader(KafkaConstants.HEADER_TIMESTAMP, (byte[]) null), -1));
+    }
+
+    private static Header legacy(String key, String decimal) {
+        return new RecordHeader(key, decimal.getBytes(StandardCharsets.UTF_8));
+    }
+}
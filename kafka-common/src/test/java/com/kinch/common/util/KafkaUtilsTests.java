@@ -0,0 +1,29 @@
+package com.kinch.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KafkaUtilsTests {
+
+    @Test
+    void transactionalIdPrefixIncludesInstanceId() {
+        assertEquals("tx-pool-order-service-2-", KafkaUtils.transactionalIdPrefix("tx-pool", " order-service-2 "));
+    }
+
+    @Test
+    void transactionalIdPrefixRequiresInstanceId() {
+        assertThrows(IllegalStateException.class, () -> KafkaUtils.transactionalIdPrefix("tx-pool", null));
+        assertThrows(IllegalStateException.class, () -> KafkaUtils.transactionalIdPrefix("tx-pool", " "));
+    }
+
+    @Test
+    void resolveInstanceIdFallsBackToHostName() {
+        assertEquals("order-service-2", KafkaUtils.resolveInstanceId(" order-service-2 ", "instance-id"));
+
+        String fallback = KafkaUtils.resolveInstanceId(" ", "instance-id");
+        assertFalse(fallback.isBlank());
+        assertEquals(fallback, KafkaUtils.resolveInstanceId(null, "instance-id"));
+        assertEquals("tx-pool-" + fallback + "-", KafkaUtils.transactionalIdPrefix("tx-pool", fallback));
+    }
+}
@@ -0,0 +1,101 @@
+package com.kinch.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeOrderedIdTests {
+
+    @Test
+    void idsAreUniqueAcrossThreads() throws Exception {
+        int threads = 32;
+        int perThread = 50_000;
+        Set<String> ids = ConcurrentHashMap.newKeySet(threads * perThread);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        String id = i % 2 == 0 ? TimeOrderedId.nextString()
+                            : TimeOrderedId.toString(TimeOrderedId.nextBytes());
+                        assertTrue(ids.add(id), "duplicate id " + id);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(threads * perThread, ids.size());
+    }
+
+    @Test
+    void idsAreUniqueAcrossManyShortLivedVirtualThreads() throws Exception {
+        int tasks = 200_000;
+        Set<String> ids = ConcurrentHashMap.newKeySet(tasks * 2);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>(tasks);
+            for (int t = 0; t < tasks; t++) {
+                // 每个虚拟线程只生成两个ID就结束，线程数远多于单个计数区间
+                futures.add(executor.submit(() -> {
+                    assertTrue(ids.add(TimeOrderedId.nextString()));
+                    assertTrue(ids.add(TimeOrderedId.toString(TimeOrderedId.nextBytes())));
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        assertEquals(tasks * 2, ids.size());
+    }
+
+    @Test
+    void idsSortByCreationTimeWithinThread() {
+        String previous = TimeOrderedId.nextString();
+        for (int i = 0; i < 100_000; i++) {
+            String next = TimeOrderedId.nextString();
+            assertTrue(next.compareTo(previous) > 0, previous + " >= " + next);
+            previous = next;
+        }
+
+        byte[] first = TimeOrderedId.nextBytes();
+        byte[] second = TimeOrderedId.nextBytes();
+        assertTrue(Arrays.compareUnsigned(first, second) < 0);
+    }
+
+    @Test
+    void binaryAndStringFormsRoundTrip() {
+        long before = System.currentTimeMillis();
+        byte[] bytes = TimeOrderedId.nextBytes();
+        long after = System.currentTimeMillis();
+
+        String id = TimeOrderedId.toString(bytes);
+        assertEquals(TimeOrderedId.STRING_LENGTH, id.length());
+        assertArrayEquals(bytes, TimeOrderedId.toBytes(id));
+        assertArrayEquals(bytes, TimeOrderedId.toBytes(id.toLowerCase()));
+
+        long timestamp = TimeOrderedId.timestampOf(bytes);
+        assertTrue(timestamp >= before && timestamp <= after + 1);
+
+        assertThrows(IllegalArgumentException.class, () -> TimeOrderedId.toBytes("8ZZZZZZZZZZZZZZZZZZZZZZZZZ"));
+        assertThrows(IllegalArgumentException.class, () -> TimeOrderedId.toBytes("short"));
+    }
+}
@@ -0,0 +1,68 @@
+package com.kinch.producer.bulk;
+
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量发送的汇总结果，在全部消息都收到确认（或失败）后生成
+ */
+@Getter
+public class BulkSendResult {
+
+    private final long total;
+    private final long successCount;
+    private final long failureCount;
+    // 失败明细只保留前若干条，失败总数见failureCount
+    private final List<Failure> failures;
+    // topic-partition -> 偏移量范围
+    private final Map<String, PartitionOffsets> partitionOffsets;
+    private final long elapsedMs;
+
+    BulkSendResult(long total, long successCount, long failureCount, List<Failure> failures,
+                   Map<String, PartitionOffsets> partitionOffsets, long elapsedMs) {
+        this.total = total;
+        this.successCount = successCount;
+        this.failureCount = failureCount;
+        this.failures = failures;
+        this.partitionOffsets = partitionOffsets;
+        this.elapsedMs = elapsedMs;
+    }
+
+    public boolean isAllSucceeded() {
+        return failureCount == 0;
+    }
+
+    /**
+     * 单条失败记录
+     */
+    @Getter
+    public static class Failure {
+        private final long index;
+        private final String key;
+        private final String error;
+
+        Failure(long index, String key, String error) {
+            this.index = index;
+            this.key = key;
+            this.error = error;
+        }
+    }
+
+    /**
+     * 某个分区上本批消息的偏移量范围
+     */
+    @Getter
+    public static class PartitionOffsets {
+        private final long firstOffset;
+        private final long lastOffset;
+        private final long count;
+
+        PartitionOffsets(long firstOffset, long lastOffset, long count) {
+            this.firstOffset = firstOffset;
+            this.lastOffset = lastOffset;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.kinch.producer.bulk;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * 批量发送器 - 按在途字节数做背压
+ *
+ * 核心知识点：
+ * 1. Producer的缓冲区（buffer.memory）写满后，send()会阻塞最长max.block.ms，然后抛出超时异常，
+ *    批量场景下一旦阻塞，调用方既不知道积压了多少，也无法提前收手
+ * 2. 这里用信号量限制"已提交、未确认"的字节数：发送前按估算大小获取许可，确认后归还，
+ *    调用线程在信号量上等待，缓冲区始终留有余量给其他业务
+ * 3. 所有确认汇总到同一个结果对象中，全部确认后才完成Future，
+ *    结果包含成功数、失败明细和每个分区的偏移量范围
+ *
+ * 一个实例可以被多个线程同时使用，在途字节上限由它们共享
+ */
+public class BulkSender<K, V> {
+
+    // 失败明细最多保留的条数
+    private static final int MAX_FAILURE_DETAILS = 100;
+
+    // 无法估算大小时按这个值占用许可
+    private static final int DEFAULT_RECORD_SIZE = 256;
+
+    private final KafkaTemplate<K, V> template;
+
+    private final int maxInFlightBytes;
+
+    private final Semaphore inFlightBytes;
+
+    public BulkSender(KafkaTemplate<K, V> template, int maxInFlightBytes) {
+        if (maxInFlightBytes <= 0) {
+            throw new IllegalArgumentException("maxInFlightBytes must be positive: " + maxInFlightBytes);
+        }
+        this.template = template;
+        this.maxInFlightBytes = maxInFlightBytes;
+        this.inFlightBytes = new Semaphore(maxInFlightBytes);
+    }
+
+    /**
+     * 批量发送，返回的Future在全部消息确认后完成
+     * 调用线程会在在途字节达到上限时等待，直到全部消息都已提交给Producer才返回
+     * 等待时被中断则停止提交，Future以InterruptedException异常完成
+     */
+    public CompletableFuture<BulkSendResult> send(Iterable<ProducerRecord<K, V>> records) {
+        return send(records.iterator());
+    }
+
+    public CompletableFuture<BulkSendResult> send(Stream<ProducerRecord<K, V>> records) {
+        return send(records.iterator());
+    }
+
+    public CompletableFuture<BulkSendResult> send(Iterator<ProducerRecord<K, V>> records) {
+        Batch batch = new Batch();
+        long index = 0;
+        try {
+            while (records.hasNext()) {
+                ProducerRecord<K, V> record = records.next();
+                int permits = Math.min(estimateSize(record), maxInFlightBytes);
+                inFlightBytes.acquire(permits);
+                batch.submit(index++, record, permits);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // 剩余消息不再提交，已提交的消息照常确认并归还许可
+            batch.future.completeExceptionally(e);
+        } finally {
+            batch.sealed();
+        }
+        return batch.future;
+    }
+
+    /**
+     * 当前在途（已提交、未确认）的估算字节数
+     */
+    public int inFlightBytes() {
+        return maxInFlightBytes - inFlightBytes.availablePermits();
+    }
+
+    /**
+     * 按未序列化的Key/Value估算消息大小
+     * 字符串按UTF-8字节数计算（中文一个字符3字节），而不是UTF-16的字符数，不分配临时数组
+     */
+    private static int estimateSize(ProducerRecord<?, ?> record) {
+        return estimateSize(record.key()) + estimateSize(record.value());
+    }
+
+    private static int estimateSize(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof CharSequence) {
+            return Utils.utf8Length((CharSequence) value);
+        }
+        if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        }
+        return DEFAULT_RECORD_SIZE;
+    }
+
+    /**
+     * 一次批量发送的汇总状态
+     * pending初始为1，代表"还在提交中"，提交结束后再减1，保证最后一条确认之前不会提前完成
+     */
+    private final class Batch {
+        private final long startTime = System.currentTimeMillis();
+        private final CompletableFuture<BulkSendResult> future = new CompletableFuture<>();
+        private final AtomicLong pending = new AtomicLong(1);
+        private final LongAdder total = new LongAdder();
+        private final LongAdder successCount = new LongAdder();
+        private final LongAdder failureCount = new LongAdder();
+        private final List<BulkSendResult.Failure> failures = new ArrayList<>();
+        private final Map<String, long[]> partitionOffsets = new TreeMap<>();
+
+        private void submit(long index, ProducerRecord<K, V> record, int permits) {
+            total.increment();
+            pending.incrementAndGet();
+            CompletableFuture<SendResult<K, V>> sendFuture;
+            try {
+                sendFuture = template.send(record);
+            } catch (RuntimeException e) {
+                complete(index, record, permits, null, e);
+                return;
+            }
+            sendFuture.whenComplete((result, ex) -> complete(index, record, permits,
+                result == null ? null : result.getRecordMetadata(), ex));
+        }
+
+        private void complete(long index, ProducerRecord<K, V> record, int permits,
+                              RecordMetadata metadata, Throwable ex) {
+            inFlightBytes.release(permits);
+            if (ex == null) {
+                successCount.increment();
+                recordOffset(metadata);
+            } else {
+                failureCount.increment();
+                recordFailure(index, record, ex);
+            }
+            if (pending.decrementAndGet() == 0) {
+                finish();
+            }
+        }
+
+        private void sealed() {
+            if (pending.decrementAndGet() == 0) {
+                finish();
+            }
+        }
+
+        private synchronized void recordOffset(RecordMetadata metadata) {
+            String key = metadata.topic() + "-" + metadata.partition();
+            long[] range = partitionOffsets.get(key);
+            if (range == null) {
+                partitionOffsets.put(key, new long[]{metadata.offset(), metadata.offset(), 1});
+            } else {
+                range[0] = Math.min(range[0], metadata.offset());
+                range[1] = Math.max(range[1], metadata.offset());
+                range[2]++;
+            }
+        }
+
+        private synchronized void recordFailure(long index, ProducerRecord<K, V> record, Throwable ex) {
+            if (failures.size() < MAX_FAILURE_DETAILS) {
+                Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                failures.add(new BulkSendResult.Failure(index,
+                    record.key() == null ? null : record.key().toString(), cause.toString()));
+            }
+        }
+
+        private synchronized void finish() {
+            Map<String, BulkSendResult.PartitionOffsets> offsets = new TreeMap<>();
+            partitionOffsets.forEach((key, range) ->
+                offsets.put(key, new BulkSendResult.PartitionOffsets(range[0], range[1], range[2])));
+            future.complete(new BulkSendResult(total.sum(), successCount.sum(), failureCount.sum(),
+                Collections.unmodifiableList(new ArrayList<>(failures)), Collections.unmodifiableMap(offsets),
+                System.currentTimeMillis() - startTime));
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.kinch.producer.bulk;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import org.apache.kafka.clients.producer.ProducerRecord;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 把HTTP请求体按需解析成消息
+ *
+ * 核心知识点：
+ * 1. 迭代器是惰性的：{@link BulkSender}获取到在途字节许可后才会读取下一条，
+ *    Producer积压时不再读取请求体，TCP接收窗口填满后上游自然减速
+ * 2. 不合法的行/帧计入rejected，不中断整个流；单条消息（行或帧）最长{@link #MAX_FRAME_BYTES}字节，
+ *    超长的行丢弃到下一个换行符为止并计入rejected，超长的帧无法再对齐，结束整个流
+ * 3. 读取请求体出错（例如客户端断开）时结束迭代，错误记录在streamError中，已读取的消息照常发送
+ *
+ * 支持两种格式：
+ * - NDJSON：每行一个JSON对象，整行作为消息体，可以指定某个字段作为Key
+ * - 二进制帧：[4字节Key长度，-1表示无Key][Key][4字节Value长度][Value]，长度为大端int
+ */
+public abstract class StreamRecordIterator implements Iterator<ProducerRecord<String, String>> {
+
+    // 单条消息的最大长度，防止异常的长度字段或没有换行符的请求体导致分配超大数组
+    static final int MAX_FRAME_BYTES = 1024 * 1024;
+
+    protected final String topic;
+
+    private ProducerRecord<String, String> next;
+    private boolean finished;
+    private long rejected;
+    private String streamError;
+
+    protected StreamRecordIterator(String topic) {
+        this.topic = topic;
+    }
+
+    /**
+     * NDJSON格式
+     *
+     * @param keyField 作为消息Key的JSON字段，为null时不解析JSON，只校验格式
+     */
+    public static StreamRecordIterator ndjson(InputStream in, String topic, String keyField) {
+        return new NdjsonIterator(in, topic, keyField);
+    }
+
+    /**
+     * 二进制帧格式
+     */
+    public static StreamRecordIterator framed(InputStream in, String topic) {
+        return new FramedIterator(in, topic);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null && !finished) {
+            try {
+                next = readNext();
+                if (next == null) {
+                    finished = true;
+                }
+            } catch (InvalidRecordException e) {
+                rejected++;
+            } catch (IOException e) {
+                streamError = e.toString();
+                finished = true;
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public ProducerRecord<String, String> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ProducerRecord<String, String> record = next;
+        next = null;
+        return record;
+    }
+
+    public long rejected() {
+        return rejected;
+    }
+
+    public String streamError() {
+        return streamError;
+    }
+
+    /**
+     * 读取下一条消息，流结束返回null
+     *
+     * @throws InvalidRecordException 当前这条格式不合法，跳过后继续读取
+     */
+    protected abstract ProducerRecord<String, String> readNext() throws IOException;
+
+    protected static final class InvalidRecordException extends RuntimeException {
+        InvalidRecordException(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    private static final class NdjsonIterator extends StreamRecordIterator {
+        private final InputStream in;
+        private final String keyField;
+        private final byte[] buffer = new byte[8192];
+        private int position;
+        private int limit;
+        private byte[] lineBytes = new byte[256];
+
+        private NdjsonIterator(InputStream in, String topic, String keyField) {
+            super(topic);
+            this.in = in;
+            this.keyField = keyField;
+        }
+
+        @Override
+        protected ProducerRecord<String, String> readNext() throws IOException {
+            String line;
+            do {
+                line = readLine();
+                if (line == null) {
+                    return null;
+                }
+                line = line.trim();
+            } while (line.isEmpty());
+
+            if (keyField == null) {
+                if (!JSON.isValidObject(line)) {
+                    throw new InvalidRecordException("invalid json");
+                }
+                return new ProducerRecord<>(topic, line);
+            }
+            JSONObject json;
+            try {
+                json = JSON.parseObject(line);
+            } catch (RuntimeException e) {
+                throw new InvalidRecordException("invalid json");
+            }
+            if (json == null) {
+                throw new InvalidRecordException("invalid json");
+            }
+            return new ProducerRecord<>(topic, json.getString(keyField), line);
+        }
+
+        /**
+         * 读取一行（不含换行符），流结束返回null
+         * 与BufferedReader.readLine()不同，一行最多缓存MAX_FRAME_BYTES字节，
+         * 超过时丢弃到行尾并抛出InvalidRecordException，不会因为没有换行符的请求体耗尽内存
+         */
+        private String readLine() throws IOException {
+            int length = 0;
+            boolean tooLong = false;
+            while (true) {
+                if (position == limit) {
+                    limit = in.read(buffer);
+                    position = 0;
+                    if (limit <= 0) {
+                        limit = 0;
+                        if (tooLong) {
+                            throw new InvalidRecordException("line too long");
+                        }
+                        return length == 0 ? null : new String(lineBytes, 0, length, StandardCharsets.UTF_8);
+                    }
+                }
+                int start = position;
+                while (position < limit && buffer[position] != '\n') {
+                    position++;
+                }
+                int chunk = position - start;
+                if (!tooLong) {
+                    if (length + chunk > MAX_FRAME_BYTES) {
+                        tooLong = true;
+                    } else {
+                        if (length + chunk > lineBytes.length) {
+                            int capacity = Math.min(MAX_FRAME_BYTES, Math.max(lineBytes.length * 2, length + chunk));
+                            lineBytes = Arrays.copyOf(lineBytes, capacity);
+                        }
+                        System.arraycopy(buffer, start, lineBytes, length, chunk);
+                        length += chunk;
+                    }
+                }
+                if (position < limit) {
+                    // 跳过换行符
+                    position++;
+                    if (tooLong) {
+                        throw new InvalidRecordException("line too long");
+                    }
+                    return new String(lineBytes, 0, length, StandardCharsets.UTF_8);
+                }
+            }
+        }
+    }
+
+    private static final class FramedIterator extends StreamRecordIterator {
+        private final DataInputStream in;
+
+        private FramedIterator(InputStream in, String topic) {
+            super(topic);
+            this.in = new DataInputStream(in);
+        }
+
+        @Override
+        protected ProducerRecord<String, String> readNext() throws IOException {
+            int keyLength;
+            try {
+                keyLength = in.readInt();
+            } catch (EOFException e) {
+                return null;
+            }
+            String key = keyLength < 0 ? null : readString(keyLength);
+            int valueLength = in.readInt();
+            if (valueLength < 0) {
+                throw new IOException("Negative value length: " + valueLength);
+            }
+            return new ProducerRecord<>(topic, key, readString(valueLength));
+        }
+
+        private String readString(int length) throws IOException {
+            if (length > MAX_FRAME_BYTES) {
+                // 长度字段已不可信，后续帧无法对齐，只能结束整个流
+                throw new IOException("Frame too large: " + length);
+            }
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
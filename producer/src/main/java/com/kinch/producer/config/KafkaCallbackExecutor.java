@@ -0,0 +1,35 @@
+package com.kinch.producer.config;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Kafka发送回调执行器
+ *
+ * 不直接把Executor注册为Bean：容器中只要存在Executor类型的Bean，
+ * Spring Boot的TaskExecutionAutoConfiguration就不再创建applicationTaskExecutor，
+ * @Async、异步MVC等依赖它的功能会退回到各自的默认执行器。
+ * 这里用一个普通类型包装，使用方通过{@link #executor()}取出。
+ */
+public final class KafkaCallbackExecutor implements AutoCloseable {
+
+    private final Executor executor;
+
+    public KafkaCallbackExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public Executor executor() {
+        return executor;
+    }
+
+    /**
+     * 容器关闭时不再接收新回调，已提交的回调继续执行完
+     */
+    @Override
+    public void close() {
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdown();
+        }
+    }
+}
@@ -1,17 +1,31 @@
 package com.kinch.producer.config;
 
+import com.kinch.common.admin.KafkaMetadataService;
+import com.kinch.common.serializer.BinarySerializer;
 import com.kinch.common.serializer.JsonSerializer;
+import com.kinch.common.util.KafkaUtils;
+import com.kinch.producer.interceptor.ProducerInterceptorExample;
+import com.kinch.producer.metrics.ProducerMetrics;
+import com.kinch.producer.metrics.TimedKafkaTemplate;
+import com.kinch.producer.partition.CustomPartitioner;
+import com.kinch.producer.partition.PartitionLoadTracker;
+import com.kinch.producer.transaction.GroupCommitTransactionalSender;
+import com.kinch.producer.transaction.TransactionalProducerPool;
+import jakarta.annotation.PostConstruct;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.DefaultTransactionIdSuffixStrategy;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Executors;
 
 /**
  * Kafka生产者配置类
@@ -23,6 +37,16 @@ public class KafkaProducerConfig {
     @Value("${spring.kafka.bootstrap-servers:localhost:9092}")
     private String bootstrapServers;
     
+    // 事务Producer的实例ID，拼入transactional.id，每个实例必须唯一且重启后不变
+    // 未配置时退回到主机名并打印WARN，只适合本地单实例运行
+    @Value("${kafka.producer.transaction.instance-id:}")
+    private String transactionInstanceId;
+    
+    @PostConstruct
+    public void resolveTransactionInstanceId() {
+        transactionInstanceId = KafkaUtils.resolveInstanceId(transactionInstanceId, "kafka.producer.transaction.instance-id");
+    }
+    
     /**
      * 基础生产者配置 - 用于String类型消息
      */
@@ -58,6 +82,77 @@ public class KafkaProducerConfig {
         return new KafkaTemplate<>(stringProducerFactory());
     }
     
+    /**
+     * 发送回调执行器
+     * 默认情况下whenComplete回调在Kafka网络线程上执行，回调里打日志、做业务处理都会拖慢所有分区的收发；
+     * 开启虚拟线程时每个回调在独立的虚拟线程上执行，关闭时保持原行为（直接在完成线程上执行）
+     * 注册为{@link KafkaCallbackExecutor}而不是Executor，避免Spring Boot不再创建applicationTaskExecutor
+     */
+    @Bean(destroyMethod = "close")
+    public KafkaCallbackExecutor kafkaCallbackExecutor(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        if (virtualThreads) {
+            return new KafkaCallbackExecutor(
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("kafka-callback-", 0).factory()));
+        }
+        return new KafkaCallbackExecutor(Runnable::run);
+    }
+    
+    /**
+     * 共享的Admin与元数据服务 - 整个应用复用一个AdminClient，容器关闭时随Bean一起关闭
+     * 需要元数据的地方（包括KafkaUtils）都使用这个Bean，不再自行创建AdminClient
+     */
+    @Bean(destroyMethod = "close")
+    public KafkaMetadataService kafkaMetadataService() {
+        return new KafkaMetadataService(bootstrapServers);
+    }
+    
+    /**
+     * 分区负载跟踪器 - 分区器与拦截器共享同一个实例
+     */
+    @Bean
+    public PartitionLoadTracker partitionLoadTracker() {
+        return new PartitionLoadTracker();
+    }
+    
+    /**
+     * 拦截器发送统计 - 通过配置项传给拦截器，监控接口直接读取
+     */
+    @Bean
+    public ProducerMetrics producerMetrics() {
+        return new ProducerMetrics();
+    }
+    
+    /**
+     * 负载感知生产者配置
+     * 使用自定义分区器 + 拦截器，拦截器把确认信息反馈给分区器，
+     * 无Key消息和VIP消息会避开在途数据多、确认慢的分区
+     */
+    @Bean
+    public ProducerFactory<String, String> loadAwareProducerFactory() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configProps.put(ProducerConfig.ACKS_CONFIG, "all");
+        configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, 16384);
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, 10);
+        
+        configProps.put(ProducerConfig.PARTITIONER_CLASS_CONFIG, CustomPartitioner.class);
+        configProps.put(ProducerConfig.INTERCEPTOR_CLASSES_CONFIG, ProducerInterceptorExample.class.getName());
+        configProps.put(PartitionLoadTracker.TRACKER_CONFIG, partitionLoadTracker());
+        configProps.put(ProducerMetrics.METRICS_CONFIG, producerMetrics());
+        
+        return new DefaultKafkaProducerFactory<>(configProps);
+    }
+    
+    /**
+     * 负载感知KafkaTemplate - 同时记录send()调用耗时，与拦截器统计一起在监控接口中输出
+     */
+    @Bean
+    public KafkaTemplate<String, String> loadAwareKafkaTemplate() {
+        return new TimedKafkaTemplate<>(loadAwareProducerFactory(), producerMetrics());
+    }
+    
     /**
      * JSON生产者配置 - 用于对象类型消息
      */
@@ -78,6 +173,28 @@ public class KafkaProducerConfig {
         return new KafkaTemplate<>(jsonProducerFactory());
     }
     
+    /**
+     * 二进制生产者配置 - 用于User、Order的紧凑编码
+     * 不重复写字段名，时间和金额按数值编码，消息体比JSON小3~4倍
+     * 消费端需要使用BinaryDeserializer
+     */
+    @Bean
+    public ProducerFactory<String, Object> binaryProducerFactory() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, BinarySerializer.class);
+        configProps.put(ProducerConfig.ACKS_CONFIG, "all");
+        configProps.put(ProducerConfig.RETRIES_CONFIG, 3);
+        
+        return new DefaultKafkaProducerFactory<>(configProps);
+    }
+    
+    @Bean
+    public KafkaTemplate<String, Object> binaryKafkaTemplate() {
+        return new KafkaTemplate<>(binaryProducerFactory());
+    }
+    
     /**
      * 幂等性生产者配置 - 保证消息不重复
      * 核心特性：即使重试，也不会产生重复消息
@@ -116,8 +233,8 @@ public class KafkaProducerConfig {
         configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
         configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
         
-        // 事务配置 - 必须设置事务ID前缀
-        configProps.put(ProducerConfig.TRANSACTIONAL_ID_CONFIG, "tx-producer-");
+        // 事务配置 - 必须设置事务ID前缀，包含实例ID避免多个实例互相fence
+        configProps.put(ProducerConfig.TRANSACTIONAL_ID_CONFIG, KafkaUtils.transactionalIdPrefix("tx-producer", transactionInstanceId));
         
         // 事务自动开启幂等性
         configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
@@ -132,5 +249,44 @@ public class KafkaProducerConfig {
         KafkaTemplate<String, String> template = new KafkaTemplate<>(transactionalProducerFactory());
         return template;
     }
+    
+    /**
+     * 组提交事务发送器 - 把并发的小事务合并成一个Kafka事务
+     */
+    @Bean(destroyMethod = "close")
+    public GroupCommitTransactionalSender<String, String> groupCommitTransactionalSender(
+            @Value("${kafka.producer.transaction.group-commit.max-operations:100}") int maxOperations,
+            @Value("${kafka.producer.transaction.group-commit.linger-ms:5}") long lingerMs) {
+        return new GroupCommitTransactionalSender<>(transactionalKafkaTemplate(), maxOperations, lingerMs);
+    }
+    
+    /**
+     * 事务生产者池的ProducerFactory
+     * 每个前缀只缓存一个后缀，transactional.id固定为 前缀 + "0"，重启后保持不变以便fence旧实例
+     */
+    @Bean
+    public ProducerFactory<String, String> pooledTransactionalProducerFactory() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configProps.put(ProducerConfig.TRANSACTIONAL_ID_CONFIG, KafkaUtils.transactionalIdPrefix("tx-pool", transactionInstanceId));
+        configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        configProps.put(ProducerConfig.ACKS_CONFIG, "all");
+        
+        DefaultKafkaProducerFactory<String, String> factory = new DefaultKafkaProducerFactory<>(configProps);
+        factory.setTransactionIdSuffixStrategy(new DefaultTransactionIdSuffixStrategy(1));
+        return factory;
+    }
+    
+    /**
+     * 事务生产者池 - 按Key亲和把事务分配到多个事务Producer上并行执行
+     */
+    @Bean
+    public TransactionalProducerPool<String, String> transactionalProducerPool(
+            @Qualifier("pooledTransactionalProducerFactory") ProducerFactory<String, String> producerFactory,
+            @Value("${kafka.producer.transaction.pool.size:4}") int size) {
+        return new TransactionalProducerPool<>(producerFactory,
+            KafkaUtils.transactionalIdPrefix("tx-pool", transactionInstanceId), size);
+    }
 }
-
@@ -0,0 +1,122 @@
+package com.kinch.producer.config;
+
+import com.kinch.common.admin.KafkaMetadataService;
+import com.kinch.common.admin.TopicCatalog;
+import com.kinch.common.admin.TopicOperationException;
+import com.kinch.producer.transaction.TransactionalProducerPool;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 启动时批量创建Topic并预热生产者元数据
+ *
+ * 核心知识点：
+ * 1. {@link TopicCatalog}中的全部Topic通过一次createTopics请求创建，已存在的Topic直接跳过
+ * 2. Producer第一次向某个Topic发送时要同步等待该Topic的元数据（最长max.block.ms），
+ *    启动时对每个KafkaTemplate调用partitionsFor，提前把元数据拉到本地
+ * 3. 元数据缓存在各个Producer实例中，必须用实际发送的那个Producer预热：
+ *    事务模板只能在事务中获取Producer，因此在一个只查询元数据、不发送消息的事务中预热，
+ *    Producer随后归还到工厂缓存继续使用；事务Producer池的每个槽位各预热一次
+ * 4. 在后台线程执行，Broker不可用时只打日志，不阻塞应用启动
+ */
+@Slf4j
+@Component
+public class TopicProvisioner {
+
+    @Autowired
+    private KafkaMetadataService kafkaMetadataService;
+
+    @Autowired
+    private List<KafkaTemplate<?, ?>> kafkaTemplates;
+
+    @Autowired(required = false)
+    private List<TransactionalProducerPool<?, ?>> transactionalProducerPools = List.of();
+
+    @Value("${kafka.topics.provision.enabled:true}")
+    private boolean enabled;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            log.info("【Topic初始化】已关闭");
+            return;
+        }
+        Thread.ofPlatform().daemon().name("topic-provisioner").start(this::provision);
+    }
+
+    void provision() {
+        List<NewTopic> topics = TopicCatalog.topics();
+        long start = System.currentTimeMillis();
+        try {
+            Map<String, Boolean> created = kafkaMetadataService.createTopics(topics);
+            long createdCount = created.values().stream().filter(Boolean::booleanValue).count();
+            log.info("【Topic初始化】共{}个Topic，新建{}个，已存在{}个，耗时{}ms",
+                created.size(), createdCount, created.size() - createdCount,
+                System.currentTimeMillis() - start);
+        } catch (TopicOperationException e) {
+            if (e.succeeded().isEmpty()) {
+                log.error("【Topic初始化】全部Topic创建失败，跳过元数据预热", e);
+                return;
+            }
+            // 部分失败：只预热创建成功或已存在的Topic
+            log.warn("【Topic初始化】{}个Topic创建失败: {}", e.failures().size(), e.failures().keySet(), e);
+            topics = topics.stream().filter(topic -> e.succeeded().containsKey(topic.name())).toList();
+        } catch (Exception e) {
+            // Broker不可用时不再预热，否则每个Topic都要等待max.block.ms
+            log.error("【Topic初始化】批量创建失败，跳过元数据预热", e);
+            return;
+        }
+
+        start = System.currentTimeMillis();
+        List<NewTopic> warmTopics = topics;
+        int warmed = 0;
+        for (KafkaTemplate<?, ?> template : kafkaTemplates) {
+            try {
+                if (template.isTransactional()) {
+                    template.executeInTransaction(operations -> warm(operations, warmTopics));
+                } else {
+                    warm(template, warmTopics);
+                }
+                warmed++;
+            } catch (Exception e) {
+                log.warn("【Topic初始化】生产者元数据预热失败", e);
+            }
+        }
+        for (TransactionalProducerPool<?, ?> pool : transactionalProducerPools) {
+            for (int slot = 0; slot < pool.size(); slot++) {
+                try {
+                    // Integer作为亲和键时直接对应槽位号
+                    pool.executeInTransaction(slot, operations -> warm(operations, warmTopics));
+                    warmed++;
+                } catch (Exception e) {
+                    log.warn("【Topic初始化】事务Producer池元数据预热失败: slot={}", slot, e);
+                }
+            }
+        }
+        log.info("【Topic初始化】{}个生产者元数据预热完成，耗时{}ms", warmed, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 逐个Topic拉取元数据，单个Topic失败不影响其他Topic
+     */
+    private static Void warm(KafkaOperations<?, ?> operations, List<NewTopic> topics) {
+        for (NewTopic topic : topics) {
+            try {
+                operations.partitionsFor(topic.name());
+            } catch (Exception e) {
+                log.warn("【Topic初始化】元数据预热失败: topic={}", topic.name(), e);
+            }
+        }
+        return null;
+    }
+}
@@ -1,14 +1,25 @@
 package com.kinch.producer.controller;
 
+import com.kinch.common.constant.KafkaConstants;
+import com.kinch.producer.bulk.BulkSendResult;
+import com.kinch.producer.bulk.StreamRecordIterator;
+import com.kinch.producer.metrics.ProducerMetrics;
+import com.kinch.producer.partition.PartitionLoadTracker;
 import com.kinch.producer.service.BasicProducerService;
 import com.kinch.producer.service.IdempotentProducerService;
 import com.kinch.producer.service.TransactionalProducerService;
+import com.kinch.producer.transaction.TransactionalProducerPool;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * 生产者REST API控制器
@@ -19,6 +30,9 @@ import java.util.Map;
 @RequestMapping("/api/producer")
 public class ProducerController {
     
+    // 批量发送接口等待全部确认的最长时间
+    private static final long BULK_TIMEOUT_SECONDS = 120;
+    
     @Autowired
     private BasicProducerService basicProducerService;
     
@@ -28,6 +42,15 @@ public class ProducerController {
     @Autowired
     private TransactionalProducerService transactionalProducerService;
     
+    @Autowired
+    private PartitionLoadTracker partitionLoadTracker;
+    
+    @Autowired
+    private ProducerMetrics producerMetrics;
+    
+    @Autowired
+    private TransactionalProducerPool<String, String> transactionalProducerPool;
+    
     /**
      * 健康检查
      */
@@ -107,6 +130,90 @@ public class ProducerController {
         return successResponse("带Header发送成功");
     }
     
+    /**
+     * 负载感知发送，key和partition都可省略
+     * 示例: POST /api/producer/load-aware?key=VIP-123&message=test
+     */
+    @PostMapping("/load-aware")
+    public Map<String, Object> sendLoadAware(
+            @RequestParam(required = false) String key,
+            @RequestParam(required = false) Integer partition,
+            @RequestParam String message) {
+        basicProducerService.sendLoadAware(key, partition, message);
+        return successResponse("负载感知发送成功");
+    }
+    
+    /**
+     * 批量发送（带背压），等待全部消息确认后返回汇总结果
+     * 示例: POST /api/producer/bulk?count=10000&keyPrefix=user
+     */
+    @PostMapping("/bulk")
+    public Map<String, Object> sendBulk(
+            @RequestParam(defaultValue = KafkaConstants.TOPIC_SIMPLE) String topic,
+            @RequestParam(required = false) String keyPrefix,
+            @RequestParam(defaultValue = "1000") int count) {
+        try {
+            BulkSendResult bulkResult = basicProducerService.sendBulk(topic, keyPrefix, count)
+                .get(BULK_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            Map<String, Object> result = successResponse("批量发送完成");
+            result.put("success", bulkResult.isAllSucceeded());
+            result.put("result", bulkResult);
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return errorResponse("批量发送被中断");
+        } catch (ExecutionException | TimeoutException e) {
+            log.error("批量发送失败", e);
+            return errorResponse("批量发送失败: " + e);
+        }
+    }
+    
+    /**
+     * 流式导入 - NDJSON，每行一个JSON对象
+     * 示例: curl -X POST -H 'Content-Type: application/x-ndjson' --data-binary @events.ndjson \
+     *       'http://localhost:8089/api/producer/ingest?topic=user-topic&keyField=userId'
+     */
+    @PostMapping(value = "/ingest", consumes = {"application/x-ndjson", MediaType.APPLICATION_JSON_VALUE})
+    public Map<String, Object> ingestNdjson(
+            @RequestParam(defaultValue = KafkaConstants.TOPIC_SIMPLE) String topic,
+            @RequestParam(required = false) String keyField,
+            InputStream body) {
+        return ingest(StreamRecordIterator.ndjson(body, topic, keyField));
+    }
+    
+    /**
+     * 流式导入 - 二进制帧：[4字节Key长度，-1表示无Key][Key][4字节Value长度][Value]
+     * 示例: curl -X POST -H 'Content-Type: application/octet-stream' --data-binary @events.bin \
+     *       'http://localhost:8089/api/producer/ingest?topic=user-topic'
+     */
+    @PostMapping(value = "/ingest", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public Map<String, Object> ingestBinary(
+            @RequestParam(defaultValue = KafkaConstants.TOPIC_SIMPLE) String topic,
+            InputStream body) {
+        return ingest(StreamRecordIterator.framed(body, topic));
+    }
+    
+    private Map<String, Object> ingest(StreamRecordIterator records) {
+        try {
+            BulkSendResult bulkResult = basicProducerService.ingest(records).get(BULK_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            boolean success = bulkResult.isAllSucceeded() && records.rejected() == 0 && records.streamError() == null;
+            Map<String, Object> result = successResponse("流式导入完成");
+            result.put("success", success);
+            result.put("result", bulkResult);
+            result.put("rejected", records.rejected());
+            if (records.streamError() != null) {
+                result.put("streamError", records.streamError());
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return errorResponse("流式导入被中断");
+        } catch (ExecutionException | TimeoutException e) {
+            log.error("流式导入失败", e);
+            return errorResponse("流式导入失败: " + e);
+        }
+    }
+    
     // ==================== 幂等性生产者 ====================
     
     /**
@@ -202,6 +309,42 @@ public class ProducerController {
         return successResponse("订单处理完成");
     }
     
+    // ==================== 监控指标 ====================
+    
+    /**
+     * 分区负载与权重
+     * 示例: GET /api/producer/metrics/partition-load
+     */
+    @GetMapping("/metrics/partition-load")
+    public Map<String, Object> partitionLoad() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("topics", partitionLoadTracker.snapshot());
+        result.put("timestamp", System.currentTimeMillis());
+        return result;
+    }
+    
+    /**
+     * 拦截器发送统计（按Topic/分区的确认延迟分布）
+     * 示例: GET /api/producer/metrics/interceptor
+     */
+    @GetMapping("/metrics/interceptor")
+    public Map<String, Object> interceptorMetrics() {
+        Map<String, Object> result = new HashMap<>(producerMetrics.snapshot());
+        result.put("timestamp", System.currentTimeMillis());
+        return result;
+    }
+    
+    /**
+     * 事务生产者池指标：槽位利用率、等待次数和等待时间
+     * 示例: GET /api/producer/metrics/transaction-pool
+     */
+    @GetMapping("/metrics/transaction-pool")
+    public Map<String, Object> transactionPoolMetrics() {
+        Map<String, Object> result = new HashMap<>(transactionalProducerPool.snapshot());
+        result.put("timestamp", System.currentTimeMillis());
+        return result;
+    }
+    
     // ==================== 工具方法 ====================
     
     private Map<String, Object> successResponse(String message) {
@@ -1,12 +1,20 @@
 package com.kinch.producer.interceptor;
 
+import com.kinch.common.constant.KafkaConstants;
+import com.kinch.common.util.HeaderUtils;
+import com.kinch.producer.metrics.ProducerMetrics;
+import com.kinch.producer.partition.CustomPartitioner;
+import com.kinch.producer.partition.PartitionLoadTracker;
+import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.clients.producer.ProducerInterceptor;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -19,21 +27,62 @@ import java.util.concurrent.atomic.AtomicLong;
  * 3. 拦截器链：可以配置多个拦截器按顺序执行
  * 4. onSend在序列化之前执行，可以修改消息
  * 5. onAcknowledgement在收到响应后执行，不能修改消息
+ * 6. 配置了{@link PartitionLoadTracker}时，把每个分区的确认字节数和确认延迟反馈给分区器
+ *    分区器是{@link CustomPartitioner}时，显式指定分区的消息清空分区后交给分区器按原分区路由，
+ *    保证每个确认都对应一条分区器记录过的路由
+ * 
+ * 统计实现：
+ * onSend运行在应用线程，onAcknowledgement运行在Kafka I/O线程，
+ * 计数使用{@link ProducerMetrics}中的LongAdder，避免多个线程争抢同一个缓存行；
+ * 统计报告由共享的ProducerMetrics中唯一的定时线程输出，确认回调中不再做字符串格式化；
+ * send()调用本身的耗时由{@link com.kinch.producer.metrics.TimedKafkaTemplate}记录
+ * 
+ * 消息头注入：
+ * 1. 不修改调用方的ProducerRecord：复制Header后构造新消息返回，调用方重复发送同一条消息也不受影响
+ * 2. 先移除同名Header再追加，消息上每个注入的Header只有一份
+ * 3. 来源标识是预编码的常量Header，序号和时间戳按9字节编码：格式标记0x01 + 8字节大端数值
  */
 public class ProducerInterceptorExample implements ProducerInterceptor<String, String> {
     
     private static final Logger logger = LoggerFactory.getLogger(ProducerInterceptorExample.class);
     
-    // 统计发送消息数
-    private final AtomicLong sendCount = new AtomicLong(0);
-    // 统计成功消息数
-    private final AtomicLong successCount = new AtomicLong(0);
-    // 统计失败消息数
-    private final AtomicLong failureCount = new AtomicLong(0);
+    public static final String REPORT_INTERVAL_MS_CONFIG = "custom.producer.metrics.report.interval.ms";
+    
+    private static final long DEFAULT_REPORT_INTERVAL_MS = 60000;
+    
+    // 来源标识，所有消息共享同一个预编码的Header
+    private static final Header SOURCE_HEADER = HeaderUtils.constant(KafkaConstants.HEADER_SOURCE, "producer-interceptor");
+    
+    // 消息序号，只在发送线程上递增，用于message-seq消息头
+    private final AtomicLong sequence = new AtomicLong(0);
+    
+    private ProducerMetrics metrics;
+    
+    private PartitionLoadTracker loadTracker;
+    
+    private boolean reporting;
+    
+    // 显式指定的分区是否交给CustomPartitioner路由
+    private boolean routeExplicitPartitions;
     
     @Override
     public void configure(Map<String, ?> configs) {
-        logger.info("生产者拦截器初始化");
+        ProducerMetrics shared = ProducerMetrics.fromConfig(configs);
+        this.metrics = shared != null ? shared : new ProducerMetrics();
+        this.loadTracker = PartitionLoadTracker.fromConfig(configs);
+        this.routeExplicitPartitions = loadTracker != null
+            && isCustomPartitioner(configs.get(ProducerConfig.PARTITIONER_CLASS_CONFIG));
+        
+        long reportIntervalMs = DEFAULT_REPORT_INTERVAL_MS;
+        Object interval = configs.get(REPORT_INTERVAL_MS_CONFIG);
+        if (interval != null) {
+            reportIntervalMs = Long.parseLong(interval.toString());
+        }
+        if (reportIntervalMs > 0) {
+            metrics.startReporter(reportIntervalMs);
+            reporting = true;
+        }
+        logger.info("生产者拦截器初始化，统计报告间隔: {} ms", reportIntervalMs);
     }
     
     /**
@@ -42,34 +91,46 @@ public class ProducerInterceptorExample implements ProducerInterceptor<String, S
      */
     @Override
     public ProducerRecord<String, String> onSend(ProducerRecord<String, String> record) {
-        long count = sendCount.incrementAndGet();
-        
-        // 添加自定义header - 消息序号
-        ProducerRecord<String, String> newRecord = new ProducerRecord<>(
-            record.topic(),
-            record.partition(),
-            record.timestamp(),
-            record.key(),
-            record.value(),
-            record.headers()
-        );
-        
-        // 添加消息序号
-        newRecord.headers().add("message-seq", 
-            String.valueOf(count).getBytes(StandardCharsets.UTF_8));
-        
-        // 添加时间戳
-        newRecord.headers().add("send-timestamp", 
-            String.valueOf(System.currentTimeMillis()).getBytes(StandardCharsets.UTF_8));
+        long count = sequence.incrementAndGet();
+        metrics.recordSend(record.topic());
+        Integer partition = record.partition();
+        if (loadTracker != null) {
+            Integer explicitPartition = routeExplicitPartitions ? partition : null;
+            loadTracker.beginSend(explicitPartition);
+            if (explicitPartition != null) {
+                // 分区记在跟踪器里，消息本身不带分区，KafkaProducer才会调用分区器
+                partition = null;
+            }
+        }
         
-        // 添加来源标识
-        newRecord.headers().add("source", 
-            "producer-interceptor".getBytes(StandardCharsets.UTF_8));
+        Headers headers = new RecordHeaders(record.headers().toArray());
+        addHeaders(headers, count);
+        record = new ProducerRecord<>(record.topic(), partition, record.timestamp(),
+            record.key(), record.value(), headers);
         
-        logger.debug("拦截器-发送前: topic={}, key={}, seq={}", 
-            record.topic(), record.key(), count);
+        if (logger.isDebugEnabled()) {
+            logger.debug("拦截器-发送前: topic={}, key={}, seq={}", 
+                record.topic(), record.key(), count);
+        }
         
-        return newRecord;
+        return record;
+    }
+    
+    private static boolean isCustomPartitioner(Object partitionerClass) {
+        return partitionerClass == CustomPartitioner.class
+            || CustomPartitioner.class.getName().equals(partitionerClass);
+    }
+    
+    /**
+     * 添加消息序号、发送时间戳和来源标识，替换已有的同名Header
+     */
+    private static void addHeaders(Headers headers, long seq) {
+        headers.remove(KafkaConstants.HEADER_MESSAGE_SEQ);
+        headers.remove(KafkaConstants.HEADER_SEND_TIMESTAMP);
+        headers.remove(KafkaConstants.HEADER_SOURCE);
+        headers.add(HeaderUtils.longHeader(KafkaConstants.HEADER_MESSAGE_SEQ, seq));
+        headers.add(HeaderUtils.longHeader(KafkaConstants.HEADER_SEND_TIMESTAMP, System.currentTimeMillis()));
+        headers.add(SOURCE_HEADER);
     }
     
     /**
@@ -78,32 +139,47 @@ public class ProducerInterceptorExample implements ProducerInterceptor<String, S
      */
     @Override
     public void onAcknowledgement(RecordMetadata metadata, Exception exception) {
-        if (exception == null) {
-            // 发送成功
-            long success = successCount.incrementAndGet();
-            logger.debug("拦截器-发送成功: topic={}, partition={}, offset={}, 成功数={}", 
-                metadata.topic(), metadata.partition(), metadata.offset(), success);
+        long latencyMs = -1;
+        if (metadata == null) {
+            metrics.recordAck("unknown", -1, -1, exception == null);
         } else {
+            // 未显式指定时间戳的消息，其时间戳就是Producer发送时的时间，可以近似计算确认延迟
+            latencyMs = metadata.hasTimestamp() ? System.currentTimeMillis() - metadata.timestamp() : -1;
+            metrics.recordAck(metadata.topic(), metadata.partition(), latencyMs, exception == null);
+        }
+        if (loadTracker != null) {
+            recordPartitionLoad(metadata, exception, latencyMs);
+        }
+        
+        if (exception != null) {
             // 发送失败
-            long failure = failureCount.incrementAndGet();
             logger.error("拦截器-发送失败: 失败数={}, 错误: {}", 
-                failure, exception.getMessage());
+                metrics.failureCount(), exception.getMessage());
         }
-        
-        // 每100条消息打印一次统计信息
-        long total = sendCount.get();
-        if (total > 0 && total % 100 == 0) {
-            logger.info("【消息统计】总数: {}, 成功: {}, 失败: {}, 成功率: {}", 
-                total, successCount.get(), failureCount.get(), 
-                String.format("%.2f%%", successCount.get() * 100.0 / total));
+    }
+    
+    /**
+     * 扣减分区在途字节并记录确认延迟
+     * 发送失败时元数据中的大小为-1，由跟踪器按路由时记录的大小扣减
+     */
+    private void recordPartitionLoad(RecordMetadata metadata, Exception exception, long latencyMs) {
+        if (metadata == null) {
+            loadTracker.recordAck(null, -1, -1, -1);
+            return;
         }
+        long bytes = exception != null ? -1
+            : Math.max(0, metadata.serializedKeySize()) + Math.max(0, metadata.serializedValueSize());
+        loadTracker.recordAck(metadata.topic(), metadata.partition(), bytes, latencyMs);
     }
     
     @Override
     public void close() {
+        if (reporting) {
+            metrics.stopReporter();
+        }
         // 打印最终统计
         logger.info("【最终统计】总数: {}, 成功: {}, 失败: {}", 
-            sendCount.get(), successCount.get(), failureCount.get());
+            metrics.sendCount(), metrics.successCount(), metrics.failureCount());
     }
 }
 
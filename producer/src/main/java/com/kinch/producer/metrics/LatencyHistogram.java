@@ -0,0 +1,103 @@
+package com.kinch.producer.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 延迟直方图 - 按2的幂分桶，记录无锁
+ *
+ * 第0个桶记录0，第i个桶记录 [2^(i-1), 2^i)，最后一个桶收纳更大的值。
+ * 单位由调用方决定（默认毫秒），快照中的字段名带上单位后缀，如p99Ms、p99Us。
+ * 每个桶是一个LongAdder，多线程记录时各自累加到不同的Cell上，不会争抢同一个缓存行。
+ * 分位数按桶上界估算，精度为2倍以内，用于监控足够。
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 20; // 最后一个桶从 2^18 开始（毫秒约4.4分钟）
+
+    public static final String UNIT_MILLIS = "Ms";
+    public static final String UNIT_MICROS = "Us";
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final String unit;
+
+    public LatencyHistogram() {
+        this(UNIT_MILLIS);
+    }
+
+    public LatencyHistogram(String unit) {
+        this.unit = unit;
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long latency) {
+        if (latency < 0) {
+            return;
+        }
+        int index = 64 - Long.numberOfLeadingZeros(latency);
+        buckets[Math.min(index, BUCKETS - 1)].increment();
+        count.increment();
+        sum.add(latency);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    long sum() {
+        return sum.sum();
+    }
+
+    /**
+     * 把各桶的当前计数累加到target中（用于Topic级别汇总）
+     */
+    void mergeInto(long[] target) {
+        for (int i = 0; i < BUCKETS; i++) {
+            target[i] += buckets[i].sum();
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        long[] counts = new long[BUCKETS];
+        mergeInto(counts);
+        return snapshot(counts, count.sum(), sum.sum(), unit);
+    }
+
+    static long[] newCounts() {
+        return new long[BUCKETS];
+    }
+
+    static Map<String, Object> snapshot(long[] counts, long total, long totalSum, String unit) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("count", total);
+        result.put("mean" + unit, total == 0 ? 0 : Math.round(totalSum * 100.0 / total) / 100.0);
+        result.put("p50" + unit, percentile(counts, total, 0.50));
+        result.put("p99" + unit, percentile(counts, total, 0.99));
+        result.put("p999" + unit, percentile(counts, total, 0.999));
+        return result;
+    }
+
+    private static long percentile(long[] counts, long total, double quantile) {
+        if (total == 0) {
+            return 0;
+        }
+        long threshold = (long) Math.ceil(total * quantile);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= threshold) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(counts.length - 1);
+    }
+
+    private static long upperBound(int bucket) {
+        return bucket == 0 ? 0 : (1L << bucket) - 1;
+    }
+}
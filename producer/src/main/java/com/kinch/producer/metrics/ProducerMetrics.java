@@ -0,0 +1,217 @@
+package com.kinch.producer.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 生产者发送指标
+ *
+ * 核心知识点：
+ * 1. 应用线程在onSend中计数，Kafka I/O线程在onAcknowledgement中计数，
+ *    共享AtomicLong会让同一个缓存行在多个CPU核之间来回传递
+ * 2. LongAdder把计数分散到多个Cell，读取时才求和，适合写多读少的统计场景
+ * 3. 记录路径只做累加；格式化、汇总都在快照时完成，由定时任务在热路径之外执行
+ *
+ * 统计维度：
+ * - 全局：发送数、成功数、失败数
+ * - Topic：发送数、成功数、失败数、确认延迟直方图（由各分区汇总）、
+ *   发送耗时直方图（send()调用本身的耗时，单位微秒，包括等待元数据、序列化和缓冲区满时的阻塞）
+ * - 分区：确认延迟直方图
+ *
+ * 可以通过生产者配置项 {@link #METRICS_CONFIG} 传入共享实例，便于在监控接口中读取。
+ * 同一个ProducerFactory会创建多个Producer，每个Producer都有自己的拦截器实例，
+ * 统计报告线程由共享实例持有，无论有多少个拦截器都只有一个报告线程。
+ */
+public class ProducerMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProducerMetrics.class);
+
+    public static final String METRICS_CONFIG = "custom.producer.metrics";
+
+    private final LongAdder sendCount = new LongAdder();
+    private final LongAdder successCount = new LongAdder();
+    private final LongAdder failureCount = new LongAdder();
+
+    private final ConcurrentMap<String, TopicMetrics> topics = new ConcurrentHashMap<>();
+
+    // 统计报告线程及使用它的拦截器数量，由this加锁保护
+    private ScheduledExecutorService reporter;
+
+    private int reporterUsers;
+
+    /**
+     * 从生产者配置中取出共享实例，未配置返回null
+     */
+    public static ProducerMetrics fromConfig(Map<String, ?> configs) {
+        Object metrics = configs.get(METRICS_CONFIG);
+        return metrics instanceof ProducerMetrics ? (ProducerMetrics) metrics : null;
+    }
+
+    public void recordSend(String topic) {
+        sendCount.increment();
+        topic(topic).sendCount.increment();
+    }
+
+    /**
+     * @param partition 分区编号，发送前就失败时为-1
+     * @param latencyMs 确认延迟，未知时为负数
+     */
+    public void recordAck(String topic, int partition, long latencyMs, boolean success) {
+        TopicMetrics topicMetrics = topic(topic);
+        if (success) {
+            successCount.increment();
+            topicMetrics.successCount.increment();
+        } else {
+            failureCount.increment();
+            topicMetrics.failureCount.increment();
+        }
+        if (partition >= 0 && latencyMs >= 0) {
+            topicMetrics.partition(partition).record(latencyMs);
+        }
+    }
+
+    /**
+     * 记录一次send()调用的耗时
+     */
+    public void recordSendLatency(String topic, long latencyMicros) {
+        topic(topic).sendLatency.record(latencyMicros);
+    }
+
+    /**
+     * 拦截器初始化时调用，第一个调用者启动报告线程，之后的调用只增加引用计数
+     */
+    public synchronized void startReporter(long intervalMs) {
+        reporterUsers++;
+        if (reporter != null) {
+            return;
+        }
+        reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "producer-metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(this::report, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 拦截器关闭时调用，最后一个使用者关闭后停止报告线程
+     */
+    public synchronized void stopReporter() {
+        if (reporterUsers > 0 && --reporterUsers == 0 && reporter != null) {
+            reporter.shutdownNow();
+            reporter = null;
+        }
+    }
+
+    /**
+     * 定时输出统计信息，运行在报告线程上
+     */
+    private void report() {
+        try {
+            logger.info("【消息统计】{}", snapshot());
+        } catch (Exception e) {
+            logger.warn("【消息统计】输出失败", e);
+        }
+    }
+
+    public long sendCount() {
+        return sendCount.sum();
+    }
+
+    public long successCount() {
+        return successCount.sum();
+    }
+
+    public long failureCount() {
+        return failureCount.sum();
+    }
+
+    /**
+     * 指标快照，在报告线程或监控接口中调用
+     */
+    public Map<String, Object> snapshot() {
+        long sent = sendCount.sum();
+        long success = successCount.sum();
+        long failure = failureCount.sum();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("sendCount", sent);
+        result.put("successCount", success);
+        result.put("failureCount", failure);
+        result.put("successRate", sent == 0 ? 0 : Math.round(success * 10000.0 / sent) / 100.0);
+
+        Map<String, Object> topicSnapshots = new LinkedHashMap<>();
+        topics.forEach((topic, metrics) -> topicSnapshots.put(topic, metrics.snapshot()));
+        result.put("topics", topicSnapshots);
+        return result;
+    }
+
+    private TopicMetrics topic(String topic) {
+        TopicMetrics metrics = topics.get(topic);
+        return metrics != null ? metrics : topics.computeIfAbsent(topic, t -> new TopicMetrics());
+    }
+
+    private static final class TopicMetrics {
+        private final LongAdder sendCount = new LongAdder();
+        private final LongAdder successCount = new LongAdder();
+        private final LongAdder failureCount = new LongAdder();
+        private final LatencyHistogram sendLatency = new LatencyHistogram(LatencyHistogram.UNIT_MICROS);
+        private volatile LatencyHistogram[] partitions = new LatencyHistogram[0];
+
+        private LatencyHistogram partition(int partition) {
+            LatencyHistogram[] current = partitions;
+            if (partition < current.length) {
+                return current[partition];
+            }
+            return grow(partition);
+        }
+
+        private synchronized LatencyHistogram grow(int partition) {
+            if (partition >= partitions.length) {
+                LatencyHistogram[] grown = Arrays.copyOf(partitions, partition + 1);
+                for (int i = partitions.length; i < grown.length; i++) {
+                    grown[i] = new LatencyHistogram();
+                }
+                partitions = grown;
+            }
+            return partitions[partition];
+        }
+
+        private Map<String, Object> snapshot() {
+            LatencyHistogram[] current = partitions;
+            long[] counts = LatencyHistogram.newCounts();
+            long total = 0;
+            long totalMs = 0;
+
+            Map<String, Object> partitionSnapshots = new LinkedHashMap<>();
+            for (int i = 0; i < current.length; i++) {
+                if (current[i].count() == 0) {
+                    continue;
+                }
+                current[i].mergeInto(counts);
+                total += current[i].count();
+                totalMs += current[i].sum();
+                partitionSnapshots.put(String.valueOf(i), current[i].snapshot());
+            }
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("sendCount", sendCount.sum());
+            result.put("successCount", successCount.sum());
+            result.put("failureCount", failureCount.sum());
+            result.put("sendLatency", sendLatency.snapshot());
+            result.put("ackLatency", LatencyHistogram.snapshot(counts, total, totalMs, LatencyHistogram.UNIT_MILLIS));
+            result.put("partitions", partitionSnapshots);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.kinch.producer.metrics;
+
+import io.micrometer.observation.Observation;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.support.SendResult;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 记录发送耗时的KafkaTemplate
+ *
+ * 核心知识点：
+ * 1. send()并不只是把消息放进缓冲区：拦截器onSend、等待元数据、序列化、分区、追加到批次都在调用线程上执行
+ * 2. 缓冲区（buffer.memory）写满时send()会阻塞，最长max.block.ms
+ * 3. 确认延迟只反映Broker侧，发送耗时才反映调用线程被阻塞了多久
+ *
+ * 所有send方法最终都经过doSend，这里统计整个doSend的耗时（包含Producer.send()），单位微秒
+ */
+public class TimedKafkaTemplate<K, V> extends KafkaTemplate<K, V> {
+
+    private final ProducerMetrics metrics;
+
+    public TimedKafkaTemplate(ProducerFactory<K, V> producerFactory, ProducerMetrics metrics) {
+        super(producerFactory);
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected CompletableFuture<SendResult<K, V>> doSend(ProducerRecord<K, V> producerRecord, Observation observation) {
+        long start = System.nanoTime();
+        try {
+            return super.doSend(producerRecord, observation);
+        } finally {
+            metrics.recordSendLatency(producerRecord.topic(), TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        }
+    }
+}
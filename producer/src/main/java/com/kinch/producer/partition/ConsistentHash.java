@@ -0,0 +1,71 @@
+package com.kinch.producer.partition;
+
+/**
+ * 一致性哈希（Jump Consistent Hash）
+ *
+ * 核心知识点：
+ * 1. hash % N 在分区数从N变为M时，大部分Key都会换分区（例如3 -> 4时约75%的Key移动）
+ * 2. Jump Consistent Hash保证分区数从N增加到M时，只有约 (M - N) / M 的Key移动，
+ *    且移动的Key只会去新增的分区，已有分区之间不会互相搬迁
+ * 3. 计算本身是O(ln N)的循环；这里再按槽位预先算好查找表，热路径只是一次数组访问
+ *
+ * 参考：Lamping & Veach, "A Fast, Minimal Memory, Consistent Hash Algorithm"
+ */
+public final class ConsistentHash {
+
+    /**
+     * 查找表槽位数，必须是2的幂；远大于分区数时，各分区分到的槽位数基本均匀
+     */
+    public static final int SLOTS = 4096;
+
+    private ConsistentHash() {
+        // 工具类，防止实例化
+    }
+
+    /**
+     * Jump Consistent Hash
+     *
+     * @param key 64位哈希值
+     * @param buckets 桶（分区）数量
+     * @return [0, buckets) 之间的桶编号
+     */
+    public static int jump(long key, int buckets) {
+        long b = -1;
+        long j = 0;
+        while (j < buckets) {
+            b = j;
+            key = key * 2862933555777941757L + 1;
+            j = (long) ((b + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) b;
+    }
+
+    /**
+     * 预先计算 槽位 -> 分区 的查找表
+     * 槽位到分区的映射同样由Jump Hash决定，因此扩容时只有约 (M - N) / M 的槽位移动
+     */
+    public static int[] lookupTable(int buckets) {
+        int[] table = new int[SLOTS];
+        for (int slot = 0; slot < SLOTS; slot++) {
+            table[slot] = jump(mix(slot), buckets);
+        }
+        return table;
+    }
+
+    /**
+     * 由Key的32位哈希值定位槽位
+     */
+    public static int slot(int hash) {
+        return hash & (SLOTS - 1);
+    }
+
+    /**
+     * 把槽位编号打散成64位种子，避免相邻槽位的跳跃序列相关
+     */
+    private static long mix(long x) {
+        x += 0x9E3779B97F4A7C15L;
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+}
@@ -2,6 +2,7 @@ package com.kinch.producer.partition;
 
 import org.apache.kafka.clients.producer.Partitioner;
 import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.KafkaException;
 import org.apache.kafka.common.PartitionInfo;
 import org.apache.kafka.common.utils.Utils;
 import org.slf4j.Logger;
@@ -9,29 +10,95 @@ import org.slf4j.LoggerFactory;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * 自定义分区器
  * 演示如何控制消息发送到哪个分区
- * 
+ *
  * 核心知识点：
  * 1. 分区策略影响消息的顺序性和负载均衡
  * 2. 有Key时可以保证相同Key的消息发送到同一分区
- * 3. 无Key时默认使用轮询策略
+ * 3. 无Key时默认使用粘性策略（Sticky）：持续写同一个分区，直到该分区的批次发出再切换
+ *
+ * 粘性分区：
+ * 按时间戳取模时，同一毫秒内的消息全部堆到一个分区，其余消息又分散到各个分区，
+ * 每个批次都很小，batch.size和linger.ms形同虚设。
+ * 粘性策略让无Key消息先填满一个分区的批次，Producer创建新批次时回调onNewBatch，
+ * 此时再随机切换到另一个有Leader的分区，既能攒满批次，又能在分区间均匀分布。
+ * 通过 custom.partitioner.sticky.keyless=false 可以退回到按时间戳取模的旧策略。
+ *
+ * 负载感知（可选）：
+ * 生产者配置中传入{@link PartitionLoadTracker}时，分区器按各分区的在途字节和确认延迟计算权重：
+ * 1. VIP消息不再固定写0号分区（VIP流量突增时0号分区会成为热点），而是按权重分散到负载较低的分区，
+ *    代价是VIP消息不再保证按Key有序
+ * 2. 无Key消息切换粘性分区时按权重选择下一个分区
+ * 3. 普通有Key消息仍使用murmur2哈希，保持Key与分区的亲和性
+ * 4. 显式指定分区的消息由拦截器清空分区后交给分区器，按原分区路由，在途字节同样计入该分区
+ *
+ * 一致性哈希（可选）：
+ * murmur2 % N 在分区扩容时会让大量Key换分区，破坏下游按Key的本地缓存。
+ * 设置 custom.partitioner.key.hash=jump 后，普通有Key消息改用{@link ConsistentHash}，
+ * 分区数从N增加到M时只有约 (M - N) / M 的Key移动。
+ * 注意：切换哈希方式本身会让Key重新分布一次，应在扩容前选定。
+ *
+ * 性能要点：
+ * partition()在每条消息的发送线程上执行，热路径上不分配对象、不打日志：
+ * 1. VIP前缀直接在key字节上比较，不构造String
+ * 2. 分区数按Topic缓存，元数据更新（Cluster实例变化）时才重新计算
  */
 public class CustomPartitioner implements Partitioner {
-    
+
     private static final Logger logger = LoggerFactory.getLogger(CustomPartitioner.class);
-    
+
+    public static final String STICKY_KEYLESS_CONFIG = "custom.partitioner.sticky.keyless";
+    public static final String KEY_HASH_CONFIG = "custom.partitioner.key.hash";
+
+    public static final String KEY_HASH_MURMUR2 = "murmur2";
+    public static final String KEY_HASH_JUMP = "jump";
+
+    private static final byte[] VIP_PREFIX = {'V', 'I', 'P', '-'};
+
+    // VIP用户发送到0号分区（假设这是一个高性能分区）
+    private static final int VIP_PARTITION = 0;
+
+    private final Map<String, TopicPartitionCount> partitionCounts = new ConcurrentHashMap<>();
+
+    // 每个Topic当前粘住的分区
+    private final ConcurrentMap<String, Integer> stickyPartitions = new ConcurrentHashMap<>();
+
+    private boolean stickyKeyless = true;
+
+    private boolean jumpHash = false;
+
+    private PartitionLoadTracker loadTracker;
+
     @Override
     public void configure(Map<String, ?> configs) {
         // 初始化配置，可以从这里读取自定义配置
-        logger.info("自定义分区器初始化，配置: {}", configs);
+        Object sticky = configs.get(STICKY_KEYLESS_CONFIG);
+        if (sticky != null) {
+            this.stickyKeyless = Boolean.parseBoolean(sticky.toString());
+        }
+        Object keyHash = configs.get(KEY_HASH_CONFIG);
+        if (keyHash != null) {
+            String strategy = keyHash.toString().trim();
+            if (KEY_HASH_JUMP.equalsIgnoreCase(strategy)) {
+                this.jumpHash = true;
+            } else if (!KEY_HASH_MURMUR2.equalsIgnoreCase(strategy)) {
+                throw new IllegalArgumentException("Unknown " + KEY_HASH_CONFIG + ": " + strategy);
+            }
+        }
+        this.loadTracker = PartitionLoadTracker.fromConfig(configs);
+        logger.info("自定义分区器初始化，无Key粘性分区: {}, 负载感知: {}, Key哈希: {}",
+            stickyKeyless, loadTracker != null, jumpHash ? KEY_HASH_JUMP : KEY_HASH_MURMUR2);
     }
-    
+
     /**
      * 核心方法：决定消息发送到哪个分区
-     * 
+     *
      * @param topic 主题名称
      * @param key 消息key
      * @param keyBytes key的字节数组
@@ -41,40 +108,210 @@ public class CustomPartitioner implements Partitioner {
      * @return 目标分区编号
      */
     @Override
-    public int partition(String topic, Object key, byte[] keyBytes, 
+    public int partition(String topic, Object key, byte[] keyBytes,
                         Object value, byte[] valueBytes, Cluster cluster) {
-        
-        List<PartitionInfo> partitions = cluster.partitionsForTopic(topic);
-        int numPartitions = partitions.size();
-        
+
+        TopicPartitionCount partitions = topicPartitions(topic, cluster);
+        int numPartitions = partitions.count;
+        Integer explicitPartition = loadTracker == null ? null : loadTracker.explicitPartition();
+        int partition = explicitPartition != null
+            ? checkPartition(explicitPartition, numPartitions)
+            : choosePartition(topic, keyBytes, cluster, partitions);
+
+        if (loadTracker != null) {
+            long bytes = (keyBytes == null ? 0 : keyBytes.length) + (valueBytes == null ? 0 : valueBytes.length);
+            loadTracker.recordRoute(topic, partition, numPartitions, bytes);
+        }
+        return partition;
+    }
+
+    /**
+     * 显式分区越界时与KafkaProducer自身的校验一样抛出KafkaException
+     */
+    private static int checkPartition(int partition, int numPartitions) {
+        if (partition < 0 || partition >= numPartitions) {
+            throw new KafkaException(String.format(
+                "Invalid partition given with record: %d is not in the range [0...%d).", partition, numPartitions));
+        }
+        return partition;
+    }
+
+    private int choosePartition(String topic, byte[] keyBytes, Cluster cluster, TopicPartitionCount partitions) {
+        int numPartitions = partitions.count;
         if (keyBytes == null) {
-            // 没有key时，使用轮询策略
-            // 这里简化处理，实际生产环境可以使用更复杂的策略
+            if (stickyKeyless) {
+                // 没有key时，粘在当前分区上，直到批次发出
+                return stickyPartition(topic, cluster, numPartitions);
+            }
+            // 旧策略：按时间戳取模
             return (int) (System.currentTimeMillis() % numPartitions);
         }
-        
+
         // 自定义分区策略1：根据key的特定前缀分区
-        String keyStr = new String(keyBytes);
-        
-        // 例如：VIP用户发送到特定分区
-        if (keyStr.startsWith("VIP-")) {
-            // VIP用户发送到0号分区（假设这是一个高性能分区）
-            logger.info("VIP用户消息，发送到分区0: key={}", keyStr);
-            return 0;
-        }
-        
+        // 例如：VIP用户发送到特定分区；开启负载感知时按权重发往负载较低的分区
+        if (hasVipPrefix(keyBytes)) {
+            return loadTracker == null ? VIP_PARTITION
+                : loadTracker.choosePartition(topic, numPartitions, ThreadLocalRandom.current().nextDouble(), -1);
+        }
+
         // 例如：普通用户按照hash分区
         // 使用Kafka自带的murmur2算法保证均匀分布
-        int partition = Utils.toPositive(Utils.murmur2(keyBytes)) % numPartitions;
-        
-        logger.debug("消息分区计算: key={}, partition={}/{}", keyStr, partition, numPartitions);
-        return partition;
+        int hash = Utils.murmur2(keyBytes);
+        if (jumpHash) {
+            // 一致性哈希：查预先计算好的槽位表
+            return partitions.jumpTable[ConsistentHash.slot(hash)];
+        }
+        return Utils.toPositive(hash) % numPartitions;
     }
-    
+
+    /**
+     * Producer即将为某个分区创建新批次时回调
+     * 说明上一个批次已满或已发出，无Key消息切换到另一个分区
+     */
+    // KIP-794已将onNewBatch标记为废弃，但3.9客户端对自定义分区器仍会回调，粘性分区依赖它
+    @SuppressWarnings("deprecation")
+    @Override
+    public void onNewBatch(String topic, Cluster cluster, int prevPartition) {
+        if (loadTracker != null) {
+            // Producer会放弃上一次的分区结果并重新分区，撤销对应的在途字节
+            loadTracker.cancelLastRoute(prevPartition);
+        }
+        if (stickyKeyless) {
+            nextStickyPartition(topic, cluster, prevPartition);
+        }
+    }
+
+    private int stickyPartition(String topic, Cluster cluster, int numPartitions) {
+        Integer partition = stickyPartitions.get(topic);
+        if (partition != null && partition < numPartitions) {
+            return partition;
+        }
+        return nextStickyPartition(topic, cluster, partition == null ? -1 : partition);
+    }
+
+    /**
+     * 切换粘性分区
+     * 只有当前粘性分区仍是prevPartition时才切换，避免多个发送线程同时触发时连续跳过多个分区
+     * 优先选择有Leader的分区，Leader不可用的分区会被跳过；开启负载感知时按权重选择
+     */
+    private int nextStickyPartition(String topic, Cluster cluster, int prevPartition) {
+        Integer current = stickyPartitions.get(topic);
+        if (current != null && current != prevPartition) {
+            return current;
+        }
+
+        int next = chooseOtherPartition(topic, cluster, current == null ? -1 : current);
+        if (current == null) {
+            Integer existing = stickyPartitions.putIfAbsent(topic, next);
+            return existing == null ? next : existing;
+        }
+        stickyPartitions.replace(topic, current, next);
+        return stickyPartitions.get(topic);
+    }
+
+    private int chooseOtherPartition(String topic, Cluster cluster, int exclude) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<PartitionInfo> available = cluster.availablePartitionsForTopic(topic);
+
+        if (loadTracker != null) {
+            int numPartitions = partitionCount(topic, cluster);
+            int candidate = loadTracker.choosePartition(topic, numPartitions, random.nextDouble(), exclude);
+            if (available.isEmpty() || available.size() == numPartitions || isAvailable(available, candidate)) {
+                return candidate;
+            }
+        }
+
+        if (available.isEmpty()) {
+            int numPartitions = partitionCount(topic, cluster);
+            int candidate = random.nextInt(numPartitions);
+            return numPartitions > 1 && candidate == exclude ? (candidate + 1) % numPartitions : candidate;
+        }
+        if (available.size() == 1) {
+            return available.get(0).partition();
+        }
+
+        int candidate = available.get(random.nextInt(available.size())).partition();
+        while (candidate == exclude) {
+            candidate = available.get(random.nextInt(available.size())).partition();
+        }
+        return candidate;
+    }
+
+    private static boolean isAvailable(List<PartitionInfo> available, int partition) {
+        for (PartitionInfo info : available) {
+            if (info.partition() == partition) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int partitionCount(String topic, Cluster cluster) {
+        return topicPartitions(topic, cluster).count;
+    }
+
+    /**
+     * 获取Topic分区数（以及一致性哈希查找表）
+     * Cluster是不可变的元数据快照，实例相同说明元数据未变化，直接使用缓存
+     */
+    private TopicPartitionCount topicPartitions(String topic, Cluster cluster) {
+        TopicPartitionCount cached = partitionCounts.get(topic);
+        if (cached != null && cached.cluster == cluster) {
+            return cached;
+        }
+
+        Integer count = cluster.partitionCountForTopic(topic);
+        if (count == null || count <= 0) {
+            throw new IllegalStateException("No partitions available for topic: " + topic);
+        }
+
+        boolean countChanged = cached == null || cached.count != count;
+        int[] jumpTable = null;
+        if (jumpHash) {
+            jumpTable = countChanged ? ConsistentHash.lookupTable(count) : cached.jumpTable;
+        }
+        TopicPartitionCount updated = new TopicPartitionCount(cluster, count, jumpTable);
+        partitionCounts.put(topic, updated);
+
+        if (countChanged) {
+            logger.info("Topic分区数更新: topic={}, partitions={}", topic, count);
+        }
+        return updated;
+    }
+
+    private static boolean hasVipPrefix(byte[] keyBytes) {
+        if (keyBytes.length < VIP_PREFIX.length) {
+            return false;
+        }
+        for (int i = 0; i < VIP_PREFIX.length; i++) {
+            if (keyBytes[i] != VIP_PREFIX[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public void close() {
         // 清理资源
+        partitionCounts.clear();
+        stickyPartitions.clear();
         logger.info("自定义分区器关闭");
     }
-}
 
+    /**
+     * 某个元数据快照下的Topic分区数
+     */
+    private static final class TopicPartitionCount {
+        private final Cluster cluster;
+        private final int count;
+        // 一致性哈希的 槽位 -> 分区 查找表，未启用时为null
+        private final int[] jumpTable;
+
+        private TopicPartitionCount(Cluster cluster, int count, int[] jumpTable) {
+            this.cluster = cluster;
+            this.count = count;
+            this.jumpTable = jumpTable;
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.kinch.producer.partition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 分区负载跟踪器
+ *
+ * 核心知识点：
+ * 1. 分区器在路由时记录每个分区的在途字节数（已路由、未确认）
+ * 2. 拦截器在onAcknowledgement中扣减在途字节，并更新确认延迟的指数滑动平均（EWMA）
+ *    成功确认的序列化大小就是路由时记录的大小；失败回调不带大小（-1），按下面的方式扣减：
+ *    - 发送线程上同步失败（如缓冲区耗尽）：扣减本线程为这条消息记录的路由大小
+ *    - I/O线程上异步失败（如批次过期）：按该分区在途消息的平均大小扣减，
+ *      在途消息数归零时扣减剩余全部字节，因此不会累积泄漏
+ *    只扣减分区器记录过的路由：显式指定分区的消息由拦截器转交分区器路由，同样先记录再扣减；
+ *    没有在途记录的分区收到确认时只更新延迟，计数不会变成负数
+ * 3. 分区器按权重选择分区：在途字节越多、确认越慢的分区权重越低
+ *
+ * 分区器和拦截器都由KafkaProducer通过反射创建，
+ * 同一个跟踪器实例通过生产者配置项 {@link #TRACKER_CONFIG} 传给两者。
+ *
+ * 权重快照按固定间隔惰性重算，两次重算之间选分区只是一次随机数加二分查找，不分配对象。
+ */
+public class PartitionLoadTracker {
+
+    public static final String TRACKER_CONFIG = "custom.partition.load.tracker";
+
+    private static final long DEFAULT_REFRESH_INTERVAL_MS = 100;
+
+    // EWMA平滑系数：新样本占20%
+    private static final double LATENCY_ALPHA = 0.2;
+
+    private final long refreshIntervalMs;
+
+    private final ConcurrentMap<String, TopicLoad> topics = new ConcurrentHashMap<>();
+
+    // 同一条消息可能被分区两次（新建批次时Producer会放弃第一次的结果重新分区），
+    // 记录本线程当前消息的路由，以便在onNewBatch时撤销、在同步发送失败时扣减
+    private final ThreadLocal<LastRoute> lastRoute = ThreadLocal.withInitial(LastRoute::new);
+
+    public PartitionLoadTracker() {
+        this(DEFAULT_REFRESH_INTERVAL_MS);
+    }
+
+    public PartitionLoadTracker(long refreshIntervalMs) {
+        this.refreshIntervalMs = refreshIntervalMs;
+    }
+
+    /**
+     * 从生产者配置中取出跟踪器，未配置返回null
+     */
+    public static PartitionLoadTracker fromConfig(Map<String, ?> configs) {
+        Object tracker = configs.get(TRACKER_CONFIG);
+        return tracker instanceof PartitionLoadTracker ? (PartitionLoadTracker) tracker : null;
+    }
+
+    /**
+     * 拦截器onSend中调用，清除本线程上一条消息的路由记录
+     * onSend先于分区器执行，之后本线程记录的路由一定属于当前这条消息
+     */
+    public void beginSend() {
+        beginSend(null);
+    }
+
+    /**
+     * 同{@link #beginSend()}，并记下消息原本显式指定的分区
+     * 拦截器清空消息上的分区后，由分区器按这里记下的分区路由并记录在途字节
+     *
+     * @param explicitPartition 显式指定的分区，没有指定时为null
+     */
+    public void beginSend(Integer explicitPartition) {
+        LastRoute last = lastRoute.get();
+        last.load = null;
+        last.explicitPartition = explicitPartition;
+    }
+
+    /**
+     * 本线程当前消息显式指定的分区，没有指定时为null
+     * 新建批次重新分区时仍返回同一个分区，直到下一条消息调用beginSend
+     */
+    public Integer explicitPartition() {
+        return lastRoute.get().explicitPartition;
+    }
+
+    /**
+     * 分区器路由一条消息后调用
+     */
+    public void recordRoute(String topic, int partition, int numPartitions, long bytes) {
+        PartitionLoad load = topicLoad(topic, numPartitions).partition(partition);
+        if (load == null) {
+            return;
+        }
+        load.inFlightBytes.add(bytes);
+        load.inFlightRecords.increment();
+
+        LastRoute last = lastRoute.get();
+        last.load = load;
+        last.partition = partition;
+        last.bytes = bytes;
+    }
+
+    /**
+     * Producer放弃上一次分区结果时调用，撤销本线程最近一次路由记录
+     */
+    public void cancelLastRoute(int prevPartition) {
+        LastRoute last = lastRoute.get();
+        if (last.load != null && last.partition == prevPartition) {
+            last.load.inFlightBytes.add(-last.bytes);
+            last.load.inFlightRecords.decrement();
+        }
+        last.load = null;
+    }
+
+    /**
+     * 拦截器收到确认（或发送失败）时调用
+     *
+     * @param topic 主题，发送失败且没有元数据时为null
+     * @param partition 分区，未知时为-1
+     * @param bytes 序列化后的key和value字节数，发送失败时大小未知，传-1
+     * @param latencyMs 确认延迟，未知时为-1
+     */
+    public void recordAck(String topic, int partition, long bytes, long latencyMs) {
+        if (bytes < 0 && releaseLastRoute(partition)) {
+            return;
+        }
+        TopicLoad topicLoad = topic == null ? null : topics.get(topic);
+        if (topicLoad == null) {
+            return;
+        }
+        PartitionLoad load = topicLoad.partition(partition);
+        if (load == null) {
+            return;
+        }
+        if (load.inFlightRecords.sum() > 0) {
+            load.inFlightBytes.add(-(bytes >= 0 ? bytes : load.averageInFlightBytes()));
+            load.inFlightRecords.decrement();
+        }
+        if (latencyMs >= 0) {
+            // 确认回调基本都在Producer的I/O线程上执行，这里允许偶发的并发覆盖
+            load.ackLatencyMs = load.ackLatencyMs * (1 - LATENCY_ALPHA) + latencyMs * LATENCY_ALPHA;
+        }
+    }
+
+    /**
+     * 同步发送失败时，失败回调与路由在同一个发送线程上，直接扣减这条消息的路由大小
+     */
+    private boolean releaseLastRoute(int partition) {
+        LastRoute last = lastRoute.get();
+        if (last.load == null || (partition >= 0 && partition != last.partition)) {
+            return false;
+        }
+        last.load.inFlightBytes.add(-last.bytes);
+        last.load.inFlightRecords.decrement();
+        last.load = null;
+        return true;
+    }
+
+    /**
+     * 按权重随机选择分区
+     *
+     * @param exclude 需要排除的分区，-1表示不排除
+     */
+    public int choosePartition(String topic, int numPartitions, double random, int exclude) {
+        Weights weights = weights(topicLoad(topic, numPartitions), numPartitions);
+        double[] cumulative = weights.cumulative;
+        int last = cumulative.length - 1;
+        double total = cumulative[last];
+
+        if (exclude >= 0 && exclude <= last && numPartitions > 1) {
+            // 把被排除分区的权重区间挖掉，在剩余区间里选
+            double start = exclude == 0 ? 0 : cumulative[exclude - 1];
+            double width = cumulative[exclude] - start;
+            double point = random * (total - width);
+            return indexOf(cumulative, point >= start ? point + width : point);
+        }
+        return indexOf(cumulative, random * total);
+    }
+
+    /**
+     * 当前负载与权重快照，用于监控接口
+     */
+    public Map<String, List<Map<String, Object>>> snapshot() {
+        Map<String, List<Map<String, Object>>> result = new LinkedHashMap<>();
+        topics.forEach((topic, topicLoad) -> {
+            PartitionLoad[] partitions = topicLoad.partitions;
+            Weights weights = weights(topicLoad, partitions.length);
+            List<Map<String, Object>> rows = new ArrayList<>(partitions.length);
+            for (int i = 0; i < partitions.length; i++) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("partition", i);
+                row.put("inFlightBytes", partitions[i].inFlightBytes.sum());
+                row.put("inFlightRecords", partitions[i].inFlightRecords.sum());
+                row.put("ackLatencyMs", Math.round(partitions[i].ackLatencyMs * 100) / 100.0);
+                row.put("weight", Math.round(weights.weight(i) * 10000) / 10000.0);
+                rows.add(row);
+            }
+            result.put(topic, rows);
+        });
+        return result;
+    }
+
+    private TopicLoad topicLoad(String topic, int numPartitions) {
+        TopicLoad topicLoad = topics.get(topic);
+        if (topicLoad == null) {
+            topicLoad = topics.computeIfAbsent(topic, t -> new TopicLoad(numPartitions));
+        }
+        if (topicLoad.partitions.length < numPartitions) {
+            topicLoad.grow(numPartitions);
+        }
+        return topicLoad;
+    }
+
+    private Weights weights(TopicLoad topicLoad, int numPartitions) {
+        Weights weights = topicLoad.weights;
+        long now = System.currentTimeMillis();
+        if (weights != null && weights.cumulative.length == numPartitions
+                && now - weights.computedAt < refreshIntervalMs) {
+            return weights;
+        }
+        weights = computeWeights(topicLoad.partitions, numPartitions, now);
+        topicLoad.weights = weights;
+        return weights;
+    }
+
+    /**
+     * 负载分 = 在途字节/平均在途字节 + 确认延迟/平均确认延迟
+     * 权重 = 1 / (1 + 负载分)，全部空闲时各分区权重相同
+     */
+    private static Weights computeWeights(PartitionLoad[] partitions, int numPartitions, long now) {
+        long[] inFlight = new long[numPartitions];
+        double[] latency = new double[numPartitions];
+        double inFlightSum = 0;
+        double latencySum = 0;
+        for (int i = 0; i < numPartitions; i++) {
+            inFlight[i] = Math.max(0, partitions[i].inFlightBytes.sum());
+            latency[i] = partitions[i].ackLatencyMs;
+            inFlightSum += inFlight[i];
+            latencySum += latency[i];
+        }
+        double inFlightAvg = Math.max(1, inFlightSum / numPartitions);
+        double latencyAvg = Math.max(1, latencySum / numPartitions);
+
+        double[] cumulative = new double[numPartitions];
+        double total = 0;
+        for (int i = 0; i < numPartitions; i++) {
+            double score = inFlight[i] / inFlightAvg + latency[i] / latencyAvg;
+            total += 1 / (1 + score);
+            cumulative[i] = total;
+        }
+        return new Weights(cumulative, now);
+    }
+
+    private static int indexOf(double[] cumulative, double point) {
+        int index = Arrays.binarySearch(cumulative, point);
+        index = index >= 0 ? index + 1 : -index - 1;
+        return Math.min(index, cumulative.length - 1);
+    }
+
+    private static final class TopicLoad {
+        private volatile PartitionLoad[] partitions;
+        private volatile Weights weights;
+
+        private TopicLoad(int numPartitions) {
+            this.partitions = newLoads(new PartitionLoad[0], numPartitions);
+        }
+
+        private PartitionLoad partition(int partition) {
+            PartitionLoad[] current = partitions;
+            return partition >= 0 && partition < current.length ? current[partition] : null;
+        }
+
+        private synchronized void grow(int numPartitions) {
+            if (partitions.length < numPartitions) {
+                partitions = newLoads(partitions, numPartitions);
+            }
+        }
+
+        private static PartitionLoad[] newLoads(PartitionLoad[] existing, int numPartitions) {
+            PartitionLoad[] loads = Arrays.copyOf(existing, numPartitions);
+            for (int i = existing.length; i < numPartitions; i++) {
+                loads[i] = new PartitionLoad();
+            }
+            return loads;
+        }
+    }
+
+    private static final class PartitionLoad {
+        private final LongAdder inFlightBytes = new LongAdder();
+        private final LongAdder inFlightRecords = new LongAdder();
+        private volatile double ackLatencyMs;
+
+        /**
+         * 大小未知的消息按在途平均大小扣减，最后一条在途消息扣减剩余全部字节
+         */
+        private long averageInFlightBytes() {
+            long bytes = Math.max(0, inFlightBytes.sum());
+            long records = inFlightRecords.sum();
+            return records <= 1 ? bytes : bytes / records;
+        }
+    }
+
+    private static final class Weights {
+        private final double[] cumulative;
+        private final long computedAt;
+
+        private Weights(double[] cumulative, long computedAt) {
+            this.cumulative = cumulative;
+            this.computedAt = computedAt;
+        }
+
+        private double weight(int partition) {
+            double total = cumulative[cumulative.length - 1];
+            double start = partition == 0 ? 0 : cumulative[partition - 1];
+            return (cumulative[partition] - start) / total;
+        }
+    }
+
+    private static final class LastRoute {
+        private PartitionLoad load;
+        private int partition;
+        private long bytes;
+        private Integer explicitPartition;
+    }
+}
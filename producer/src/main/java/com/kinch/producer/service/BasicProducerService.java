@@ -1,17 +1,29 @@
 package com.kinch.producer.service;
 
 import com.kinch.common.constant.KafkaConstants;
+import com.kinch.common.util.HeaderUtils;
 import com.kinch.common.util.KafkaUtils;
+import com.kinch.common.util.TimeOrderedId;
+import com.kinch.producer.bulk.BulkSendResult;
+import com.kinch.producer.bulk.BulkSender;
+import com.kinch.producer.bulk.StreamRecordIterator;
+import com.kinch.producer.config.KafkaCallbackExecutor;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.header.Header;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
 import java.nio.charset.StandardCharsets;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
 
 /**
  * 基础生产者服务
@@ -21,9 +33,44 @@ import java.util.concurrent.CompletableFuture;
 @Service
 public class BasicProducerService {
     
+    private static final long DEFAULT_BUFFER_MEMORY = 32 * 1024 * 1024;
+    
+    // 来源标识，预编码一次后所有消息共享
+    private static final Header SOURCE_HEADER = HeaderUtils.constant(KafkaConstants.HEADER_SOURCE, "basic-producer");
+    
     @Autowired
     private KafkaTemplate<String, String> kafkaTemplate;
     
+    // 负载感知发送：CustomPartitioner + 拦截器，按分区在途字节和确认延迟选择分区
+    @Autowired
+    @Qualifier("loadAwareKafkaTemplate")
+    private KafkaTemplate<String, String> loadAwareKafkaTemplate;
+    
+    // 发送回调的执行器：开启虚拟线程时回调在虚拟线程上执行，不占用Kafka网络线程
+    @Autowired
+    private KafkaCallbackExecutor callbackExecutor;
+    
+    // 批量发送的在途字节上限，默认8MB，小于buffer.memory（32MB），给其他发送留出余量
+    @Value("${kafka.producer.bulk.max-in-flight-bytes:8388608}")
+    private int bulkMaxInFlightBytes;
+    
+    private BulkSender<String, String> bulkSender;
+    
+    // 流式导入使用独立的发送器，在途上限取Producer缓冲区（buffer.memory）的一半
+    private BulkSender<String, String> ingestSender;
+    
+    @PostConstruct
+    public void init() {
+        bulkSender = new BulkSender<>(kafkaTemplate, bulkMaxInFlightBytes);
+        ingestSender = new BulkSender<>(kafkaTemplate, (int) Math.min(Integer.MAX_VALUE, bufferMemory() / 2));
+    }
+    
+    private long bufferMemory() {
+        Object bufferMemory = kafkaTemplate.getProducerFactory().getConfigurationProperties()
+            .get(ProducerConfig.BUFFER_MEMORY_CONFIG);
+        return bufferMemory == null ? DEFAULT_BUFFER_MEMORY : Long.parseLong(bufferMemory.toString());
+    }
+    
     /**
      * 1. 发后即忘（Fire and Forget）
      * 特点：最快，但可能丢消息
@@ -38,6 +85,10 @@ public class BasicProducerService {
      * 2. 同步发送（Synchronous Send）
      * 特点：最慢，但最可靠
      * 场景：对可靠性要求极高的场景
+     * 开启虚拟线程（spring.threads.virtual.enabled=true）后，Tomcat为每个请求创建虚拟线程，
+     * get()阻塞时虚拟线程让出载体线程，同步发送的并发量不再受限于Tomcat线程池大小
+     * 注意：首次向某个Topic发送时Producer在synchronized块中等待元数据，Java 21下会钉住载体线程，
+     * 启动时的元数据预热（TopicProvisioner）可以避免这种情况
      */
     public void sendSync(String message) {
         try {
@@ -64,7 +115,7 @@ public class BasicProducerService {
         CompletableFuture<SendResult<String, String>> future = 
             kafkaTemplate.send(KafkaConstants.TOPIC_SIMPLE, message);
         
-        future.whenComplete((result, ex) -> {
+        future.whenCompleteAsync((result, ex) -> {
             if (ex == null) {
                 RecordMetadata metadata = result.getRecordMetadata();
                 log.info("【异步发送】发送成功 - topic: {}, partition: {}, offset: {}, timestamp: {}", 
@@ -75,7 +126,7 @@ public class BasicProducerService {
             } else {
                 log.error("【异步发送】发送失败: {}", message, ex);
             }
-        });
+        }, callbackExecutor.executor());
         
         log.info("【异步发送】消息已提交到缓冲区: {}", message);
     }
@@ -87,7 +138,7 @@ public class BasicProducerService {
      */
     public void sendWithKey(String key, String message) {
         kafkaTemplate.send(KafkaConstants.TOPIC_SIMPLE, key, message)
-            .whenComplete((result, ex) -> {
+            .whenCompleteAsync((result, ex) -> {
                 if (ex == null) {
                     RecordMetadata metadata = result.getRecordMetadata();
                     log.info("【带Key发送】成功 - key: {}, partition: {}, offset: {}", 
@@ -95,7 +146,7 @@ public class BasicProducerService {
                 } else {
                     log.error("【带Key发送】失败 - key: {}", key, ex);
                 }
-            });
+            }, callbackExecutor.executor());
     }
     
     /**
@@ -111,7 +162,7 @@ public class BasicProducerService {
             message
         );
         
-        kafkaTemplate.send(record).whenComplete((result, ex) -> {
+        kafkaTemplate.send(record).whenCompleteAsync((result, ex) -> {
             if (ex == null) {
                 RecordMetadata metadata = result.getRecordMetadata();
                 log.info("【指定分区发送】成功 - 目标分区: {}, 实际分区: {}, offset: {}", 
@@ -119,7 +170,7 @@ public class BasicProducerService {
             } else {
                 log.error("【指定分区发送】失败 - 目标分区: {}", partition, ex);
             }
-        });
+        }, callbackExecutor.executor());
     }
     
     /**
@@ -135,25 +186,91 @@ public class BasicProducerService {
         );
         
         // 添加自定义Header
-        String messageId = KafkaUtils.generateMessageId();
+        // 消息ID使用16字节二进制形式，日志中再转成字符串形式
+        byte[] messageIdBytes = KafkaUtils.generateMessageIdBytes();
+        String messageId = TimeOrderedId.toString(messageIdBytes);
         String traceId = KafkaUtils.generateTraceId();
         
-        record.headers().add(KafkaConstants.HEADER_MESSAGE_ID, 
-            messageId.getBytes(StandardCharsets.UTF_8));
+        record.headers().add(KafkaConstants.HEADER_MESSAGE_ID, messageIdBytes);
         record.headers().add(KafkaConstants.HEADER_TRACE_ID, 
             traceId.getBytes(StandardCharsets.UTF_8));
-        record.headers().add(KafkaConstants.HEADER_SOURCE, 
-            "basic-producer".getBytes(StandardCharsets.UTF_8));
-        record.headers().add(KafkaConstants.HEADER_TIMESTAMP, 
-            String.valueOf(System.currentTimeMillis()).getBytes(StandardCharsets.UTF_8));
+        record.headers().add(SOURCE_HEADER);
+        record.headers().add(HeaderUtils.longHeader(KafkaConstants.HEADER_TIMESTAMP, System.currentTimeMillis()));
         
-        kafkaTemplate.send(record).whenComplete((result, ex) -> {
+        kafkaTemplate.send(record).whenCompleteAsync((result, ex) -> {
             if (ex == null) {
                 log.info("【带Header发送】成功 - messageId: {}, traceId: {}", messageId, traceId);
             } else {
                 log.error("【带Header发送】失败 - messageId: {}", messageId, ex);
             }
-        });
+        }, callbackExecutor.executor());
+    }
+    
+    /**
+     * 7. 批量发送（带背压）
+     * 核心知识点：按在途字节数限流，而不是等缓冲区写满后在send()里阻塞
+     * 返回的Future在全部消息确认后完成，结果中汇总成功数、失败明细和各分区偏移量
+     * 场景：数据导入、补发等一次性发送大量消息的场景
+     */
+    public CompletableFuture<BulkSendResult> sendBulk(Iterable<ProducerRecord<String, String>> records) {
+        return bulkSender.send(records);
+    }
+    
+    /**
+     * 批量发送count条测试消息
+     */
+    public CompletableFuture<BulkSendResult> sendBulk(String topic, String keyPrefix, int count) {
+        log.info("【批量发送】开始发送 - topic: {}, 数量: {}", topic, count);
+        return bulkSender.send(IntStream.range(0, count).mapToObj(i -> new ProducerRecord<>(
+                topic,
+                keyPrefix == null ? null : keyPrefix + "-" + i,
+                "批量消息-" + i + "-时间戳-" + System.currentTimeMillis())))
+            .whenCompleteAsync((result, ex) -> {
+                if (ex == null) {
+                    log.info("【批量发送】全部确认 - 总数: {}, 成功: {}, 失败: {}, 耗时: {} ms",
+                        result.getTotal(), result.getSuccessCount(), result.getFailureCount(), result.getElapsedMs());
+                } else {
+                    log.error("【批量发送】提交中断", ex);
+                }
+            }, callbackExecutor.executor());
+    }
+    
+    /**
+     * 8. 流式导入
+     * 核心知识点：请求体边读边发，Producer积压时暂停读取，由TCP把压力传回上游
+     * 全部消息确认后返回一个汇总结果
+     * 场景：上游服务一次推送大量事件，避免每条消息一次HTTP请求
+     */
+    public CompletableFuture<BulkSendResult> ingest(StreamRecordIterator records) {
+        return ingestSender.send(records).whenCompleteAsync((result, ex) -> {
+            if (ex == null) {
+                log.info("【流式导入】完成 - 成功: {}, 失败: {}, 格式错误: {}, 耗时: {} ms",
+                    result.getSuccessCount(), result.getFailureCount(), records.rejected(), result.getElapsedMs());
+            } else {
+                log.error("【流式导入】中断", ex);
+            }
+        }, callbackExecutor.executor());
+    }
+    
+    /**
+     * 9. 负载感知发送
+     * 核心知识点：无Key消息和VIP-前缀的消息按权重避开在途数据多、确认慢的分区，普通Key仍按哈希保持亲和性；
+     * 指定分区时仍发往该分区，在途字节同样计入负载统计
+     * 各分区负载与权重见 GET /api/producer/metrics/partition-load
+     * 场景：VIP流量突增、个别Broker变慢时避免热点分区
+     */
+    public void sendLoadAware(String key, Integer partition, String message) {
+        ProducerRecord<String, String> record = new ProducerRecord<>(
+            KafkaConstants.TOPIC_SIMPLE, partition, key, message);
+        
+        loadAwareKafkaTemplate.send(record).whenCompleteAsync((result, ex) -> {
+            if (ex == null) {
+                RecordMetadata metadata = result.getRecordMetadata();
+                log.info("【负载感知发送】成功 - key: {}, partition: {}, offset: {}",
+                    key, metadata.partition(), metadata.offset());
+            } else {
+                log.error("【负载感知发送】失败 - key: {}", key, ex);
+            }
+        }, callbackExecutor.executor());
     }
 }
-
@@ -1,12 +1,21 @@
 package com.kinch.producer.service;
 
 import com.kinch.common.constant.KafkaConstants;
+import com.kinch.producer.bulk.BulkSendResult;
+import com.kinch.producer.bulk.BulkSender;
+import com.kinch.producer.config.KafkaCallbackExecutor;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
 /**
  * 幂等性生产者服务
  * 
@@ -33,6 +42,20 @@ public class IdempotentProducerService {
     @Qualifier("idempotentKafkaTemplate")
     private KafkaTemplate<String, String> idempotentKafkaTemplate;
     
+    // 发送回调的执行器：开启虚拟线程时回调在虚拟线程上执行，不占用Kafka网络线程
+    @Autowired
+    private KafkaCallbackExecutor callbackExecutor;
+    
+    @Value("${kafka.producer.bulk.max-in-flight-bytes:8388608}")
+    private int bulkMaxInFlightBytes;
+    
+    private BulkSender<String, String> bulkSender;
+    
+    @PostConstruct
+    public void init() {
+        bulkSender = new BulkSender<>(idempotentKafkaTemplate, bulkMaxInFlightBytes);
+    }
+    
     /**
      * 发送幂等性消息
      * 即使发生重试，也不会产生重复消息
@@ -41,7 +64,7 @@ public class IdempotentProducerService {
         log.info("【幂等性生产者】准备发送 - key: {}, message: {}", key, message);
         
         idempotentKafkaTemplate.send(KafkaConstants.TOPIC_SIMPLE, key, message)
-            .whenComplete((result, ex) -> {
+            .whenCompleteAsync((result, ex) -> {
                 if (ex == null) {
                     var metadata = result.getRecordMetadata();
                     log.info("【幂等性生产者】发送成功 - partition: {}, offset: {}", 
@@ -49,32 +72,32 @@ public class IdempotentProducerService {
                 } else {
                     log.error("【幂等性生产者】发送失败", ex);
                 }
-            });
+            }, callbackExecutor.executor());
     }
     
     /**
      * 批量发送幂等性消息
      * 展示幂等性在批量发送场景下的作用
+     * 返回的Future在全部消息确认后完成，"完成"日志也在此时才打印
      */
-    public void sendBatch(String keyPrefix, int count) {
+    public CompletableFuture<BulkSendResult> sendBatch(String keyPrefix, int count) {
         log.info("【幂等性生产者】开始批量发送 {} 条消息", count);
         
-        long startTime = System.currentTimeMillis();
-        
-        for (int i = 0; i < count; i++) {
-            String key = keyPrefix + "-" + i;
-            String message = "幂等性消息-" + i + "-时间戳-" + System.currentTimeMillis();
-            
-            idempotentKafkaTemplate.send(KafkaConstants.TOPIC_SIMPLE, key, message)
-                .whenComplete((result, ex) -> {
-                    if (ex != null) {
-                        log.error("【幂等性生产者】批量发送失败 - key: {}", key, ex);
-                    }
-                });
-        }
-        
-        long endTime = System.currentTimeMillis();
-        log.info("【幂等性生产者】批量发送完成，耗时: {} ms", (endTime - startTime));
+        return bulkSender.send(IntStream.range(0, count).mapToObj(i -> new ProducerRecord<>(
+                KafkaConstants.TOPIC_SIMPLE,
+                keyPrefix + "-" + i,
+                "幂等性消息-" + i + "-时间戳-" + System.currentTimeMillis())))
+            .whenCompleteAsync((result, ex) -> {
+                if (ex != null) {
+                    log.error("【幂等性生产者】批量发送中断", ex);
+                    return;
+                }
+                for (BulkSendResult.Failure failure : result.getFailures()) {
+                    log.error("【幂等性生产者】批量发送失败 - key: {}, 错误: {}", failure.getKey(), failure.getError());
+                }
+                log.info("【幂等性生产者】批量发送完成 - 成功: {}, 失败: {}, 耗时: {} ms",
+                    result.getSuccessCount(), result.getFailureCount(), result.getElapsedMs());
+            }, callbackExecutor.executor());
     }
     
     /**
@@ -94,7 +117,7 @@ public class IdempotentProducerService {
         // 所以即使遇到可重试的异常，Producer也会自动重试
         
         idempotentKafkaTemplate.send(KafkaConstants.TOPIC_SIMPLE, key, message)
-            .whenComplete((result, ex) -> {
+            .whenCompleteAsync((result, ex) -> {
                 if (ex == null) {
                     var metadata = result.getRecordMetadata();
                     log.info("【幂等性生产者-重试场景】最终发送成功 - offset: {}", 
@@ -102,7 +125,7 @@ public class IdempotentProducerService {
                 } else {
                     log.error("【幂等性生产者-重试场景】最终发送失败", ex);
                 }
-            });
+            }, callbackExecutor.executor());
     }
 }
 
@@ -1,12 +1,24 @@
 package com.kinch.producer.service;
 
 import com.kinch.common.constant.KafkaConstants;
+import com.kinch.producer.config.KafkaCallbackExecutor;
+import com.kinch.producer.transaction.GroupCommitTransactionalSender;
+import com.kinch.producer.transaction.TransactionalProducerPool;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaOperations;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
 /**
  * 事务生产者服务
  * 
@@ -30,6 +42,16 @@ import org.springframework.stereotype.Service;
  * - 需要实现精确一次语义（Exactly Once Semantics）
  * - 跨多个Topic的数据一致性
  * - 消费-转换-生产的场景（Consume-Transform-Produce）
+ * 
+ * 组提交：
+ * sendInTransaction、sendCrossTopics、processOrderInTransaction每次只发两三条消息，
+ * 开启组提交后并发请求会被合并到同一个事务中（见{@link GroupCommitTransactionalSender}），
+ * 调用方仍然在事务提交后才返回，原子性不变
+ * 
+ * 事务生产者池：
+ * 批量事务发送始终使用{@link TransactionalProducerPool}；两种模式是二选一的：
+ * 开启组提交（默认）时单笔事务全部走组提交，processOrderInTransaction的orderId亲和不生效；
+ * 关闭组提交后订单事务才按orderId亲和到固定的事务Producer，不同订单的事务并行执行
  */
 @Slf4j
 @Service
@@ -39,6 +61,47 @@ public class TransactionalProducerService {
     @Qualifier("transactionalKafkaTemplate")
     private KafkaTemplate<String, String> transactionalKafkaTemplate;
     
+    // 发送回调的执行器：开启虚拟线程时回调在虚拟线程上执行，不占用Kafka网络线程
+    @Autowired
+    private KafkaCallbackExecutor callbackExecutor;
+    
+    @Autowired
+    private GroupCommitTransactionalSender<String, String> groupCommitSender;
+    
+    // 组提交模式：并发的小事务合并成一个Kafka事务提交
+    @Value("${kafka.producer.transaction.group-commit.enabled:true}")
+    private boolean groupCommitEnabled;
+    
+    // 事务生产者池：不同Key的事务在多个事务Producer上并行执行
+    @Autowired
+    private TransactionalProducerPool<String, String> transactionalProducerPool;
+    
+    /**
+     * 在事务中执行一组发送
+     * 组提交模式下与其他并发请求合并到同一个事务，等待共享事务提交后返回；
+     * 否则在事务生产者池中按affinityKey选择槽位，单独开启一个事务
+     * 
+     * @param affinityKey 亲和Key，只在关闭组提交时生效，为null时使用任意空闲槽位
+     * @throws RuntimeException 事务中止时抛出
+     */
+    private void executeInTransaction(Object affinityKey, Consumer<KafkaOperations<String, String>> work) {
+        if (!groupCommitEnabled) {
+            transactionalProducerPool.executeInTransaction(affinityKey, operations -> {
+                work.accept(operations);
+                return true;
+            });
+            return;
+        }
+        try {
+            groupCommitSender.submit(work).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+    
     /**
      * 1. 基础事务发送
      * 演示事务的基本用法
@@ -46,29 +109,27 @@ public class TransactionalProducerService {
     public void sendInTransaction(String message1, String message2) {
         log.info("【事务生产者】开始事务发送");
         
-        // 使用executeInTransaction执行事务
-        transactionalKafkaTemplate.executeInTransaction(operations -> {
+        // 组提交模式下操作可能随中止的事务重新执行，只保留最后一次（即已提交那次）的发送结果
+        List<CompletableFuture<SendResult<String, String>>> sends = new ArrayList<>(2);
+        
+        // 使用executeInTransaction执行事务（组提交模式下与并发请求合并）
+        executeInTransaction(null, operations -> {
+            sends.clear();
             // 发送第一条消息
-            operations.send(KafkaConstants.TOPIC_SIMPLE, "tx-key-1", message1)
-                .whenComplete((result, ex) -> {
-                    if (ex == null) {
-                        log.info("【事务生产者】消息1发送成功: {}", message1);
-                    }
-                });
-            
+            sends.add(operations.send(KafkaConstants.TOPIC_SIMPLE, "tx-key-1", message1));
             // 发送第二条消息
-            operations.send(KafkaConstants.TOPIC_SIMPLE, "tx-key-2", message2)
-                .whenComplete((result, ex) -> {
-                    if (ex == null) {
-                        log.info("【事务生产者】消息2发送成功: {}", message2);
-                    }
-                });
+            sends.add(operations.send(KafkaConstants.TOPIC_SIMPLE, "tx-key-2", message2));
             
             // 如果没有异常，事务会自动提交
             // 如果抛出异常，事务会自动回滚
-            return true;
         });
         
+        // 事务提交后才记录发送成功：中止事务里的消息同样会收到确认，不能在操作内部的回调里记录
+        sends.get(0).thenAcceptAsync(result -> log.info("【事务生产者】消息1发送成功: {}", message1),
+            callbackExecutor.executor());
+        sends.get(1).thenAcceptAsync(result -> log.info("【事务生产者】消息2发送成功: {}", message2),
+            callbackExecutor.executor());
+        
         log.info("【事务生产者】事务提交完成");
     }
     
@@ -79,19 +140,24 @@ public class TransactionalProducerService {
     public void sendCrossTopics(String orderMessage, String userMessage) {
         log.info("【事务生产者-跨Topic】开始事务发送");
         
-        transactionalKafkaTemplate.executeInTransaction(operations -> {
+        List<CompletableFuture<SendResult<String, String>>> sends = new ArrayList<>(2);
+        
+        executeInTransaction(null, operations -> {
+            sends.clear();
             // 发送订单消息到order-topic
-            operations.send(KafkaConstants.TOPIC_ORDER, orderMessage);
-            log.info("【事务生产者-跨Topic】订单消息已发送");
-            
+            sends.add(operations.send(KafkaConstants.TOPIC_ORDER, orderMessage));
             // 发送用户消息到user-topic
-            operations.send(KafkaConstants.TOPIC_USER, userMessage);
-            log.info("【事务生产者-跨Topic】用户消息已发送");
+            sends.add(operations.send(KafkaConstants.TOPIC_USER, userMessage));
             
             // 两条消息要么都成功，要么都失败
-            return true;
         });
         
+        // 事务提交后才记录发送结果
+        sends.get(0).thenAcceptAsync(result -> log.info("【事务生产者-跨Topic】订单消息已发送"),
+            callbackExecutor.executor());
+        sends.get(1).thenAcceptAsync(result -> log.info("【事务生产者-跨Topic】用户消息已发送"),
+            callbackExecutor.executor());
+        
         log.info("【事务生产者-跨Topic】跨Topic事务提交完成");
     }
     
@@ -138,7 +204,8 @@ public class TransactionalProducerService {
         long startTime = System.currentTimeMillis();
         
         try {
-            transactionalKafkaTemplate.executeInTransaction(operations -> {
+            // 同一个keyPrefix的批次落在同一个槽位上，不同keyPrefix的批次并行提交
+            transactionalProducerPool.executeInTransaction(keyPrefix, operations -> {
                 for (int i = 0; i < count; i++) {
                     String key = keyPrefix + "-" + i;
                     String message = "事务消息-" + i;
@@ -164,36 +231,41 @@ public class TransactionalProducerService {
         log.info("【事务生产者-订单处理】开始处理订单: orderId={}, userId={}, productId={}, quantity={}", 
             orderId, userId, productId, quantity);
         
+        // 1. 订单创建消息
+        String orderMessage = String.format(
+            "{\"orderId\":\"%s\",\"userId\":\"%s\",\"productId\":\"%s\",\"quantity\":%d,\"status\":\"CREATED\"}",
+            orderId, userId, productId, quantity
+        );
+        // 2. 库存扣减消息
+        String inventoryMessage = String.format(
+            "{\"productId\":\"%s\",\"quantity\":%d,\"operation\":\"DECREASE\"}",
+            productId, quantity
+        );
+        // 3. 用户积分消息
+        String pointsMessage = String.format(
+            "{\"userId\":\"%s\",\"points\":%d,\"operation\":\"ADD\"}",
+            userId, quantity * 10
+        );
+        List<CompletableFuture<SendResult<String, String>>> sends = new ArrayList<>(3);
+        
         try {
-            transactionalKafkaTemplate.executeInTransaction(operations -> {
-                // 1. 发送订单创建消息
-                String orderMessage = String.format(
-                    "{\"orderId\":\"%s\",\"userId\":\"%s\",\"productId\":\"%s\",\"quantity\":%d,\"status\":\"CREATED\"}",
-                    orderId, userId, productId, quantity
-                );
-                operations.send(KafkaConstants.TOPIC_ORDER, orderId, orderMessage);
-                log.info("【事务生产者-订单处理】订单消息已发送");
-                
-                // 2. 发送库存扣减消息
-                String inventoryMessage = String.format(
-                    "{\"productId\":\"%s\",\"quantity\":%d,\"operation\":\"DECREASE\"}",
-                    productId, quantity
-                );
-                operations.send("inventory-topic", productId, inventoryMessage);
-                log.info("【事务生产者-订单处理】库存扣减消息已发送");
-                
-                // 3. 发送用户积分消息
-                String pointsMessage = String.format(
-                    "{\"userId\":\"%s\",\"points\":%d,\"operation\":\"ADD\"}",
-                    userId, quantity * 10
-                );
-                operations.send("points-topic", userId, pointsMessage);
-                log.info("【事务生产者-订单处理】用户积分消息已发送");
+            executeInTransaction(orderId, operations -> {
+                sends.clear();
+                sends.add(operations.send(KafkaConstants.TOPIC_ORDER, orderId, orderMessage));
+                sends.add(operations.send(KafkaConstants.TOPIC_INVENTORY, productId, inventoryMessage));
+                sends.add(operations.send(KafkaConstants.TOPIC_POINTS, userId, pointsMessage));
                 
                 // 如果任何一条消息失败，所有消息都会回滚
-                return true;
             });
             
+            // 事务提交后才记录各条消息的发送结果
+            sends.get(0).thenAcceptAsync(result -> log.info("【事务生产者-订单处理】订单消息已发送"),
+                callbackExecutor.executor());
+            sends.get(1).thenAcceptAsync(result -> log.info("【事务生产者-订单处理】库存扣减消息已发送"),
+                callbackExecutor.executor());
+            sends.get(2).thenAcceptAsync(result -> log.info("【事务生产者-订单处理】用户积分消息已发送"),
+                callbackExecutor.executor());
+            
             log.info("【事务生产者-订单处理】订单处理完成，事务提交成功");
             
         } catch (Exception e) {
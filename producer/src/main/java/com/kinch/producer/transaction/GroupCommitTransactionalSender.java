@@ -0,0 +1,229 @@
+package com.kinch.producer.transaction;
+
+import org.apache.kafka.common.errors.ClusterAuthorizationException;
+import org.apache.kafka.common.errors.InterruptException;
+import org.apache.kafka.common.errors.InvalidProducerEpochException;
+import org.apache.kafka.common.errors.ProducerFencedException;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.errors.TransactionalIdAuthorizationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 组提交事务发送器 - 把多个小事务合并成一个Kafka事务
+ *
+ * 核心知识点：
+ * 1. 每个Kafka事务都要与事务协调器往返多次（AddPartitionsToTxn、EndTxn，并写入事务日志和事务标记），
+ *    一个事务只发两三条消息时，这些固定开销远大于消息本身
+ * 2. 组提交：并发的业务操作先排队，提交线程在一个短窗口内（或凑够数量上限后）
+ *    把它们放进同一个事务执行，一次提交完成所有操作
+ * 3. 每个调用方拿到的Future在共享事务提交成功后才完成
+ * 4. 某个操作自身抛出异常时，整个事务中止，该操作单独失败，其余操作在新事务中重新执行
+ * 5. 操作都执行完但提交失败时（例如某条消息过大，异步发送失败导致commit报错），无法确定是哪个操作引起的：
+ *    把这一组二分成两半，分别在新事务中重试，直到定位到单个操作；
+ *    与具体消息无关的错误（被fence、超时、事务ID无权限）直接整组失败，二分重试也不会成功
+ *
+ * 因为操作可能随中止的事务重新执行，操作内部只应调用operations.send等发送方法：
+ * 不要在send返回的Future上挂日志、通知等副作用（中止事务里的消息同样会收到确认），
+ * 副作用应在submit返回的Future完成（即事务提交）之后再执行
+ *
+ * 只有一个提交线程，操作按提交顺序执行，事务Producer也只会使用一个
+ */
+public class GroupCommitTransactionalSender<K, V> implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(GroupCommitTransactionalSender.class);
+
+    private final KafkaTemplate<K, V> template;
+
+    private final int maxGroupSize;
+
+    private final long lingerNanos;
+
+    private final BlockingQueue<PendingOperation<K, V>> queue = new LinkedBlockingQueue<>();
+
+    private final Thread committer;
+
+    private final LongAdder transactionCount = new LongAdder();
+
+    private final LongAdder operationCount = new LongAdder();
+
+    private volatile boolean running = true;
+
+    /**
+     * @param template 事务KafkaTemplate
+     * @param maxGroupSize 一个事务最多合并的操作数
+     * @param lingerMs 收到第一个操作后最多再等待多久凑批
+     */
+    public GroupCommitTransactionalSender(KafkaTemplate<K, V> template, int maxGroupSize, long lingerMs) {
+        if (!template.isTransactional()) {
+            throw new IllegalArgumentException("KafkaTemplate must be transactional");
+        }
+        if (maxGroupSize <= 0) {
+            throw new IllegalArgumentException("maxGroupSize must be positive: " + maxGroupSize);
+        }
+        this.template = template;
+        this.maxGroupSize = maxGroupSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMs);
+        this.committer = Thread.ofPlatform().daemon().name("tx-group-commit").start(this::runLoop);
+    }
+
+    /**
+     * 提交一个业务操作，返回的Future在所在事务提交后完成
+     */
+    public CompletableFuture<Void> submit(Consumer<KafkaOperations<K, V>> operation) {
+        PendingOperation<K, V> pending = new PendingOperation<>(operation);
+        if (!running) {
+            pending.future.completeExceptionally(new IllegalStateException("Group commit sender is closed"));
+            return pending.future;
+        }
+        queue.add(pending);
+        if (!running && queue.remove(pending)) {
+            // close()在检查running之后、入队之前已经清空了队列，这个操作不会再被取走
+            pending.future.completeExceptionally(new IllegalStateException("Group commit sender is closed"));
+        }
+        return pending.future;
+    }
+
+    public long transactionCount() {
+        return transactionCount.sum();
+    }
+
+    public long operationCount() {
+        return operationCount.sum();
+    }
+
+    private void runLoop() {
+        List<PendingOperation<K, V>> group = new ArrayList<>(maxGroupSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingOperation<K, V> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                long deadline = System.nanoTime() + lingerNanos;
+                while (group.size() < maxGroupSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingOperation<K, V> next = remaining > 0
+                        ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            commit(group);
+            group.clear();
+        }
+        failRemaining(group);
+    }
+
+    /**
+     * 在一个事务中执行一组操作
+     * 操作自身失败时剔除该操作后重试其余操作；提交失败时二分重试，定位到引起失败的操作
+     */
+    private void commit(List<PendingOperation<K, V>> group) {
+        while (!group.isEmpty()) {
+            int[] current = {-1};
+            try {
+                template.executeInTransaction(operations -> {
+                    for (int i = 0; i < group.size(); i++) {
+                        current[0] = i;
+                        group.get(i).operation.accept(operations);
+                    }
+                    current[0] = -1;
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                if (current[0] >= 0) {
+                    PendingOperation<K, V> failed = group.remove(current[0]);
+                    failed.future.completeExceptionally(e);
+                    logger.warn("组提交事务中的操作失败，事务中止，其余{}个操作重新执行", group.size(), e);
+                    continue;
+                }
+                if (group.size() == 1 || isTransactionWide(e)) {
+                    logger.error("组提交事务失败，{}个操作一起回滚", group.size(), e);
+                    group.forEach(pending -> pending.future.completeExceptionally(e));
+                    return;
+                }
+                int middle = group.size() / 2;
+                logger.warn("组提交事务提交失败，拆分为{}和{}个操作分别重试", middle, group.size() - middle, e);
+                commit(new ArrayList<>(group.subList(0, middle)));
+                commit(new ArrayList<>(group.subList(middle, group.size())));
+                return;
+            }
+
+            transactionCount.increment();
+            operationCount.add(group.size());
+            group.forEach(pending -> pending.future.complete(null));
+            if (logger.isDebugEnabled()) {
+                logger.debug("组提交事务完成，合并操作数: {}", group.size());
+            }
+            return;
+        }
+    }
+
+    /**
+     * 与具体操作无关、拆分重试也不会成功的错误
+     */
+    private static boolean isTransactionWide(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ProducerFencedException
+                    || cause instanceof InvalidProducerEpochException
+                    || cause instanceof TransactionalIdAuthorizationException
+                    || cause instanceof ClusterAuthorizationException
+                    || cause instanceof TimeoutException
+                    || cause instanceof InterruptException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void failRemaining(List<PendingOperation<K, V>> group) {
+        IllegalStateException closed = new IllegalStateException("Group commit sender is closed");
+        group.forEach(pending -> pending.future.completeExceptionally(closed));
+        PendingOperation<K, V> pending;
+        while ((pending = queue.poll()) != null) {
+            pending.future.completeExceptionally(closed);
+        }
+    }
+
+    /**
+     * 停止接收新操作，已排队的操作提交完成后退出
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            committer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        failRemaining(new ArrayList<>());
+        logger.info("组提交事务发送器关闭，事务数: {}, 操作数: {}", transactionCount.sum(), operationCount.sum());
+    }
+
+    private static final class PendingOperation<K, V> {
+        private final Consumer<KafkaOperations<K, V>> operation;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private PendingOperation(Consumer<KafkaOperations<K, V>> operation) {
+            this.operation = operation;
+        }
+    }
+}
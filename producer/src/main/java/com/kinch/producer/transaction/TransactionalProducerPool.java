@@ -0,0 +1,206 @@
+package com.kinch.producer.transaction;
+
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 事务生产者池 - 多个事务并行执行
+ *
+ * 核心知识点：
+ * 1. 一个事务Producer同一时刻只能有一个进行中的事务，只用一个transactional.id时并发事务只能排队，
+ *    或者由工厂不断创建新的Producer（每个都要initTransactions，代价很高）
+ * 2. 池中固定size个槽位，每个槽位的transactional.id为 前缀 + 实例ID + "-" + 槽位号 + "-0"：
+ *    - 实例内唯一：不同槽位不会互相fence
+ *    - 重启后稳定：新进程initTransactions时使用相同的transactional.id，
+ *      协调器会提升epoch并fence掉旧进程中未完成的事务（僵尸实例）
+ *    - 不同实例必须配置不同的实例ID，否则会互相fence
+ * 3. 按Key或分区亲和分配槽位：同一个Key的事务始终在同一个槽位上串行执行，
+ *    不同Key的事务分散到多个槽位并行执行；没有Key的事务使用任意空闲槽位
+ * 4. 指标：槽位等待次数/等待时间、当前占用槽位数、累计占用时间占比（利用率）
+ *
+ * ProducerFactory需要使用容量为1的DefaultTransactionIdSuffixStrategy，
+ * 保证每个槽位的后缀固定为0（槽位内的事务本身就是串行的）
+ */
+public class TransactionalProducerPool<K, V> {
+
+    private final String transactionIdPrefix;
+
+    private final List<Slot<K, V>> slots;
+
+    private final AtomicInteger nextSlot = new AtomicInteger();
+
+    private final AtomicInteger activeSlots = new AtomicInteger();
+
+    private final LongAdder acquireCount = new LongAdder();
+
+    private final LongAdder waitCount = new LongAdder();
+
+    private final LongAdder totalWaitNanos = new LongAdder();
+
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+    private final long createdNanos = System.nanoTime();
+
+    /**
+     * @param producerFactory 支持事务的ProducerFactory
+     * @param transactionIdPrefix transactional.id前缀，应包含实例ID，例如 tx-pool-host1-
+     * @param size 槽位数量
+     */
+    public TransactionalProducerPool(ProducerFactory<K, V> producerFactory, String transactionIdPrefix, int size) {
+        if (!producerFactory.transactionCapable()) {
+            throw new IllegalArgumentException("ProducerFactory must be transactional");
+        }
+        if (size <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive: " + size);
+        }
+        this.transactionIdPrefix = transactionIdPrefix;
+        this.slots = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            KafkaTemplate<K, V> template = new KafkaTemplate<>(producerFactory);
+            template.setTransactionIdPrefix(transactionIdPrefix + i + "-");
+            slots.add(new Slot<>(template));
+        }
+    }
+
+    /**
+     * 在亲和槽位上执行事务
+     *
+     * @param affinityKey Integer视为分区号，其他对象按字符串形式做murmur2哈希（与默认分区器一致），
+     *                    为null时使用任意空闲槽位
+     */
+    public <T> T executeInTransaction(Object affinityKey, KafkaOperations.OperationsCallback<K, V, T> callback) {
+        Slot<K, V> slot = affinityKey == null ? acquireAny() : acquire(slots.get(slotFor(affinityKey)));
+        long start = System.nanoTime();
+        try {
+            T result = slot.template.executeInTransaction(callback);
+            slot.transactions.increment();
+            return result;
+        } catch (RuntimeException e) {
+            slot.failures.increment();
+            throw e;
+        } finally {
+            slot.busyNanos.add(System.nanoTime() - start);
+            activeSlots.decrementAndGet();
+            slot.lock.unlock();
+        }
+    }
+
+    /**
+     * 在任意空闲槽位上执行事务
+     */
+    public <T> T executeInTransaction(KafkaOperations.OperationsCallback<K, V, T> callback) {
+        return executeInTransaction(null, callback);
+    }
+
+    public int slotFor(Object affinityKey) {
+        if (affinityKey instanceof Integer partition) {
+            return Math.floorMod(partition, slots.size());
+        }
+        byte[] bytes = String.valueOf(affinityKey).getBytes(StandardCharsets.UTF_8);
+        return Utils.toPositive(Utils.murmur2(bytes)) % slots.size();
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    /**
+     * 优先抢占空闲槽位，全部繁忙时按轮询排队等待
+     */
+    private Slot<K, V> acquireAny() {
+        int start = Math.floorMod(nextSlot.getAndIncrement(), slots.size());
+        for (int i = 0; i < slots.size(); i++) {
+            Slot<K, V> slot = slots.get((start + i) % slots.size());
+            if (slot.lock.tryLock()) {
+                acquired(0);
+                return slot;
+            }
+        }
+        return acquire(slots.get(start));
+    }
+
+    private Slot<K, V> acquire(Slot<K, V> slot) {
+        if (slot.lock.tryLock()) {
+            acquired(0);
+            return slot;
+        }
+        long start = System.nanoTime();
+        slot.lock.lock();
+        acquired(System.nanoTime() - start);
+        return slot;
+    }
+
+    private void acquired(long waitNanos) {
+        acquireCount.increment();
+        activeSlots.incrementAndGet();
+        if (waitNanos > 0) {
+            waitCount.increment();
+            totalWaitNanos.add(waitNanos);
+            maxWaitNanos.accumulate(waitNanos);
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        long acquired = acquireCount.sum();
+        long waited = waitCount.sum();
+        long elapsed = Math.max(1, System.nanoTime() - createdNanos);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("transactionIdPrefix", transactionIdPrefix);
+        result.put("size", slots.size());
+        result.put("activeSlots", activeSlots.get());
+        result.put("acquireCount", acquired);
+        result.put("waitCount", waited);
+        result.put("avgWaitMs", waited == 0 ? 0 : toMillis(totalWaitNanos.sum() / waited));
+        result.put("maxWaitMs", toMillis(maxWaitNanos.get()));
+
+        long busy = 0;
+        List<Map<String, Object>> slotSnapshots = new ArrayList<>(slots.size());
+        for (int i = 0; i < slots.size(); i++) {
+            Slot<K, V> slot = slots.get(i);
+            long slotBusy = slot.busyNanos.sum();
+            busy += slotBusy;
+            Map<String, Object> slotSnapshot = new LinkedHashMap<>();
+            slotSnapshot.put("slot", i);
+            slotSnapshot.put("transactions", slot.transactions.sum());
+            slotSnapshot.put("failures", slot.failures.sum());
+            slotSnapshot.put("utilization", ratio(slotBusy, elapsed));
+            slotSnapshots.add(slotSnapshot);
+        }
+        result.put("utilization", ratio(busy, elapsed * slots.size()));
+        result.put("slots", slotSnapshots);
+        return result;
+    }
+
+    private static double toMillis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+
+    private static double ratio(long part, long total) {
+        return Math.round(part * 10000.0 / total) / 10000.0;
+    }
+
+    private static final class Slot<K, V> {
+        private final KafkaTemplate<K, V> template;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LongAdder transactions = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder busyNanos = new LongAdder();
+
+        private Slot(KafkaTemplate<K, V> template) {
+            this.template = template;
+        }
+    }
+}
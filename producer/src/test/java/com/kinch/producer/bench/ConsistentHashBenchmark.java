@@ -0,0 +1,128 @@
+package com.kinch.producer.bench;
+
+import com.kinch.common.bench.Bench;
+import com.kinch.common.constant.KafkaConstants;
+import com.kinch.producer.partition.ConsistentHash;
+import org.apache.kafka.common.utils.Utils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 按Key分区：murmur2 % N vs Jump Consistent Hash（查找表 / 直接计算）
+ * 1. 查找耗时：输入为已算好的murmur2哈希值，只比较从哈希到分区这一步
+ * 2. 扩容时的Key移动比例，以及各分区的Key数量偏差
+ *    注意3 -> 6是整倍数扩容，hash % N 也只移动一半Key；非整倍数扩容时差异才明显
+ *
+ * 默认不运行，执行方式：
+ * mvn test -pl producer -am -Dtest=ConsistentHashBenchmark -Dbenchmark=true -Dsurefire.failIfNoSpecifiedTests=false
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ConsistentHashBenchmark {
+
+    private static final int KEYS = 1_000_000;
+
+    private static final int ITERATIONS = 1_000_000;
+
+    private static final int ROUNDS = 5;
+
+    private static final int[][] GROWTH = {
+        {KafkaConstants.PARTITION_COUNT_DEFAULT, KafkaConstants.PARTITION_COUNT_HIGH}, {3, 4}, {6, 7}, {12, 16}
+    };
+
+    @Test
+    void lookupCost() throws Exception {
+        int partitions = KafkaConstants.PARTITION_COUNT_HIGH;
+        int[] hashes = new int[1024];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = Utils.murmur2(key(i));
+        }
+        int[] table = ConsistentHash.lookupTable(partitions);
+        int[] index = {0};
+
+        Bench.Result modulo = Bench.measure(ITERATIONS, ROUNDS,
+            () -> Utils.toPositive(hashes[index[0]++ & 1023]) % partitions);
+        Bench.Result lookup = Bench.measure(ITERATIONS, ROUNDS,
+            () -> table[ConsistentHash.slot(hashes[index[0]++ & 1023])]);
+        Bench.Result jump = Bench.measure(ITERATIONS, ROUNDS,
+            () -> ConsistentHash.jump(hashes[index[0]++ & 1023], partitions));
+        long start = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            Bench.sink = ConsistentHash.lookupTable(partitions);
+        }
+        double buildMicros = (System.nanoTime() - start) / 1000 / 1e3;
+
+        System.out.printf("查找耗时（%d分区，含Bench调用开销）%n", partitions);
+        System.out.printf("  murmur2 %% N:  %s%n", modulo);
+        System.out.printf("  jump查找表:   %s%n", lookup);
+        System.out.printf("  jump直接计算: %s%n", jump);
+        System.out.printf("  查找表构建:   %.1f us/次（分区数变化时一次）%n", buildMicros);
+        assertTrue(lookup.bytesPerOp() < 1);
+    }
+
+    @Test
+    void keyMovement() {
+        int[] hashes = new int[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            hashes[i] = Utils.murmur2(key(i));
+        }
+
+        System.out.printf("Key移动比例（%d个Key）%n", KEYS);
+        for (int[] growth : GROWTH) {
+            int from = growth[0];
+            int to = growth[1];
+            int[] fromTable = ConsistentHash.lookupTable(from);
+            int[] toTable = ConsistentHash.lookupTable(to);
+
+            int movedModulo = 0;
+            int movedJump = 0;
+            int movedToOld = 0;
+            int[] counts = new int[to];
+            for (int hash : hashes) {
+                if (Utils.toPositive(hash) % from != Utils.toPositive(hash) % to) {
+                    movedModulo++;
+                }
+                int before = fromTable[ConsistentHash.slot(hash)];
+                int after = toTable[ConsistentHash.slot(hash)];
+                if (before != after) {
+                    movedJump++;
+                    if (after < from) {
+                        movedToOld++;
+                    }
+                }
+                counts[after]++;
+            }
+
+            double ideal = (double) (to - from) / to;
+            System.out.printf("  %2d -> %2d: murmur2 %% N %5.1f%%, jump %5.1f%% (理论最优 %5.1f%%), 分区Key数偏差 %4.1f%%%n",
+                from, to, percent(movedModulo), percent(movedJump), ideal * 100, skew(counts) * 100);
+            // 移动的Key只去新增分区，移动比例接近理论最优（查找表按槽位映射，允许少量偏差）
+            assertEquals(0, movedToOld);
+            assertEquals(ideal * 100, percent(movedJump), 3);
+        }
+    }
+
+    /**
+     * 最大偏离平均值的比例
+     */
+    private static double skew(int[] counts) {
+        double average = (double) KEYS / counts.length;
+        double max = 0;
+        for (int count : counts) {
+            max = Math.max(max, Math.abs(count - average) / average);
+        }
+        return max;
+    }
+
+    private static double percent(int moved) {
+        return moved * 100.0 / KEYS;
+    }
+
+    private static byte[] key(int i) {
+        return ("user-" + i).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,71 @@
+package com.kinch.producer.bench;
+
+import com.kinch.common.bench.Bench;
+import com.kinch.producer.partition.CustomPartitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CustomPartitioner.partition() 热路径的耗时和每次调用的分配字节数
+ * 分别测量普通Key（murmur2）、VIP Key、无Key（粘性）三种情况，断言每次调用不分配对象
+ *
+ * 默认不运行，执行方式：
+ * mvn test -pl producer -am -Dtest=CustomPartitionerBenchmark -Dbenchmark=true -Dsurefire.failIfNoSpecifiedTests=false
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CustomPartitionerBenchmark {
+
+    private static final int ITERATIONS = 1_000_000;
+
+    private static final int ROUNDS = 5;
+
+    private static final String TOPIC = "order-topic";
+
+    @Test
+    void partitionDoesNotAllocate() throws Exception {
+        CustomPartitioner partitioner = new CustomPartitioner();
+        partitioner.configure(Map.of());
+        Cluster cluster = cluster(TOPIC, 6);
+
+        byte[] userKey = "user-123456".getBytes(StandardCharsets.UTF_8);
+        byte[] vipKey = "VIP-123456".getBytes(StandardCharsets.UTF_8);
+        byte[] value = new byte[200];
+
+        Bench.Result keyed = Bench.measure(ITERATIONS, ROUNDS,
+            () -> partitioner.partition(TOPIC, null, userKey, null, value, cluster));
+        Bench.Result vip = Bench.measure(ITERATIONS, ROUNDS,
+            () -> partitioner.partition(TOPIC, null, vipKey, null, value, cluster));
+        Bench.Result keyless = Bench.measure(ITERATIONS, ROUNDS,
+            () -> partitioner.partition(TOPIC, null, null, null, value, cluster));
+        partitioner.close();
+
+        System.out.printf("普通Key: %s%n", keyed);
+        System.out.printf("VIP Key: %s%n", vip);
+        System.out.printf("无Key:   %s%n", keyless);
+        // 分区号在Integer缓存范围内，装箱不分配；统计本身的开销摊到每次调用远小于1字节
+        assertTrue(keyed.bytesPerOp() < 1, "keyed: " + keyed);
+        assertTrue(vip.bytesPerOp() < 1, "vip: " + vip);
+        assertTrue(keyless.bytesPerOp() < 1, "keyless: " + keyless);
+    }
+
+    static Cluster cluster(String topic, int partitions) {
+        Node[] nodes = {new Node(0, "localhost", 9092), new Node(1, "localhost", 9093), new Node(2, "localhost", 9094)};
+        List<PartitionInfo> infos = new ArrayList<>();
+        for (int i = 0; i < partitions; i++) {
+            Node leader = nodes[i % nodes.length];
+            infos.add(new PartitionInfo(topic, i, leader, nodes, nodes));
+        }
+        return new Cluster("bench", List.of(nodes), infos, Set.of(), Set.of());
+    }
+}
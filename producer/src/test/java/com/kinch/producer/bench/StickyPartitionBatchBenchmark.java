@@ -0,0 +1,138 @@
+package com.kinch.producer.bench;
+
+import com.kinch.producer.partition.CustomPartitioner;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 无Key消息：按时间戳取模（旧策略） vs 粘性分区，平均批次大小对比
+ *
+ * MockProducer不攒批，这里按KafkaProducer.doSend的流程模拟RecordAccumulator：
+ * 1. 先调用分区器选分区，目标分区没有可追加的批次（未创建或已满）时回调onNewBatch并重新分区
+ * 2. 批次达到batch.size或创建后超过linger.ms即视为发出
+ * 3. 选定分区后通过MockProducer发送，并以固定速率发送，模拟中等流量
+ * 批次参数与KafkaProducerConfig一致：batch.size=16384、linger.ms=10
+ *
+ * 默认不运行，执行方式：
+ * mvn test -pl producer -am -Dtest=StickyPartitionBatchBenchmark -Dbenchmark=true -Dsurefire.failIfNoSpecifiedTests=false
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class StickyPartitionBatchBenchmark {
+
+    private static final String TOPIC = "order-topic";
+
+    private static final int PARTITIONS = 6;
+
+    private static final int BATCH_SIZE = 16384;
+
+    private static final long LINGER_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final int RECORDS = 60_000;
+
+    private static final int RECORD_BYTES = 200;
+
+    // 约20000条/秒
+    private static final long SEND_INTERVAL_NANOS = 50_000;
+
+    @Test
+    void compareKeylessStrategies() {
+        Cluster cluster = CustomPartitionerBenchmark.cluster(TOPIC, PARTITIONS);
+
+        Stats legacy = run(cluster, false);
+        Stats sticky = run(cluster, true);
+
+        System.out.printf("时间戳取模: %s%n", legacy);
+        System.out.printf("粘性分区:   %s%n", sticky);
+        System.out.printf("平均批次大小提升 %.1f 倍，请求数减少 %.0f%%%n",
+            sticky.averageBatchBytes() / legacy.averageBatchBytes(),
+            100.0 * (legacy.batches - sticky.batches) / legacy.batches);
+        assertTrue(sticky.averageBatchBytes() > legacy.averageBatchBytes());
+    }
+
+    private Stats run(Cluster cluster, boolean sticky) {
+        CustomPartitioner partitioner = new CustomPartitioner();
+        partitioner.configure(Map.of(CustomPartitioner.STICKY_KEYLESS_CONFIG, String.valueOf(sticky)));
+        MockProducer<String, byte[]> producer =
+            new MockProducer<>(cluster, true, null, new StringSerializer(), new ByteArraySerializer());
+
+        byte[] value = new byte[RECORD_BYTES];
+        int[] batchBytes = new int[PARTITIONS];
+        long[] batchCreated = new long[PARTITIONS];
+        Stats stats = new Stats();
+
+        long start = System.nanoTime();
+        long next = start;
+        for (int i = 0; i < RECORDS; i++) {
+            while (System.nanoTime() < next) {
+                LockSupport.parkNanos(next - System.nanoTime());
+            }
+            next += SEND_INTERVAL_NANOS;
+
+            long now = System.nanoTime();
+            for (int p = 0; p < PARTITIONS; p++) {
+                if (batchBytes[p] > 0 && now - batchCreated[p] >= LINGER_NANOS) {
+                    stats.flush(batchBytes, p);
+                }
+            }
+
+            int partition = partitioner.partition(TOPIC, null, null, null, value, cluster);
+            if (batchBytes[partition] == 0 || batchBytes[partition] + RECORD_BYTES > BATCH_SIZE) {
+                // 与KafkaProducer一致：需要新批次时先通知分区器，再重新分区
+                partitioner.onNewBatch(TOPIC, cluster, partition);
+                partition = partitioner.partition(TOPIC, null, null, null, value, cluster);
+                if (batchBytes[partition] + RECORD_BYTES > BATCH_SIZE) {
+                    stats.flush(batchBytes, partition);
+                }
+            }
+            if (batchBytes[partition] == 0) {
+                batchCreated[partition] = now;
+            }
+            batchBytes[partition] += RECORD_BYTES;
+            producer.send(new ProducerRecord<>(TOPIC, partition, null, value));
+        }
+        for (int p = 0; p < PARTITIONS; p++) {
+            if (batchBytes[p] > 0) {
+                stats.flush(batchBytes, p);
+            }
+        }
+        stats.seconds = (System.nanoTime() - start) / 1e9;
+        partitioner.close();
+
+        assertEquals(RECORDS, producer.history().size());
+        return stats;
+    }
+
+    private static final class Stats {
+        private long batches;
+        private long bytes;
+        private double seconds;
+
+        private void flush(int[] batchBytes, int partition) {
+            batches++;
+            bytes += batchBytes[partition];
+            batchBytes[partition] = 0;
+        }
+
+        private double averageBatchBytes() {
+            return (double) bytes / batches;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d条 %.0f msg/s, %d个批次, 平均批次 %.0f B", RECORDS, RECORDS / seconds,
+                batches, averageBatchBytes());
+        }
+    }
+}
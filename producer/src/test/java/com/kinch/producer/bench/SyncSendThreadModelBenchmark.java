@@ -0,0 +1,94 @@
+package com.kinch.producer.bench;
+
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.mock.MockProducerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 同步发送在不同线程模型下的吞吐量对比
+ *
+ * 用MockProducer模拟Broker：后台线程每隔ACK_DELAY_MS确认一次全部在途消息，
+ * 模拟acks=all的往返延迟。对比：
+ * 1. 200个平台线程（Tomcat默认最大线程数）
+ * 2. 每个请求一个虚拟线程
+ *
+ * 默认不运行，执行方式：
+ * mvn test -pl producer -am -Dtest=SyncSendThreadModelBenchmark -Dbenchmark=true -Dsurefire.failIfNoSpecifiedTests=false
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class SyncSendThreadModelBenchmark {
+
+    private static final int REQUESTS = 20_000;
+
+    private static final int PLATFORM_THREADS = 200;
+
+    private static final long ACK_DELAY_MS = 20;
+
+    @Test
+    void compareThreadModels() throws Exception {
+        // 预热
+        run("warmup", Executors.newFixedThreadPool(PLATFORM_THREADS));
+
+        double platform = run("platform-" + PLATFORM_THREADS, Executors.newFixedThreadPool(PLATFORM_THREADS));
+        double virtual = run("virtual", Executors.newVirtualThreadPerTaskExecutor());
+
+        System.out.printf("同步发送吞吐量: 平台线程 %.0f msg/s, 虚拟线程 %.0f msg/s, 提升 %.1f 倍%n",
+            platform, virtual, virtual / platform);
+        assertTrue(virtual > 0 && platform > 0);
+    }
+
+    private double run(String name, ExecutorService executor) throws Exception {
+        MockProducer<String, String> producer = new MockProducer<>(false, new StringSerializer(), new StringSerializer()) {
+            @Override
+            public void close(Duration timeout) {
+                // KafkaTemplate每次发送后都会close，真实工厂返回的CloseSafeProducer会忽略
+            }
+        };
+        KafkaTemplate<String, String> template = new KafkaTemplate<>(new MockProducerFactory<>(() -> producer));
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread broker = Thread.ofPlatform().daemon().start(() -> {
+            int completed = 0;
+            while (running.get()) {
+                try {
+                    Thread.sleep(ACK_DELAY_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                // 只确认本轮开始前已发送的消息，本轮中新发送的消息等到下一轮
+                int sent = producer.history().size();
+                while (completed < sent && producer.completeNext()) {
+                    completed++;
+                }
+            }
+        });
+
+        long start = System.nanoTime();
+        try (executor) {
+            for (int i = 0; i < REQUESTS; i++) {
+                String value = "message-" + i;
+                executor.submit(() -> template.send("bench-topic", value).get());
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.MINUTES));
+        } finally {
+            running.set(false);
+            broker.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double throughput = REQUESTS / seconds;
+        System.out.printf("%-14s %d 次同步发送, 耗时 %.2f s, %.0f msg/s%n", name, REQUESTS, seconds, throughput);
+        return throughput;
+    }
+}
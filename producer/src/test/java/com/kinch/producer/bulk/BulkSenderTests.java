@@ -0,0 +1,140 @@
+package com.kinch.producer.bulk;
+
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.mock.MockProducerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkSenderTests {
+
+    @Test
+    void aggregatesSuccessesFailuresAndOffsets() throws Exception {
+        MockProducer<String, String> producer = mockProducer();
+        BulkSender<String, String> sender = new BulkSender<>(template(producer), 1024 * 1024);
+
+        CompletableFuture<BulkSendResult> future = sender.send(records(5, 10));
+        assertFalse(future.isDone());
+
+        for (int i = 0; i < 5; i++) {
+            if (i == 3) {
+                producer.errorNext(new RuntimeException("broker down"));
+            } else {
+                producer.completeNext();
+            }
+        }
+
+        BulkSendResult result = future.get(5, TimeUnit.SECONDS);
+        assertEquals(5, result.getTotal());
+        assertEquals(4, result.getSuccessCount());
+        assertEquals(1, result.getFailureCount());
+        assertEquals(3, result.getFailures().get(0).getIndex());
+        assertEquals("key-3", result.getFailures().get(0).getKey());
+        assertEquals(4, result.getPartitionOffsets().values().stream()
+            .mapToLong(BulkSendResult.PartitionOffsets::getCount).sum());
+        assertEquals(0, sender.inFlightBytes());
+    }
+
+    @Test
+    void blocksWhenInFlightBytesExceedLimit() throws Exception {
+        MockProducer<String, String> producer = mockProducer();
+        // 每条消息 key(5) + value(95) = 100字节，上限只够两条在途
+        BulkSender<String, String> sender = new BulkSender<>(template(producer), 250);
+
+        AtomicReference<CompletableFuture<BulkSendResult>> future = new AtomicReference<>();
+        Thread caller = new Thread(() -> future.set(sender.send(records(6, 95))));
+        caller.start();
+
+        waitUntil(() -> producer.history().size() == 2);
+        Thread.sleep(100);
+        assertEquals(2, producer.history().size());
+        assertTrue(caller.isAlive());
+
+        int completed = 0;
+        while (completed < 6) {
+            if (producer.completeNext()) {
+                completed++;
+            } else {
+                Thread.sleep(1);
+            }
+        }
+        caller.join(5000);
+
+        BulkSendResult result = future.get().get(5, TimeUnit.SECONDS);
+        assertEquals(6, result.getSuccessCount());
+        assertTrue(result.isAllSucceeded());
+        assertEquals(0, sender.inFlightBytes());
+    }
+
+    @Test
+    void countsUtf8BytesOfNonAsciiValues() throws Exception {
+        MockProducer<String, String> producer = mockProducer();
+        // key(5) + 32个中文字符(96字节) = 101字节，上限只够两条在途；按字符数计算会是37，6条都能发出
+        BulkSender<String, String> sender = new BulkSender<>(template(producer), 250);
+        List<ProducerRecord<String, String>> records = IntStream.range(0, 6)
+            .mapToObj(i -> new ProducerRecord<>("bulk-topic", "key-" + i, "订单".repeat(16)))
+            .toList();
+
+        Thread caller = new Thread(() -> sender.send(records));
+        caller.start();
+
+        waitUntil(() -> producer.history().size() == 2);
+        Thread.sleep(100);
+        assertEquals(2, producer.history().size());
+        assertEquals(202, sender.inFlightBytes());
+
+        int completed = 0;
+        while (completed < 6) {
+            if (producer.completeNext()) {
+                completed++;
+            } else {
+                Thread.sleep(1);
+            }
+        }
+        caller.join(5000);
+        assertEquals(0, sender.inFlightBytes());
+    }
+
+    /**
+     * KafkaTemplate在每次发送后都会close生产者（真实场景中由工厂返回的CloseSafeProducer忽略），
+     * 这里同样忽略close，否则后续发送会失败
+     */
+    private static MockProducer<String, String> mockProducer() {
+        return new MockProducer<>(false, new StringSerializer(), new StringSerializer()) {
+            @Override
+            public void close(Duration timeout) {
+            }
+        };
+    }
+
+    private static KafkaTemplate<String, String> template(MockProducer<String, String> producer) {
+        KafkaTemplate<String, String> template = new KafkaTemplate<>(new MockProducerFactory<>(() -> producer));
+        template.setDefaultTopic("bulk-topic");
+        return template;
+    }
+
+    private static List<ProducerRecord<String, String>> records(int count, int valueLength) {
+        return IntStream.range(0, count)
+            .mapToObj(i -> new ProducerRecord<>("bulk-topic", "key-" + i, "v".repeat(valueLength)))
+            .toList();
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met in time");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.kinch.producer.bulk;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamRecordIteratorTests {
+
+    @Test
+    void readsNdjsonSkippingBlankAndInvalidLines() {
+        String body = "{\"userId\":\"u1\",\"n\":1}\n\n not-json \n{\"userId\":\"u2\"}\r\n{\"n\":3}";
+        StreamRecordIterator records = StreamRecordIterator.ndjson(
+            new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), "t", "userId");
+
+        List<ProducerRecord<String, String>> result = drain(records);
+        assertEquals(3, result.size());
+        assertEquals("u1", result.get(0).key());
+        assertEquals("{\"userId\":\"u2\"}", result.get(1).value());
+        assertNull(result.get(2).key());
+        assertEquals(1, records.rejected());
+        assertNull(records.streamError());
+    }
+
+    @Test
+    void rejectsOverlongNdjsonLineAndResumesAtNextLine() {
+        String huge = "{\"userId\":\"u0\",\"pad\":\"" + "x".repeat(StreamRecordIterator.MAX_FRAME_BYTES) + "\"}";
+        String body = "{\"userId\":\"中文u1\"}\n" + huge + "\n{\"userId\":\"u2\"}\n" + huge;
+        StreamRecordIterator records = StreamRecordIterator.ndjson(
+            new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), "t", "userId");
+
+        List<ProducerRecord<String, String>> result = drain(records);
+        assertEquals(List.of("中文u1", "u2"), result.stream().map(ProducerRecord::key).toList());
+        // 中间和末尾（没有换行符）的超长行都被丢弃
+        assertEquals(2, records.rejected());
+        assertNull(records.streamError());
+    }
+
+    @Test
+    void readsFramesAndReportsTruncatedStream() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeFrame(out, "k1", "第一条");
+        writeFrame(out, null, "second");
+        out.writeInt(2);
+        out.write("k3".getBytes(StandardCharsets.UTF_8));
+        out.writeInt(100); // 声明100字节，实际流在此结束
+
+        StreamRecordIterator records = StreamRecordIterator.framed(new ByteArrayInputStream(bytes.toByteArray()), "t");
+        List<ProducerRecord<String, String>> result = drain(records);
+
+        assertEquals(2, result.size());
+        assertEquals("k1", result.get(0).key());
+        assertEquals("第一条", result.get(0).value());
+        assertNull(result.get(1).key());
+        assertNotNull(records.streamError());
+    }
+
+    private static void writeFrame(DataOutputStream out, String key, String value) throws Exception {
+        if (key == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(keyBytes.length);
+            out.write(keyBytes);
+        }
+        byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(valueBytes.length);
+        out.write(valueBytes);
+    }
+
+    private static List<ProducerRecord<String, String>> drain(StreamRecordIterator records) {
+        List<ProducerRecord<String, String>> result = new ArrayList<>();
+        records.forEachRemaining(result::add);
+        return result;
+    }
+}
@@ -0,0 +1,38 @@
+package com.kinch.producer.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KafkaCallbackExecutorTests {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+        .withConfiguration(AutoConfigurations.of(TaskExecutionAutoConfiguration.class))
+        .withUserConfiguration(CallbackExecutorConfig.class);
+
+    @Test
+    void applicationTaskExecutorIsStillAutoConfigured() {
+        contextRunner.withPropertyValues("spring.threads.virtual.enabled=true").run(context -> {
+            assertTrue(context.containsBean("applicationTaskExecutor"));
+            assertNotNull(context.getBean(KafkaCallbackExecutor.class).executor());
+        });
+    }
+
+    /**
+     * 只注册KafkaProducerConfig中的回调执行器Bean，不创建Producer和AdminClient
+     */
+    @Configuration(proxyBeanMethods = false)
+    static class CallbackExecutorConfig {
+
+        @Bean(destroyMethod = "close")
+        KafkaCallbackExecutor kafkaCallbackExecutor() {
+            return new KafkaProducerConfig().kafkaCallbackExecutor(true);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.kinch.producer.interceptor;
+
+import com.kinch.common.constant.KafkaConstants;
+import com.kinch.common.util.HeaderUtils;
+import com.kinch.producer.partition.CustomPartitioner;
+import com.kinch.producer.partition.PartitionLoadTracker;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ProducerInterceptorExampleTests {
+
+    private static final String TOPIC = "order-topic";
+
+    private static final Node NODE = new Node(0, "localhost", 9092);
+
+    private static final Cluster CLUSTER = new Cluster("cluster", List.of(NODE),
+        IntStream.range(0, 3).mapToObj(p -> new PartitionInfo(TOPIC, p, NODE, new Node[]{NODE}, new Node[]{NODE})).toList(),
+        Set.of(), Set.of());
+
+    private final PartitionLoadTracker tracker = new PartitionLoadTracker();
+
+    private final ProducerInterceptorExample interceptor = new ProducerInterceptorExample();
+
+    private final CustomPartitioner partitioner = new CustomPartitioner();
+
+    ProducerInterceptorExampleTests() {
+        Map<String, Object> configs = Map.of(
+            PartitionLoadTracker.TRACKER_CONFIG, tracker,
+            ProducerConfig.PARTITIONER_CLASS_CONFIG, CustomPartitioner.class,
+            ProducerInterceptorExample.REPORT_INTERVAL_MS_CONFIG, 0);
+        interceptor.configure(configs);
+        partitioner.configure(configs);
+    }
+
+    @AfterEach
+    void close() {
+        interceptor.close();
+        partitioner.close();
+    }
+
+    @Test
+    void explicitPartitionIsRoutedAndReleased() {
+        ProducerRecord<String, String> sent = interceptor.onSend(new ProducerRecord<>(TOPIC, 2, "k", "order-1"));
+        assertNull(sent.partition());
+
+        int partition = send(sent);
+        assertEquals(2, partition);
+        assertEquals(1L, inFlightRecords(2));
+
+        interceptor.onAcknowledgement(new RecordMetadata(new TopicPartition(TOPIC, 2), 0, 0,
+            System.currentTimeMillis(), 1, 7), null);
+        assertEquals(0L, inFlightBytes(2));
+        assertEquals(0L, inFlightRecords(2));
+    }
+
+    @Test
+    void explicitPartitionOutOfRangeFails() {
+        ProducerRecord<String, String> sent = interceptor.onSend(new ProducerRecord<>(TOPIC, 3, "k", "order-1"));
+
+        assertThrows(KafkaException.class, () -> send(sent));
+    }
+
+    @Test
+    void headersAreAddedToCopyAndNotDuplicatedOnResend() {
+        ProducerRecord<String, String> original = new ProducerRecord<>(TOPIC, "k", "order-1");
+        original.headers().add(KafkaConstants.HEADER_TRACE_ID, "trace-1".getBytes(StandardCharsets.UTF_8));
+
+        ProducerRecord<String, String> first = interceptor.onSend(original);
+        assertNotSame(original, first);
+        assertEquals(1, original.headers().toArray().length);
+        assertEquals(4, first.headers().toArray().length);
+
+        // KafkaProducer发送后会把Header设为只读，把已注入Header的消息再发一次
+        ((RecordHeaders) first.headers()).setReadOnly();
+        ProducerRecord<String, String> second = interceptor.onSend(first);
+        assertEquals(4, second.headers().toArray().length);
+        for (String key : List.of(KafkaConstants.HEADER_MESSAGE_SEQ, KafkaConstants.HEADER_SEND_TIMESTAMP,
+                KafkaConstants.HEADER_SOURCE, KafkaConstants.HEADER_TRACE_ID)) {
+            assertEquals(1, StreamSupport.stream(second.headers().headers(key).spliterator(), false).count(), key);
+        }
+        assertEquals(2L, HeaderUtils.readLong(second.headers().lastHeader(KafkaConstants.HEADER_MESSAGE_SEQ), -1));
+    }
+
+    /**
+     * 与KafkaProducer.doSend一样：序列化后调用分区器
+     */
+    private int send(ProducerRecord<String, String> record) {
+        byte[] key = record.key().getBytes(StandardCharsets.UTF_8);
+        byte[] value = record.value().getBytes(StandardCharsets.UTF_8);
+        return partitioner.partition(record.topic(), record.key(), key, record.value(), value, CLUSTER);
+    }
+
+    private long inFlightBytes(int partition) {
+        return (Long) tracker.snapshot().get(TOPIC).get(partition).get("inFlightBytes");
+    }
+
+    private long inFlightRecords(int partition) {
+        return (Long) tracker.snapshot().get(TOPIC).get(partition).get("inFlightRecords");
+    }
+}
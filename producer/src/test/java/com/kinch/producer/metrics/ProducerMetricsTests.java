@@ -0,0 +1,74 @@
+package com.kinch.producer.metrics;
+
+import com.kinch.producer.interceptor.ProducerInterceptorExample;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.mock.MockProducerFactory;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProducerMetricsTests {
+
+    private static final String REPORTER_THREAD = "producer-metrics-reporter";
+
+    @Test
+    void interceptorsSharingMetricsStartOneReporter() {
+        ProducerMetrics metrics = new ProducerMetrics();
+        Map<String, Object> configs = Map.of(ProducerMetrics.METRICS_CONFIG, metrics,
+            ProducerInterceptorExample.REPORT_INTERVAL_MS_CONFIG, "60000");
+        long before = reporterThreads();
+
+        ProducerInterceptorExample first = new ProducerInterceptorExample();
+        ProducerInterceptorExample second = new ProducerInterceptorExample();
+        first.configure(configs);
+        second.configure(configs);
+        assertEquals(before + 1, reporterThreads());
+
+        first.close();
+        assertEquals(before + 1, reporterThreads());
+        second.close();
+        waitForReporterExit(before);
+        assertEquals(before, reporterThreads());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void templateRecordsSendLatencyPerTopic() {
+        MockProducer<String, String> producer = new MockProducer<>(true, new StringSerializer(), new StringSerializer()) {
+            @Override
+            public void close(Duration timeout) {
+                // KafkaTemplate每次发送后都会close，真实工厂返回的CloseSafeProducer会忽略
+            }
+        };
+        ProducerMetrics metrics = new ProducerMetrics();
+        KafkaTemplate<String, String> template =
+            new TimedKafkaTemplate<>(new MockProducerFactory<>(() -> producer), metrics);
+
+        for (int i = 0; i < 5; i++) {
+            template.send("order-topic", "key-" + i, "value-" + i).join();
+        }
+
+        Map<String, Object> topic = (Map<String, Object>) ((Map<String, Object>) metrics.snapshot().get("topics"))
+            .get("order-topic");
+        Map<String, Object> sendLatency = (Map<String, Object>) topic.get("sendLatency");
+        assertEquals(5L, sendLatency.get("count"));
+    }
+
+    private static long reporterThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+            .filter(thread -> thread.getName().equals(REPORTER_THREAD) && thread.isAlive())
+            .count();
+    }
+
+    private static void waitForReporterExit(long expected) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (reporterThreads() > expected && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+}
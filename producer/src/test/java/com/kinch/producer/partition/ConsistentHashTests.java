@@ -0,0 +1,51 @@
+package com.kinch.producer.partition;
+
+import org.apache.kafka.common.utils.Utils;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsistentHashTests {
+
+    private static final int KEYS = 100_000;
+
+    @Test
+    void growingPartitionsMovesOnlyTheMinimalShare() {
+        int[] from = ConsistentHash.lookupTable(3);
+        int[] to = ConsistentHash.lookupTable(4);
+
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            int slot = ConsistentHash.slot(Utils.murmur2(key(i)));
+            if (from[slot] != to[slot]) {
+                moved++;
+                // 移动的Key只会去新增的分区
+                assertEquals(3, to[slot]);
+            }
+        }
+
+        // 最优移动比例为 (4 - 3) / 4 = 25%，murmur2 % N 约为75%
+        double ratio = moved / (double) KEYS;
+        assertTrue(ratio > 0.20 && ratio < 0.30, "moved ratio " + ratio);
+    }
+
+    @Test
+    void lookupTableIsBalanced() {
+        for (int partitions : new int[]{3, 6, 7}) {
+            int[] counts = new int[partitions];
+            for (int partition : ConsistentHash.lookupTable(partitions)) {
+                counts[partition]++;
+            }
+            double expected = ConsistentHash.SLOTS / (double) partitions;
+            for (int count : counts) {
+                assertEquals(expected, count, expected * 0.15);
+            }
+        }
+    }
+
+    private static byte[] key(int i) {
+        return ("user-" + i).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,95 @@
+package com.kinch.producer.partition;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PartitionLoadTrackerTests {
+
+    private static final String TOPIC = "order-topic";
+
+    private final PartitionLoadTracker tracker = new PartitionLoadTracker();
+
+    @Test
+    void successfulAckReleasesSerializedSize() {
+        route(1, 120);
+        tracker.recordAck(TOPIC, 1, 120, 5);
+
+        assertEquals(0L, inFlightBytes(1));
+        assertEquals(0L, inFlightRecords(1));
+    }
+
+    @Test
+    void synchronousFailureReleasesRoutedSize() {
+        route(2, 300);
+        route(2, 150);
+        // 发送线程上同步失败：元数据不带大小，分区可能未知，甚至没有元数据
+        tracker.recordAck(TOPIC, -1, -1, -1);
+        assertEquals(300L, inFlightBytes(2));
+
+        route(2, 80);
+        tracker.recordAck(null, -1, -1, -1);
+        assertEquals(300L, inFlightBytes(2));
+        assertEquals(1L, inFlightRecords(2));
+    }
+
+    @Test
+    void asynchronousFailuresDrainPartitionCompletely() {
+        route(0, 100);
+        route(0, 250);
+        route(0, 333);
+
+        // I/O线程上的失败回调拿不到本线程的路由记录，按平均大小扣减，最后一条扣减剩余全部
+        CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < 3; i++) {
+                tracker.recordAck(TOPIC, 0, -1, -1);
+            }
+        }).join();
+
+        assertEquals(0L, inFlightBytes(0));
+        assertEquals(0L, inFlightRecords(0));
+    }
+
+    @Test
+    void cancelledRouteIsNotReleasedTwice() {
+        route(0, 100);
+        tracker.cancelLastRoute(0);
+        tracker.recordRoute(TOPIC, 1, 3, 100);
+        tracker.recordAck(TOPIC, 1, -1, -1);
+
+        assertEquals(0L, inFlightBytes(0));
+        assertEquals(0L, inFlightBytes(1));
+    }
+
+    @Test
+    void ackWithoutRecordedRouteDoesNotGoNegative() {
+        route(1, 100);
+        // I/O线程上收到确认，后两条消息没有经过分区器（例如未配置CustomPartitioner）
+        CompletableFuture.runAsync(() -> {
+            tracker.recordAck(TOPIC, 1, 100, 5);
+            tracker.recordAck(TOPIC, 1, 200, 5);
+            tracker.recordAck(TOPIC, 1, -1, -1);
+        }).join();
+
+        assertEquals(0L, inFlightBytes(1));
+        assertEquals(0L, inFlightRecords(1));
+    }
+
+    /**
+     * 模拟一次发送：拦截器onSend后分区器路由
+     */
+    private void route(int partition, long bytes) {
+        tracker.beginSend();
+        tracker.recordRoute(TOPIC, partition, 3, bytes);
+    }
+
+    private long inFlightBytes(int partition) {
+        return (Long) tracker.snapshot().get(TOPIC).get(partition).get("inFlightBytes");
+    }
+
+    private long inFlightRecords(int partition) {
+        return (Long) tracker.snapshot().get(TOPIC).get(partition).get("inFlightRecords");
+    }
+}
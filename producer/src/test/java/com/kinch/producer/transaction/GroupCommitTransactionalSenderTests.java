@@ -0,0 +1,168 @@
+package com.kinch.producer.transaction;
+
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.errors.ProducerFencedException;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.mock.MockProducerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroupCommitTransactionalSenderTests {
+
+    @Test
+    void coalescesConcurrentOperationsIntoFewerTransactions() throws Exception {
+        MockProducer<String, String> producer = transactionalProducer();
+        try (GroupCommitTransactionalSender<String, String> sender =
+                 new GroupCommitTransactionalSender<>(template(producer), 4, 200)) {
+            List<CompletableFuture<Void>> futures = IntStream.range(0, 10)
+                .mapToObj(i -> sender.submit(ops -> ops.send("tx-topic", "key-" + i, "value-" + i)))
+                .toList();
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+            // 每个事务最多4个操作：4 + 4 + 2
+            assertEquals(3, producer.commitCount());
+            assertEquals(3, sender.transactionCount());
+            assertEquals(10, sender.operationCount());
+            assertEquals(10, producer.history().size());
+        }
+    }
+
+    @Test
+    void failingOperationIsIsolatedAndOthersAreRetried() throws Exception {
+        MockProducer<String, String> producer = transactionalProducer();
+        try (GroupCommitTransactionalSender<String, String> sender =
+                 new GroupCommitTransactionalSender<>(template(producer), 100, 200)) {
+            CompletableFuture<Void> first = sender.submit(ops -> ops.send("tx-topic", "a", "1"));
+            CompletableFuture<Void> failing = sender.submit(ops -> {
+                throw new IllegalArgumentException("bad order");
+            });
+            CompletableFuture<Void> third = sender.submit(ops -> ops.send("tx-topic", "c", "3"));
+
+            first.get(5, TimeUnit.SECONDS);
+            third.get(5, TimeUnit.SECONDS);
+            ExecutionException e = assertThrows(ExecutionException.class, () -> failing.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalArgumentException.class, e.getCause());
+
+            // 第一次事务中止，剩余两个操作在第二个事务中提交，中止事务里的消息不可见
+            assertEquals(1, producer.commitCount());
+            assertEquals(2, producer.history().size());
+        }
+    }
+
+    @Test
+    void commitFailureIsBisectedToTheOffendingOperation() throws Exception {
+        // 事务中包含poison消息时提交失败，模拟消息过大等只有提交时才暴露的发送错误
+        MockProducer<String, String> producer = new MockProducer<>(true, new StringSerializer(), new StringSerializer()) {
+            @Override
+            public void commitTransaction() {
+                if (uncommittedRecords().stream().anyMatch(record -> "poison".equals(record.key()))) {
+                    // 提交失败时KafkaTemplate不会再abort，真实的ProducerFactory会关闭出错的Producer，这里直接中止事务
+                    abortTransaction();
+                    throw new KafkaException("record too large");
+                }
+                super.commitTransaction();
+            }
+
+            @Override
+            public void close(Duration timeout) {
+            }
+        };
+        producer.initTransactions();
+        try (GroupCommitTransactionalSender<String, String> sender =
+                 new GroupCommitTransactionalSender<>(template(producer), 100, 200)) {
+            List<CompletableFuture<Void>> futures = IntStream.range(0, 8)
+                .mapToObj(i -> sender.submit(ops -> ops.send("tx-topic", i == 5 ? "poison" : "key-" + i, "v")))
+                .toList();
+
+            for (int i = 0; i < futures.size(); i++) {
+                if (i == 5) {
+                    ExecutionException e = assertThrows(ExecutionException.class, () -> futures.get(5).get(5, TimeUnit.SECONDS));
+                    assertEquals("record too large", e.getCause().getMessage());
+                } else {
+                    futures.get(i).get(5, TimeUnit.SECONDS);
+                }
+            }
+            // 8 -> 4 + 4(失败) -> 2 + 2(失败) -> 1 + 1(失败)：除poison外的7条分3个事务提交
+            assertEquals(3, producer.commitCount());
+            assertEquals(7, producer.history().size());
+            assertTrue(producer.history().stream().noneMatch(record -> "poison".equals(record.key())));
+        }
+    }
+
+    @Test
+    void transactionWideCommitFailureFailsGroupWithoutBisecting() throws Exception {
+        MockProducer<String, String> producer = transactionalProducer();
+        producer.commitTransactionException = new ProducerFencedException("fenced");
+        try (GroupCommitTransactionalSender<String, String> sender =
+                 new GroupCommitTransactionalSender<>(template(producer), 100, 200)) {
+            List<CompletableFuture<Void>> futures = IntStream.range(0, 4)
+                .mapToObj(i -> sender.submit(ops -> ops.send("tx-topic", "key-" + i, "v")))
+                .toList();
+            for (CompletableFuture<Void> future : futures) {
+                ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+                assertInstanceOf(ProducerFencedException.class, e.getCause());
+            }
+            assertEquals(0, producer.commitCount());
+            assertEquals(0, producer.history().size());
+        }
+    }
+
+    @Test
+    void submitRacingWithCloseAlwaysCompletes() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            GroupCommitTransactionalSender<String, String> sender =
+                new GroupCommitTransactionalSender<>(template(transactionalProducer()), 10, 1);
+            List<CompletableFuture<Void>> futures = new CopyOnWriteArrayList<>();
+            Thread submitter = new Thread(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    futures.add(sender.submit(ops -> ops.send("tx-topic", "v")));
+                }
+            });
+            submitter.start();
+            sender.close();
+            submitter.join();
+
+            // 无论在close之前还是之后提交，每个操作都要么提交成功要么失败，不会永远挂起
+            for (CompletableFuture<Void> future : futures) {
+                assertDoesNotThrow(() -> future.handle((result, ex) -> null).get(5, TimeUnit.SECONDS));
+            }
+        }
+    }
+
+    @Test
+    void rejectsOperationsAfterClose() {
+        GroupCommitTransactionalSender<String, String> sender =
+            new GroupCommitTransactionalSender<>(template(transactionalProducer()), 10, 1);
+        sender.close();
+        CompletableFuture<Void> future = sender.submit(ops -> ops.send("tx-topic", "v"));
+        assertTrue(future.isCompletedExceptionally());
+    }
+
+    /**
+     * 同一个MockProducer被工厂反复返回，忽略KafkaTemplate事务结束后的close
+     */
+    private static MockProducer<String, String> transactionalProducer() {
+        MockProducer<String, String> producer = new MockProducer<>(true, new StringSerializer(), new StringSerializer()) {
+            @Override
+            public void close(Duration timeout) {
+            }
+        };
+        producer.initTransactions();
+        return producer;
+    }
+
+    private static KafkaTemplate<String, String> template(MockProducer<String, String> producer) {
+        return new KafkaTemplate<>(new MockProducerFactory<>((transactional, txId) -> producer, "tx-"));
+    }
+}
@@ -0,0 +1,106 @@
+package com.kinch.producer.transaction;
+
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.mock.MockProducerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionalProducerPoolTests {
+
+    private final Map<String, MockProducer<String, String>> producers = new ConcurrentHashMap<>();
+
+    @Test
+    void usesStableTransactionalIdPerSlotAndKeyAffinity() {
+        TransactionalProducerPool<String, String> pool = new TransactionalProducerPool<>(factory(), "tx-pool-host1-", 4);
+
+        for (int i = 0; i < 20; i++) {
+            pool.executeInTransaction("order-42", ops -> ops.send("tx-topic", "order-42", "v"));
+        }
+        int slot = pool.slotFor("order-42");
+        MockProducer<String, String> producer = producers.get("tx-pool-host1-" + slot + "-");
+        assertEquals(1, producers.size());
+        assertEquals(20, producer.commitCount());
+        assertEquals(slot, pool.slotFor("order-42"));
+        assertEquals(2, pool.slotFor(6));
+    }
+
+    @Test
+    void runsTransactionsOnDifferentSlotsInParallel() throws Exception {
+        TransactionalProducerPool<String, String> pool = new TransactionalProducerPool<>(factory(), "tx-pool-", 2);
+        CountDownLatch bothStarted = new CountDownLatch(2);
+
+        Thread other = Thread.ofVirtual().start(() -> pool.executeInTransaction(1, ops -> await(bothStarted)));
+        // 分区0和分区1分别映射到两个槽位，两个事务同时进行中才能都通过latch
+        boolean parallel = pool.executeInTransaction(0, ops -> await(bothStarted));
+        assertTrue(parallel);
+        other.join(5000);
+
+        assertEquals(2, producers.size());
+        assertEquals(0L, pool.snapshot().get("waitCount"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void recordsWaitTimeWhenSlotIsBusy() throws Exception {
+        TransactionalProducerPool<String, String> pool = new TransactionalProducerPool<>(factory(), "tx-pool-", 1);
+        CountDownLatch holding = new CountDownLatch(1);
+
+        Thread holder = Thread.ofVirtual().start(() -> pool.executeInTransaction(ops -> {
+            holding.countDown();
+            sleep(100);
+            return true;
+        }));
+        assertTrue(holding.await(5, TimeUnit.SECONDS));
+        pool.executeInTransaction(ops -> true);
+        holder.join(5000);
+
+        Map<String, Object> snapshot = pool.snapshot();
+        assertEquals(2L, snapshot.get("acquireCount"));
+        assertEquals(1L, snapshot.get("waitCount"));
+        assertTrue((double) snapshot.get("maxWaitMs") > 0);
+        assertEquals(0, snapshot.get("activeSlots"));
+        assertEquals(2L, ((List<Map<String, Object>>) snapshot.get("slots")).get(0).get("transactions"));
+    }
+
+    /**
+     * 按transactional.id前缀为每个槽位创建一个事务MockProducer，忽略KafkaTemplate的close
+     */
+    private MockProducerFactory<String, String> factory() {
+        return new MockProducerFactory<>((transactional, txId) -> producers.computeIfAbsent(txId, id -> {
+            MockProducer<String, String> producer = new MockProducer<>(true, new StringSerializer(), new StringSerializer()) {
+                @Override
+                public void close(Duration timeout) {
+                }
+            };
+            producer.initTransactions();
+            return producer;
+        }), "tx-default-");
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        latch.countDown();
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}